@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app;
+
+import android.database.Cursor;
+import android.os.SystemClock;
+
+import org.andstatus.app.data.AvatarCache;
+import org.andstatus.app.data.AvatarDrawable;
+import org.andstatus.app.data.MyDatabase.Avatar;
+import org.andstatus.app.data.MyDatabase.Msg;
+import org.andstatus.app.util.MyLog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads avatars of the rows, which will become visible soon, into the {@link AvatarCache},
+ * taking the direction and the speed of scrolling into account.
+ * Prefetching of rows, which scrolled away, is cancelled.
+ * @author yvolk@yurivolkov.com
+ */
+class AvatarPrefetcher {
+    /** Rows per second, above which we prefetch two screens ahead instead of one */
+    static final int FAST_SCROLL_ROWS_PER_SECOND = 20;
+
+    private int firstVisibleItemPrev = -1;
+    private long timePrev = 0;
+    /** The range, for which the prefetch was requested last time, the end is exclusive */
+    private int rangeStart = 0;
+    private int rangeEnd = 0;
+
+    void onScroll(Cursor cursor, int firstVisibleItem, int visibleItemCount) {
+        long time = SystemClock.uptimeMillis();
+        if (cursor == null || cursor.isClosed() || visibleItemCount == 0
+                || firstVisibleItem == firstVisibleItemPrev) {
+            return;
+        }
+        boolean down = firstVisibleItem > firstVisibleItemPrev;
+        float rowsPerSecond = firstVisibleItemPrev < 0 || time <= timePrev ? 0
+                : Math.abs(firstVisibleItem - firstVisibleItemPrev) * 1000f / (time - timePrev);
+        firstVisibleItemPrev = firstVisibleItem;
+        timePrev = time;
+
+        int screens = rowsPerSecond > FAST_SCROLL_ROWS_PER_SECOND ? 2 : 1;
+        int start;
+        int end;
+        if (down) {
+            start = firstVisibleItem + visibleItemCount;
+            end = start + visibleItemCount * screens;
+        } else {
+            end = firstVisibleItem;
+            start = end - visibleItemCount * screens;
+        }
+        start = Math.max(0, start);
+        end = Math.min(cursor.getCount(), end);
+        if (start >= end || (start >= rangeStart && end <= rangeEnd)) {
+            return;
+        }
+        rangeStart = start;
+        rangeEnd = end;
+        List<AvatarDrawable> avatars = getAvatars(cursor, start, end, down);
+        if (MyLog.isLoggable(this, MyLog.VERBOSE)) {
+            MyLog.v(this, "Prefetch rows " + start + "-" + (end - 1) + ", "
+                    + Math.round(rowsPerSecond) + " rows/s, " + avatars.size() + " avatars");
+        }
+        AvatarCache.getInstance().prefetch(avatars);
+    }
+
+    /**
+     * @return Avatars in the order, in which they will be shown
+     */
+    private static List<AvatarDrawable> getAvatars(Cursor cursor, int start, int end, boolean down) {
+        List<AvatarDrawable> avatars = new ArrayList<AvatarDrawable>();
+        int authorIdColumnIndex = cursor.getColumnIndex(Msg.AUTHOR_ID);
+        int fileNameColumnIndex = cursor.getColumnIndex(Avatar.FILE_NAME);
+        if (authorIdColumnIndex < 0 || fileNameColumnIndex < 0) {
+            return avatars;
+        }
+        for (int ind = 0; ind < end - start; ind++) {
+            if (cursor.moveToPosition(down ? start + ind : end - 1 - ind)) {
+                avatars.add(new AvatarDrawable(cursor.getLong(authorIdColumnIndex),
+                        cursor.getString(fileNameColumnIndex)));
+            }
+        }
+        return avatars;
+    }
+
+    /**
+     * The list content changed
+     */
+    void reset() {
+        firstVisibleItemPrev = -1;
+        rangeStart = 0;
+        rangeEnd = 0;
+        AvatarCache.getInstance().prefetch(new ArrayList<AvatarDrawable>());
+    }
+}
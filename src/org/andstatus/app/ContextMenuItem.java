@@ -38,6 +38,7 @@ public enum ContextMenuItem {
     BLOCK(16),
     ACT_AS_USER(17),
     ACT_AS(18),
+    RESEND(19),
     UNKNOWN(100);
 
     private final int id;
@@ -272,6 +272,7 @@ public class ConversationActivity extends Activity implements MyServiceListener,
     public void onReceive(CommandData commandData) {
         switch(commandData.getCommand()) {
             case GET_STATUS:
+            case GET_CONVERSATION:
                 if (!commandData.getResult().hasError()) {
                     showConversation();
                 }
@@ -268,7 +268,7 @@ public class ConversationViewLoader {
 
     private void retrieveFromInternet(long msgId) {
         MyLog.v(this, "Message id=" + msgId + " should be retrieved from the Internet");
-        MyServiceManager.sendCommand(new CommandData(CommandEnum.GET_STATUS, ma
+        MyServiceManager.sendCommand(new CommandData(CommandEnum.GET_CONVERSATION, ma
                 .getAccountName(), msgId));
     }
 
@@ -404,7 +404,7 @@ public class ConversationViewLoader {
                 layoutParams.addRule(RelativeLayout.RIGHT_OF, viewToTheLeftId);
             }
             avatarView.setLayoutParams(layoutParams);
-            avatarView.setImageDrawable(oMsg.avatarDrawable.getDrawable());
+            oMsg.avatarDrawable.showIn(avatarView);
             indentPixels += size;
             ((ViewGroup) messageIndented.getParent()).addView(avatarView);
         }
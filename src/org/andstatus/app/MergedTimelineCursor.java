@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app;
+
+import android.database.AbstractCursor;
+import android.database.Cursor;
+
+import java.util.List;
+
+/**
+ * Read-only cursor, which rows are taken from other cursors with the same columns.
+ * The cursor owns its sources, i.e. closes them, when it is closed.
+ * Moving this cursor moves its sources, so they shouldn't be used by anybody else.
+ * @author yvolk@yurivolkov.com
+ */
+class MergedTimelineCursor extends AbstractCursor {
+    private final String[] columnNames;
+    private final Cursor[] sources;
+    private final Cursor[] rowCursors;
+    private final int[] rowPositions;
+
+    /**
+     * @param rowCursors Source of each row
+     * @param rowPositions Position of each row in its source
+     */
+    MergedTimelineCursor(List<Cursor> sources, Cursor[] rowCursors, int[] rowPositions) {
+        this.sources = sources.toArray(new Cursor[sources.size()]);
+        this.columnNames = this.sources[0].getColumnNames();
+        this.rowCursors = rowCursors;
+        this.rowPositions = rowPositions;
+    }
+
+    boolean owns(Cursor cursor) {
+        for (Cursor source : sources) {
+            if (source == cursor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Number of merges, which resulted in this cursor
+     */
+    int getDepth() {
+        int depth = 0;
+        for (Cursor source : sources) {
+            if (source instanceof MergedTimelineCursor) {
+                depth = Math.max(depth, ((MergedTimelineCursor) source).getDepth());
+            }
+        }
+        return depth + 1;
+    }
+
+    @Override
+    public int getCount() {
+        return rowCursors.length;
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return columnNames;
+    }
+
+    @Override
+    public boolean onMove(int oldPosition, int newPosition) {
+        return rowCursors[newPosition].moveToPosition(rowPositions[newPosition]);
+    }
+
+    private Cursor current() {
+        return rowCursors[getPosition()];
+    }
+
+    @Override
+    public String getString(int column) {
+        return current().getString(column);
+    }
+
+    @Override
+    public short getShort(int column) {
+        return current().getShort(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return current().getInt(column);
+    }
+
+    @Override
+    public long getLong(int column) {
+        return current().getLong(column);
+    }
+
+    @Override
+    public float getFloat(int column) {
+        return current().getFloat(column);
+    }
+
+    @Override
+    public double getDouble(int column) {
+        return current().getDouble(column);
+    }
+
+    @Override
+    public byte[] getBlob(int column) {
+        return current().getBlob(column);
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return current().isNull(column);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        for (Cursor source : sources) {
+            if (!source.isClosed()) {
+                source.close();
+            }
+        }
+    }
+}
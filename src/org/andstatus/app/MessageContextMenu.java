@@ -28,6 +28,7 @@ import static org.andstatus.app.ContextMenuItem.FOLLOW_AUTHOR;
 import static org.andstatus.app.ContextMenuItem.FOLLOW_SENDER;
 import static org.andstatus.app.ContextMenuItem.REBLOG;
 import static org.andstatus.app.ContextMenuItem.REPLY;
+import static org.andstatus.app.ContextMenuItem.RESEND;
 import static org.andstatus.app.ContextMenuItem.SENDER_MESSAGES;
 import static org.andstatus.app.ContextMenuItem.SHARE;
 import static org.andstatus.app.ContextMenuItem.STOP_FOLLOWING_AUTHOR;
@@ -35,8 +36,7 @@ import static org.andstatus.app.ContextMenuItem.STOP_FOLLOWING_SENDER;
 
 import android.content.Context;
 import android.content.Intent;
-import android.database.Cursor;
-import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.view.ContextMenu;
 import android.view.MenuItem;
@@ -49,9 +49,7 @@ import android.widget.TextView;
 import org.andstatus.app.account.AccountSelector;
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContextHolder;
-import org.andstatus.app.data.DbUtils;
-import org.andstatus.app.data.MyDatabase;
-import org.andstatus.app.data.MyProvider;
+import org.andstatus.app.data.MsgStatus;
 import org.andstatus.app.data.TimelineTypeEnum;
 import org.andstatus.app.service.CommandData;
 import org.andstatus.app.service.CommandEnum;
@@ -83,6 +81,12 @@ public class MessageContextMenu implements OnCreateContextMenuListener {
     }
     private long accountUserIdToActAs;
 
+    /** Loaded in the background for the next showing of the menu */
+    private volatile MessageDataForContextMenu loadedData = null;
+    private MessageDataLoader loader = null;
+    /** Data of the menu, which is being shown */
+    private MessageDataForContextMenu menuData = null;
+
     public MessageContextMenu(ActionableMessageList actionableMessageList) {
         messageList = actionableMessageList;
     }
@@ -113,14 +117,16 @@ public class MessageContextMenu implements OnCreateContextMenuListener {
             }
         }
         actorUserIdForCurrentMessage = 0;
-        MessageDataForContextMenu md = new MessageDataForContextMenu(messageList.getActivity(), userIdForThisMessage, messageList.getCurrentMyAccountUserId(), messageList.getTimelineType(), mCurrentMsgId
-                );
-        if (md.ma == null) {
+        MessageDataForContextMenu md = loadedData;
+        loadedData = null;
+        if (md == null || !md.isFor(mCurrentMsgId, userIdForThisMessage, messageList.getCurrentMyAccountUserId())) {
+            // The menu will be shown again, when its data is loaded
+            startLoading(userIdForThisMessage);
             return;
         }
-        if (accountUserIdToActAs==0 && md.canUseSecondAccountInsteadOfFirst) {
-            // Yes, use current Account!
-            md = new MessageDataForContextMenu(getContext(), messageList.getCurrentMyAccountUserId(), 0, messageList.getTimelineType(), mCurrentMsgId);
+        menuData = md;
+        if (md.ma == null) {
+            return;
         }
         actorUserIdForCurrentMessage = md.ma.getUserId();
         accountUserIdToActAs = 0;
@@ -132,7 +138,11 @@ public class MessageContextMenu implements OnCreateContextMenuListener {
                     + md.body);
 
             // Add menu items
-            if (!md.isDirect) {
+            if (md.status == MsgStatus.NOT_SENT && md.isPending) {
+                RESEND.addTo(menu, menuItemId++, R.string.menu_item_resend);
+            }
+            // The server doesn't know a message, which was not sent yet
+            if (!md.isDirect && !md.isPending) {
                 REPLY.addTo(menu, menuItemId++, R.string.menu_item_reply);
             }
             SHARE.addTo(menu, menuItemId++, R.string.menu_item_share);
@@ -141,7 +151,7 @@ public class MessageContextMenu implements OnCreateContextMenuListener {
             DIRECT_MESSAGE.addTo(menu, menuItemId++,
                     R.string.menu_item_direct_message);
 
-            if (!md.isDirect) {
+            if (!md.isDirect && !md.isPending) {
                 if (md.favorited) {
                     DESTROY_FAVORITE.addTo(menu, menuItemId++,
                             R.string.menu_item_destroy_favorite);
@@ -169,7 +179,7 @@ public class MessageContextMenu implements OnCreateContextMenuListener {
                 SENDER_MESSAGES.addTo(menu, menuItemId++,
                         String.format(MyContextHolder.get().getLocale(),
                                 getContext().getText(R.string.menu_item_user_messages).toString(),
-                                MyProvider.userIdToName(md.senderId)));
+                                md.senderName));
             }
 
             if (messageList.getSelectedUserId() != md.authorId && md.senderId != md.authorId) {
@@ -180,12 +190,12 @@ public class MessageContextMenu implements OnCreateContextMenuListener {
                 AUTHOR_MESSAGES.addTo(menu, menuItemId++,
                         String.format(MyContextHolder.get().getLocale(),
                                 getContext().getText(R.string.menu_item_user_messages).toString(),
-                                MyProvider.userIdToName(md.authorId)));
+                                md.authorName));
             }
 
             if (md.isSender) {
                 // This message is by current User, hence we may delete it.
-                if (md.isDirect) {
+                if (md.isDirect && !md.isPending) {
                     // This is a Direct Message
                     // TODO: Delete Direct message
                 } else if (!md.reblogged) {
@@ -199,12 +209,12 @@ public class MessageContextMenu implements OnCreateContextMenuListener {
                     STOP_FOLLOWING_SENDER.addTo(menu, menuItemId++,
                             String.format(MyContextHolder.get().getLocale(),
                                     getContext().getText(R.string.menu_item_stop_following_user).toString(),
-                                    MyProvider.userIdToName(md.senderId)));
+                                    md.senderName));
                 } else {
                     FOLLOW_SENDER.addTo(menu, menuItemId++,
                             String.format(MyContextHolder.get().getLocale(),
                                     getContext().getText(R.string.menu_item_follow_user).toString(),
-                                    MyProvider.userIdToName(md.senderId)));
+                                    md.senderName));
                 }
             }
             if (!md.isAuthor && (md.authorId != md.senderId)) {
@@ -212,12 +222,12 @@ public class MessageContextMenu implements OnCreateContextMenuListener {
                     STOP_FOLLOWING_AUTHOR.addTo(menu, menuItemId++,
                             String.format(MyContextHolder.get().getLocale(),
                                     getContext().getText(R.string.menu_item_stop_following_user).toString(),
-                                    MyProvider.userIdToName(md.authorId)));
+                                    md.authorName));
                 } else {
                     FOLLOW_AUTHOR.addTo(menu, menuItemId++,
                             String.format(MyContextHolder.get().getLocale(),
                                     getContext().getText(R.string.menu_item_follow_user).toString(),
-                                    MyProvider.userIdToName(md.authorId)));
+                                    md.authorName));
                 }
             }
             switch (md.ma.accountsOfThisOrigin()) {
@@ -238,9 +248,67 @@ public class MessageContextMenu implements OnCreateContextMenuListener {
         }
     }
 
+    private void startLoading(long userIdForThisMessage) {
+        if (loader != null) {
+            loader.cancel(false);
+        }
+        loader = new MessageDataLoader(mCurrentMsgId, userIdForThisMessage,
+                messageList.getCurrentMyAccountUserId(), messageList.getTimelineType(), accountUserIdToActAs == 0);
+        loader.execute();
+    }
+
+    /**
+     * Loads data of the menu in the background and then shows the menu
+     */
+    private class MessageDataLoader extends AsyncTask<Void, Void, MessageDataForContextMenu> {
+        private final long msgId;
+        private final long userIdForThisMessage;
+        private final long preferredOtherUserId;
+        private final TimelineTypeEnum timelineType;
+        private final boolean mayUseSecondAccount;
+
+        MessageDataLoader(long msgId, long userIdForThisMessage, long preferredOtherUserId,
+                TimelineTypeEnum timelineType, boolean mayUseSecondAccount) {
+            this.msgId = msgId;
+            this.userIdForThisMessage = userIdForThisMessage;
+            this.preferredOtherUserId = preferredOtherUserId;
+            this.timelineType = timelineType;
+            this.mayUseSecondAccount = mayUseSecondAccount;
+        }
+
+        @Override
+        protected MessageDataForContextMenu doInBackground(Void... params) {
+            return MessageDataForContextMenu.load(getContext(), userIdForThisMessage, preferredOtherUserId,
+                    timelineType, msgId, mayUseSecondAccount);
+        }
+
+        @Override
+        protected void onPostExecute(MessageDataForContextMenu md) {
+            if (loader == this) {
+                loader = null;
+            }
+            if (md.ma != null && msgId == mCurrentMsgId && !messageList.getActivity().isFinishing()) {
+                loadedData = md;
+                showContextMenu();
+            }
+        }
+    }
+
     private Context getContext() {
         return messageList.getActivity();
     }
+
+    /**
+     * @return Data of the shown menu, null if it is absent (e.g. after the activity was recreated).
+     *   The data is not queried here, in the UI thread
+     */
+    private MessageDataForContextMenu getMenuData(MyAccount ma) {
+        if (menuData == null || menuData.msgId != mCurrentMsgId || menuData.ma == null
+                || menuData.ma.getUserId() != ma.getUserId()) {
+            return null;
+        }
+        return menuData;
+    }
     
     public boolean onContextItemSelected(MenuItem item) {
         AdapterView.AdapterContextMenuInfo info;
@@ -260,8 +328,15 @@ public class MessageContextMenu implements OnCreateContextMenuListener {
 
         MyAccount ma = MyContextHolder.get().persistentAccounts().fromUserId(actorUserIdForCurrentMessage);
         if (ma != null) {
-            long authorId;
-            long senderId;
+            MessageDataForContextMenu md = getMenuData(ma);
+            if (md == null) {
+                // The actions are disabled till the data is loaded, then the menu is shown again
+                MyLog.v(this, "onContextItemSelected; no data of the message " + mCurrentMsgId);
+                startLoading(ma.getUserId());
+                return true;
+            }
+            long authorId = md.authorId;
+            long senderId = md.senderId;
             ContextMenuItem contextMenuItem = ContextMenuItem.fromId(item.getItemId());
             MyLog.v(this, "onContextItemSelected: " + contextMenuItem + "; actor=" + ma.getAccountName());
             switch (contextMenuItem) {
@@ -269,7 +344,6 @@ public class MessageContextMenu implements OnCreateContextMenuListener {
                     messageList.getMessageEditor().startEditingMessage("", mCurrentMsgId, 0, ma, messageList.isTimelineCombined());
                     return true;
                 case DIRECT_MESSAGE:
-                    authorId = MyProvider.msgIdToUserId(MyDatabase.Msg.AUTHOR_ID, mCurrentMsgId);
                     if (authorId != 0) {
                         messageList.getMessageEditor().startEditingMessage("", mCurrentMsgId, authorId, ma, messageList.isTimelineCombined());
                         return true;
@@ -284,6 +358,10 @@ public class MessageContextMenu implements OnCreateContextMenuListener {
                 case DESTROY_STATUS:
                     MyServiceManager.sendCommand( new CommandData(CommandEnum.DESTROY_STATUS, ma.getAccountName(), mCurrentMsgId));
                     return true;
+                case RESEND:
+                    MyServiceManager.sendCommand(CommandData.updateStatus(ma.getAccountName(), md.body,
+                            md.inReplyToMsgId, md.recipientId, mCurrentMsgId));
+                    return true;
                 case FAVORITE:
                     MyServiceManager.sendCommand( new CommandData(CommandEnum.CREATE_FAVORITE, ma.getAccountName(), mCurrentMsgId));
                     return true;
@@ -291,49 +369,39 @@ public class MessageContextMenu implements OnCreateContextMenuListener {
                     MyServiceManager.sendCommand( new CommandData(CommandEnum.DESTROY_FAVORITE, ma.getAccountName(), mCurrentMsgId));
                     return true;
                 case SHARE:
-                    String userName = MyProvider.msgIdToUsername(MyDatabase.Msg.AUTHOR_ID, mCurrentMsgId);
-                    Uri uri = MyProvider.getTimelineMsgUri(ma.getUserId(), messageList.getTimelineType(), true, mCurrentMsgId);
-                    Cursor cursor = null;
+                    if (md.ma == null) {
+                        break;
+                    }
                     try {
-                        cursor = getContext().getContentResolver().query(uri, new String[] {
-                                MyDatabase.Msg.MSG_ID, MyDatabase.Msg.BODY
-                        }, null, null, null);
-                        if (cursor != null && cursor.moveToFirst()) {
-        
-                            StringBuilder subject = new StringBuilder();
-                            StringBuilder text = new StringBuilder();
-                            String msgBody = cursor.getString(cursor.getColumnIndex(MyDatabase.Msg.BODY));
-        
-                            subject.append(getContext().getText(ma.alternativeTermForResourceId(R.string.message)));
-                            subject.append(" - " + msgBody);
-                            int maxlength = 80;
-                            if (subject.length() > maxlength) {
-                                subject.setLength(maxlength);
-                                // Truncate at the last space
-                                subject.setLength(subject.lastIndexOf(" "));
-                                subject.append("...");
-                            }
-        
-                            text.append(msgBody);
-                            text.append("\n-- \n" + userName);
-                            text.append("\n URL: " + ma.messagePermalink(userName, 
-                                    cursor.getLong(cursor.getColumnIndex(MyDatabase.Msg.MSG_ID))));
-                            
-                            Intent share = new Intent(android.content.Intent.ACTION_SEND); 
-                            share.setType("text/plain"); 
-                            share.putExtra(Intent.EXTRA_SUBJECT, subject.toString()); 
-                            share.putExtra(Intent.EXTRA_TEXT, text.toString()); 
-                            messageList.getActivity().startActivity(Intent.createChooser(share, getContext().getText(R.string.menu_item_share)));
+                        StringBuilder subject = new StringBuilder();
+                        StringBuilder text = new StringBuilder();
+                        String msgBody = md.body;
+
+                        subject.append(getContext().getText(ma.alternativeTermForResourceId(R.string.message)));
+                        subject.append(" - " + msgBody);
+                        int maxlength = 80;
+                        if (subject.length() > maxlength) {
+                            subject.setLength(maxlength);
+                            // Truncate at the last space
+                            subject.setLength(subject.lastIndexOf(" "));
+                            subject.append("...");
                         }
+
+                        text.append(msgBody);
+                        text.append("\n-- \n" + md.authorName);
+                        text.append("\n URL: " + ma.messagePermalink(md.authorName, mCurrentMsgId));
+
+                        Intent share = new Intent(android.content.Intent.ACTION_SEND); 
+                        share.setType("text/plain"); 
+                        share.putExtra(Intent.EXTRA_SUBJECT, subject.toString()); 
+                        share.putExtra(Intent.EXTRA_TEXT, text.toString()); 
+                        messageList.getActivity().startActivity(Intent.createChooser(share, getContext().getText(R.string.menu_item_share)));
                     } catch (Exception e) {
                         MyLog.e(this, "onContextItemSelected", e);
                         return false;
-                    } finally {
-                        DbUtils.closeSilently(cursor);
                     }
                     return true;
                 case SENDER_MESSAGES:
-                    senderId = MyProvider.msgIdToUserId(MyDatabase.Msg.SENDER_ID, mCurrentMsgId);
                     if (senderId != 0) {
                         /**
                          * We better switch to the account selected for this message in order not to
@@ -345,7 +413,6 @@ public class MessageContextMenu implements OnCreateContextMenuListener {
                     }
                     break;
                 case AUTHOR_MESSAGES:
-                    authorId = MyProvider.msgIdToUserId(MyDatabase.Msg.AUTHOR_ID, mCurrentMsgId);
                     if (authorId != 0) {
                         /**
                          * We better switch to the account selected for this message in order not to
@@ -357,19 +424,15 @@ public class MessageContextMenu implements OnCreateContextMenuListener {
                     }
                     break;
                 case FOLLOW_SENDER:
-                    senderId = MyProvider.msgIdToUserId(MyDatabase.Msg.SENDER_ID, mCurrentMsgId);
                     MyServiceManager.sendCommand( new CommandData(CommandEnum.FOLLOW_USER, ma.getAccountName(), senderId));
                     return true;
                 case STOP_FOLLOWING_SENDER:
-                    senderId = MyProvider.msgIdToUserId(MyDatabase.Msg.SENDER_ID, mCurrentMsgId);
                     MyServiceManager.sendCommand( new CommandData(CommandEnum.STOP_FOLLOWING_USER, ma.getAccountName(), senderId));
                     return true;
                 case FOLLOW_AUTHOR:
-                    authorId = MyProvider.msgIdToUserId(MyDatabase.Msg.AUTHOR_ID, mCurrentMsgId);
                     MyServiceManager.sendCommand( new CommandData(CommandEnum.FOLLOW_USER, ma.getAccountName(), authorId));
                     return true;
                 case STOP_FOLLOWING_AUTHOR:
-                    authorId = MyProvider.msgIdToUserId(MyDatabase.Msg.AUTHOR_ID, mCurrentMsgId);
                     MyServiceManager.sendCommand( new CommandData(CommandEnum.STOP_FOLLOWING_USER, ma.getAccountName(), authorId));
                     return true;
                 case ACT_AS:
@@ -25,12 +25,16 @@ import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.MyDatabase;
+import org.andstatus.app.data.MsgStatus;
 import org.andstatus.app.data.MyProvider;
+import org.andstatus.app.data.Outbox;
 import org.andstatus.app.data.TimelineTypeEnum;
 
 
 /**
- * Helper class for the message context menu creation 
+ * Helper class for the message context menu creation.
+ * Everything the menu needs is loaded by one query, so it may be done in a background thread
+ * and then used for the life of the menu
  * @author yvolk@yurivolkov.com
  */
 class MessageDataForContextMenu {
@@ -39,8 +43,21 @@ class MessageDataForContextMenu {
      */
     public MyAccount ma = null;
     
+    final long msgId;
+    /** Parameters of the request, which this data was loaded for */
+    final long userIdForThisMessage;
+    final long preferredOtherUserId;
+
     public String body = "";
+    /** {@link MyDatabase.User#USERNAME} of the sender */
+    String senderName = "";
+    String authorName = "";
     boolean isDirect = false;
+    long recipientId = 0;
+    long inReplyToMsgId = 0;
+    /** The message was not delivered yet, so it can't be replied to, favorited etc., see {@link Outbox} */
+    boolean isPending = false;
+    MsgStatus status = MsgStatus.LOADED;
     long authorId = 0;
     long senderId = 0;
     boolean favorited = false;
@@ -58,7 +75,58 @@ class MessageDataForContextMenu {
      */
     boolean canUseSecondAccountInsteadOfFirst = false;
     
+    /**
+     * Loads the data and, if allowed and possible, the data for the current account instead of the first one
+     */
+    static MessageDataForContextMenu load(Context context, long userIdForThisMessage, long preferredOtherUserId,
+            TimelineTypeEnum timelineType, long msgId, boolean mayUseSecondAccount) {
+        MessageDataForContextMenu md = new MessageDataForContextMenu(context, userIdForThisMessage,
+                preferredOtherUserId, timelineType, msgId);
+        if (mayUseSecondAccount && md.canUseSecondAccountInsteadOfFirst) {
+            MessageDataForContextMenu md2 = new MessageDataForContextMenu(context, preferredOtherUserId, 0,
+                    timelineType, msgId);
+            if (md2.ma != null) {
+                return md2.forRequest(userIdForThisMessage, preferredOtherUserId);
+            }
+        }
+        return md;
+    }
+
+    private MessageDataForContextMenu forRequest(long userIdForThisMessage, long preferredOtherUserId) {
+        MessageDataForContextMenu md = new MessageDataForContextMenu(msgId, userIdForThisMessage, preferredOtherUserId);
+        md.ma = ma;
+        md.body = body;
+        md.senderName = senderName;
+        md.authorName = authorName;
+        md.isDirect = isDirect;
+        md.recipientId = recipientId;
+        md.inReplyToMsgId = inReplyToMsgId;
+        md.isPending = isPending;
+        md.status = status;
+        md.authorId = authorId;
+        md.senderId = senderId;
+        md.favorited = favorited;
+        md.reblogged = reblogged;
+        md.senderFollowed = senderFollowed;
+        md.authorFollowed = authorFollowed;
+        md.isSender = isSender;
+        md.isAuthor = isAuthor;
+        return md;
+    }
+
+    private MessageDataForContextMenu(long msgId, long userIdForThisMessage, long preferredOtherUserId) {
+        this.msgId = msgId;
+        this.userIdForThisMessage = userIdForThisMessage;
+        this.preferredOtherUserId = preferredOtherUserId;
+    }
+
+    boolean isFor(long msgId, long userIdForThisMessage, long preferredOtherUserId) {
+        return this.msgId == msgId && this.userIdForThisMessage == userIdForThisMessage
+                && this.preferredOtherUserId == preferredOtherUserId;
+    }
+
     public MessageDataForContextMenu(Context context, long userIdForThisMessage, long preferredOtherUserId, TimelineTypeEnum timelineType, long msgId) {
+        this(msgId, userIdForThisMessage, preferredOtherUserId);
         ma = MyContextHolder.get().persistentAccounts().getAccountWhichMayBeLinkedToThisMessage(msgId, userIdForThisMessage,
                 preferredOtherUserId);
         if (ma == null) {
@@ -73,12 +141,21 @@ class MessageDataForContextMenu {
                     BaseColumns._ID, MyDatabase.Msg.BODY, MyDatabase.Msg.SENDER_ID,
                     MyDatabase.Msg.AUTHOR_ID, MyDatabase.MsgOfUser.FAVORITED,
                     MyDatabase.Msg.RECIPIENT_ID,
+                    MyDatabase.Msg.IN_REPLY_TO_MSG_ID,
+                    MyDatabase.Msg.MSG_OID,
+                    MyDatabase.Msg.MSG_STATUS,
                     MyDatabase.MsgOfUser.REBLOGGED,
                     MyDatabase.FollowingUser.SENDER_FOLLOWED,
-                    MyDatabase.FollowingUser.AUTHOR_FOLLOWED
+                    MyDatabase.FollowingUser.AUTHOR_FOLLOWED,
+                    MyDatabase.User.SENDER_NAME,
+                    MyDatabase.User.AUTHOR_NAME
             }, null, null, null);
             if (cursor != null && cursor.moveToFirst()) {
                 isDirect = !cursor.isNull(cursor.getColumnIndex(MyDatabase.Msg.RECIPIENT_ID));
+                recipientId = cursor.getLong(cursor.getColumnIndex(MyDatabase.Msg.RECIPIENT_ID));
+                inReplyToMsgId = cursor.getLong(cursor.getColumnIndex(MyDatabase.Msg.IN_REPLY_TO_MSG_ID));
+                isPending = Outbox.isPending(cursor.getString(cursor.getColumnIndex(MyDatabase.Msg.MSG_OID)));
+                status = MsgStatus.load(cursor.getInt(cursor.getColumnIndex(MyDatabase.Msg.MSG_STATUS)));
                 authorId = cursor.getLong(cursor.getColumnIndex(MyDatabase.Msg.AUTHOR_ID));
                 senderId = cursor.getLong(cursor.getColumnIndex(MyDatabase.Msg.SENDER_ID));
                 favorited = cursor.getInt(cursor.getColumnIndex(MyDatabase.MsgOfUser.FAVORITED)) == 1;
@@ -94,6 +171,8 @@ class MessageDataForContextMenu {
                 isAuthor = (ma.getUserId() == authorId);
 
                 body = cursor.getString(cursor.getColumnIndex(MyDatabase.Msg.BODY));
+                senderName = nonNull(cursor.getString(cursor.getColumnIndex(MyDatabase.User.SENDER_NAME)));
+                authorName = nonNull(cursor.getString(cursor.getColumnIndex(MyDatabase.User.AUTHOR_NAME)));
 
                 if ( timelineType != TimelineTypeEnum.FOLLOWING_USER 
                         && !isDirect && !favorited && !reblogged && !isSender && !senderFollowed && !authorFollowed
@@ -108,4 +187,8 @@ class MessageDataForContextMenu {
             DbUtils.closeSilently(cursor);
         }
     }
+
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
 }
@@ -22,6 +22,7 @@ import org.andstatus.app.account.MyAccount.CredentialsVerificationStatus;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.data.MyDatabase;
 import org.andstatus.app.data.MyProvider;
+import org.andstatus.app.data.Outbox;
 import org.andstatus.app.data.TimelineTypeEnum;
 import org.andstatus.app.net.Connection.ApiRoutineEnum;
 import org.andstatus.app.service.CommandData;
@@ -334,7 +335,10 @@ class MessageEditor {
             Toast.makeText(messageList.getActivity(), R.string.message_is_too_long,
                     Toast.LENGTH_SHORT).show();
         } else {
-            CommandData commandData = CommandData.updateStatus(mAccount.getAccountName(), status, mReplyToId, mRecipientId);
+            // The message is shown in the timeline at once and is delivered in the background
+            long pendingMsgId = Outbox.addPending(mAccount, status, mReplyToId, mRecipientId);
+            CommandData commandData = CommandData.updateStatus(mAccount.getAccountName(), status, mReplyToId,
+                    mRecipientId, pendingMsgId);
             MyServiceManager.sendCommand(commandData);
 
             // Let's assume that everything will be Ok
@@ -66,7 +66,6 @@ import org.andstatus.app.data.MyDatabase.User;
 import org.andstatus.app.data.MyProvider;
 import org.andstatus.app.data.TimelineSearchSuggestionProvider;
 import org.andstatus.app.data.TimelineTypeEnum;
-import org.andstatus.app.data.TimelineViewBinder;
 import org.andstatus.app.net.Connection.ApiRoutineEnum;
 import org.andstatus.app.service.CommandData;
 import org.andstatus.app.service.CommandEnum;
@@ -76,9 +75,9 @@ import org.andstatus.app.service.MyServiceManager;
 import org.andstatus.app.service.MyServiceReceiver;
 import org.andstatus.app.support.android.v11.app.MyLoader;
 import org.andstatus.app.support.android.v11.app.MyLoaderManager;
-import org.andstatus.app.support.android.v11.widget.MySimpleCursorAdapter;
 import org.andstatus.app.util.InstanceId;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.RelativeTimeTicker;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -86,7 +85,7 @@ import java.util.List;
 /**
  * @author yvolk@yurivolkov.com, torgny.bjers
  */
-public class TimelineActivity extends ListActivity implements MyServiceListener, OnScrollListener, OnItemClickListener, ActionableMessageList, MyLoaderManager.LoaderCallbacks<Cursor> {
+public class TimelineActivity extends ListActivity implements MyServiceListener, OnScrollListener, OnItemClickListener, ActionableMessageList, MyLoaderManager.LoaderCallbacks<Cursor>, RelativeTimeTicker.Listener {
     private static final int DIALOG_ID_TIMELINE_TYPE = 9;
 
     private static final String KEY_LAST_POSITION = "last_position_";
@@ -168,6 +167,8 @@ public class TimelineActivity extends ListActivity implements MyServiceListener,
 
     private static final int LOADER_ID = 1;
     private MyLoaderManager<Cursor> loaderManager = null;
+
+    private final AvatarPrefetcher avatarPrefetcher = new AvatarPrefetcher();
     
     private boolean isLoading() {
         return loadingLayout.getVisibility() == View.VISIBLE;
@@ -341,6 +342,14 @@ public class TimelineActivity extends ListActivity implements MyServiceListener,
         if (!isFinishing) {
             serviceConnector.registerReceiver(this);
             loaderManager.onResumeActivity(LOADER_ID);
+            RelativeTimeTicker.register(this);
+        }
+    }
+
+    @Override
+    public void onRelativeTimeTick() {
+        if (getListAdapter() instanceof TimelineAdapter) {
+            ((TimelineAdapter) getListAdapter()).refreshDetails(getListView());
         }
     }
 
@@ -553,30 +562,20 @@ public class TimelineActivity extends ListActivity implements MyServiceListener,
 
     /**
      * Returns the position of the item with the given ID.
+     * The index of positions is built by the loader for the cursor, which is shown
      * 
      * @param searchedId the ID of the item whose position in the list is to be
      *            returned.
      * @return the position in the list or -1 if the item was not found
      */
     private int listPosForId(long searchedId) {
-        int listPos;
-        boolean itemFound = false;
-        ListView lv = getListView();
-        int itemCount = lv.getCount();
-        if (MyLog.isLoggable(this, MyLog.VERBOSE)) {
-            MyLog.v(this, "item count: " + itemCount);
-        }
-        for (listPos = 0; !itemFound && (listPos < itemCount); listPos++) {
-            long itemId = lv.getItemIdAtPosition(listPos);
-            if (itemId == searchedId) {
-                itemFound = true;
-                break;
-            }
-        }
-
-        if (!itemFound) {
+        int listPos = listParameters.rows.getPosition(searchedId);
+        if (listPos >= getListView().getCount()) {
             listPos = -1;
         }
+        if (MyLog.isLoggable(this, MyLog.VERBOSE)) {
+            MyLog.v(this, "listPosForId " + searchedId + " -> " + listPos + "; " + listParameters.rows);
+        }
         return listPos;
     }
 
@@ -596,6 +595,7 @@ public class TimelineActivity extends ListActivity implements MyServiceListener,
         }
         serviceConnector.unregisterReceiver(this);
         loaderManager.onPauseActivity(LOADER_ID);
+        RelativeTimeTicker.unregister(this);
 
         if (positionRestored) {
             // Get rid of the "fast scroll thumb"
@@ -842,6 +842,10 @@ public class TimelineActivity extends ListActivity implements MyServiceListener,
                 queryListData(true);
             }
         }
+        if (positionRestored && MyPreferences.showAvatars() && getListAdapter() != null) {
+            avatarPrefetcher.onScroll(((CursorAdapter) getListAdapter()).getCursor(),
+                    firstVisibleItem, visibleItemCount);
+        }
     }
 
     @Override
@@ -1198,8 +1202,10 @@ public class TimelineActivity extends ListActivity implements MyServiceListener,
         columnNames.add(MsgOfUser.FAVORITED);
         columnNames.add(Msg.CREATED_DATE);
         columnNames.add(User.LINKED_USER_ID);
+        columnNames.add(Msg.MSG_STATUS);
+        // To find rows of the Users, whose name or avatar changed, see TimelineRows
+        columnNames.add(Msg.AUTHOR_ID);
         if (MyPreferences.showAvatars()) {
-            columnNames.add(Msg.AUTHOR_ID);
             columnNames.add(MyDatabase.Avatar.FILE_NAME);
         }
         return columnNames.toArray(new String[]{});
@@ -1231,16 +1237,40 @@ public class TimelineActivity extends ListActivity implements MyServiceListener,
     private void changeListContent(TimelineListParameters params, Cursor cursor) {
         if (!params.cancelled && cursor != null && !isFinishing) {
             MyLog.v(this, "On changing Cursor");
+            if (params.delta != null && changeListContentByDelta(params, cursor)) {
+                return;
+            }
             // This check will prevent continuous loading...
             noMoreItems = params.incrementallyLoadingPages &&
                     cursor.getCount() <= getListAdapter().getCount();
             saveListPosition();
-            ((CursorAdapter) getListAdapter()).changeCursor(cursor);
+            ((TimelineAdapter) getListAdapter()).changeCursor(cursor, params.rows);
+            avatarPrefetcher.reset();
             listParameters = params;
             restoreListPosition();
         }
     }
     
+    /**
+     * Keeps the same row at the same place on the screen
+     * @return false if the position couldn't be mapped and should be restored the usual way
+     */
+    private boolean changeListContentByDelta(TimelineListParameters params, Cursor cursor) {
+        ListView list = getListView();
+        int firstVisible = list.getFirstVisiblePosition();
+        View firstView = list.getChildAt(0);
+        int top = firstView == null ? 0 : firstView.getTop();
+        int position = params.delta.newPosition(firstVisible);
+        if (position < 0) {
+            return false;
+        }
+        ((TimelineAdapter) getListAdapter()).changeCursor(cursor, params.rows);
+        avatarPrefetcher.reset();
+        listParameters = params;
+        list.setSelectionFromTop(position, top);
+        return true;
+    }
+
     private void launchReloadIfNeeded(TimelineTypeEnum timelineToReload) {
         switch (timelineToReload) {
             case ALL:
@@ -1364,41 +1394,7 @@ public class TimelineActivity extends ListActivity implements MyServiceListener,
     }
 
     private void createListAdapter(Cursor cursor) {
-        List<String> columnNames = new ArrayList<String>();
-        List<Integer> viewIds = new ArrayList<Integer>();
-        columnNames.add(MyDatabase.User.AUTHOR_NAME);
-        viewIds.add(R.id.message_author);
-        columnNames.add(MyDatabase.Msg.BODY);
-        viewIds.add(R.id.message_body);
-        columnNames.add(MyDatabase.Msg.CREATED_DATE);
-        viewIds.add(R.id.message_details);
-        columnNames.add(MyDatabase.MsgOfUser.FAVORITED);
-        viewIds.add(R.id.message_favorited);
-        columnNames.add(MyDatabase.Msg._ID);
-        viewIds.add(R.id.id);
-        int listItemLayoutId = R.layout.message_basic;
-        if (MyPreferences.showAvatars()) {
-            listItemLayoutId = R.layout.message_avatar;
-            columnNames.add(MyDatabase.Avatar.FILE_NAME);
-            viewIds.add(R.id.avatar_image);
-        }
-        MySimpleCursorAdapter messageAdapter = new MySimpleCursorAdapter(TimelineActivity.this,
-                listItemLayoutId, cursor, columnNames.toArray(new String[]{}),
-                toIntArray(viewIds), 0);
-        messageAdapter.setViewBinder(new TimelineViewBinder());
-
-        setListAdapter(messageAdapter);
-    }
-    
-    /**
-     * See http://stackoverflow.com/questions/960431/how-to-convert-listinteger-to-int-in-java
-     */
-    private static int[] toIntArray(List<Integer> list){
-        int[] ret = new int[list.size()];
-        for(int i = 0;i < ret.length;i++) {
-            ret[i] = list.get(i);
-        }
-        return ret;
+        setListAdapter(new TimelineAdapter(TimelineActivity.this, cursor, MyPreferences.showAvatars()));
     }
 
     private static String notNullString(String string) {
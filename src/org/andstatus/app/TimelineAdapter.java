@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.CursorAdapter;
+import android.widget.ImageView;
+import android.widget.ListView;
+import android.widget.TextView;
+
+import org.andstatus.app.data.AvatarDrawable;
+import org.andstatus.app.data.TimelineRow;
+
+/**
+ * Shows Message items of a Timeline list. The values are taken from {@link TimelineRow}s,
+ * prepared by the loader, so binding a view doesn't parse or format anything.
+ * Rows, which were not prepared (e.g. of an empty cursor), are built here.
+ * @author yvolk@yurivolkov.com
+ */
+class TimelineAdapter extends CursorAdapter {
+    private final int layoutId;
+    private final boolean showAvatars;
+    private TimelineRows rows = TimelineRows.EMPTY;
+    /** Resolved once for the current cursor */
+    private TimelineRow.Columns columns = null;
+    private Cursor columnsCursor = null;
+
+    private static class ViewHolder {
+        TextView author;
+        TextView body;
+        TextView details;
+        ImageView favorited;
+        TextView id;
+        TextView linkedUserId;
+        ImageView avatar;
+        /** The row, which is shown in the view */
+        TimelineRow row;
+    }
+
+    TimelineAdapter(Context context, Cursor cursor, boolean showAvatars) {
+        // Requery is handled by the loader
+        super(context, cursor, false);
+        this.showAvatars = showAvatars;
+        layoutId = showAvatars ? R.layout.message_avatar : R.layout.message_basic;
+    }
+
+    /**
+     * Use this instead of {@link #changeCursor(Cursor)}.
+     * Cursors are closed by the loader, not here: the previous cursor may be a source
+     * of the new {@link MergedTimelineCursor}
+     * @param rows Prepared rows of the cursor
+     */
+    void changeCursor(Cursor cursor, TimelineRows rows) {
+        this.rows = rows == null ? TimelineRows.EMPTY : rows;
+        Cursor current = getCursor();
+        if (cursor != null && current instanceof LoaderOwnedCursor
+                && ((LoaderOwnedCursor) current).cursor == cursor) {
+            notifyDataSetChanged();
+            return;
+        }
+        changeCursor(cursor == null ? null : new LoaderOwnedCursor(cursor));
+    }
+
+    /**
+     * Keeps {@link CursorAdapter#changeCursor(Cursor)} from closing the cursor of the loader
+     */
+    private static class LoaderOwnedCursor extends CursorWrapper {
+        private final Cursor cursor;
+
+        LoaderOwnedCursor(Cursor cursor) {
+            super(cursor);
+            this.cursor = cursor;
+        }
+
+        @Override
+        public void close() {
+            // Empty
+        }
+    }
+
+    @Override
+    public View newView(Context context, Cursor cursor, ViewGroup parent) {
+        View view = LayoutInflater.from(context).inflate(layoutId, parent, false);
+        ViewHolder holder = new ViewHolder();
+        holder.author = (TextView) view.findViewById(R.id.message_author);
+        holder.body = (TextView) view.findViewById(R.id.message_body);
+        holder.details = (TextView) view.findViewById(R.id.message_details);
+        holder.favorited = (ImageView) view.findViewById(R.id.message_favorited);
+        holder.id = (TextView) view.findViewById(R.id.id);
+        holder.linkedUserId = (TextView) view.findViewById(R.id.linked_user_id);
+        if (showAvatars) {
+            holder.avatar = (ImageView) view.findViewById(R.id.avatar_image);
+        }
+        view.setTag(holder);
+        return view;
+    }
+
+    @Override
+    public void bindView(View view, Context context, Cursor cursor) {
+        TimelineRow row = getRow(context, cursor);
+        ViewHolder holder = (ViewHolder) view.getTag();
+        holder.row = row;
+        holder.author.setText(row.authorName);
+        holder.body.setText(row.body);
+        holder.details.setText(row.getDetails(context));
+        holder.favorited.setImageResource(row.favorited ? android.R.drawable.star_on
+                : android.R.drawable.star_off);
+        holder.id.setText(Long.toString(row.msgId));
+        holder.linkedUserId.setText(Long.toString(row.linkedUserId));
+        if (holder.avatar != null) {
+            new AvatarDrawable(row.authorId, row.avatarFileName).showIn(holder.avatar);
+        }
+    }
+
+    /**
+     * Updates relative time of the visible rows only, without rebinding them
+     */
+    void refreshDetails(ListView list) {
+        for (int index = 0; index < list.getChildCount(); index++) {
+            Object tag = list.getChildAt(index).getTag();
+            if (tag instanceof ViewHolder) {
+                ViewHolder holder = (ViewHolder) tag;
+                if (holder.row != null) {
+                    holder.details.setText(holder.row.getDetails(list.getContext()));
+                }
+            }
+        }
+    }
+
+    private TimelineRow getRow(Context context, Cursor cursor) {
+        if (columnsCursor != cursor) {
+            columns = new TimelineRow.Columns(cursor);
+            columnsCursor = cursor;
+        }
+        TimelineRow row = rows.get(columns.getMsgId(cursor), columns.getLinkedUserId(cursor));
+        if (row == null) {
+            row = TimelineRow.fromCursor(context, cursor, columns);
+        }
+        return row;
+    }
+}
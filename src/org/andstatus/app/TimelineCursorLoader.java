@@ -26,6 +26,7 @@ import net.jcip.annotations.GuardedBy;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.LatestTimelineItem;
+import org.andstatus.app.data.MsgChangeLog;
 import org.andstatus.app.data.MyDatabase;
 import org.andstatus.app.data.MyProvider;
 import org.andstatus.app.data.MyDatabase.User;
@@ -49,15 +50,21 @@ public class TimelineCursorLoader extends MyLoader<Cursor> implements MyServiceL
 
     private int instanceId = InstanceId.next();
     private MyServiceReceiver serviceConnector;
+    /** Notified by {@link org.andstatus.app.data.TimelineChangeNotifier} about changes of this timeline only */
+    private final ForceLoadContentObserver contentObserver;
+    private boolean contentObserverRegistered = false;
 
     private final Object asyncLoaderLock = new Object();
     @GuardedBy("asyncLoaderLock")
     private AsyncLoader asyncLoader = null;
+    /** {@link MsgChangeLog} version, when the current result was queried */
+    private volatile long loadedVersion = 0;
 
     public TimelineCursorLoader(TimelineListParameters params) {
         super(MyContextHolder.get().context());
         this.mParams = params;
         serviceConnector = new MyServiceReceiver(this);
+        contentObserver = new ForceLoadContentObserver();
     }
 
     @Override
@@ -67,6 +74,7 @@ public class TimelineCursorLoader extends MyLoader<Cursor> implements MyServiceL
             MyLog.v(this, method + ", " + getParams());
         }
         serviceConnector.registerReceiver(getContext());
+        registerContentObserver();
         if (mayReuseResult()) {
             if (MyLog.isLoggable(this, MyLog.VERBOSE)) MyLog.v(this, method + " reusing result");
             deliverResultsAndClean(mCursor);
@@ -77,6 +85,21 @@ public class TimelineCursorLoader extends MyLoader<Cursor> implements MyServiceL
         }
     }
 
+    private void registerContentObserver() {
+        if (!contentObserverRegistered && getParams().contentUri != null) {
+            getContext().getContentResolver().registerContentObserver(getParams().contentUri, true,
+                    contentObserver);
+            contentObserverRegistered = true;
+        }
+    }
+
+    private void unregisterContentObserver() {
+        if (contentObserverRegistered) {
+            getContext().getContentResolver().unregisterContentObserver(contentObserver);
+            contentObserverRegistered = false;
+        }
+    }
+
     private boolean taskIsNotRunning() {
         boolean isNotRunning = true;
         synchronized (asyncLoaderLock) {
@@ -100,13 +123,20 @@ public class TimelineCursorLoader extends MyLoader<Cursor> implements MyServiceL
     }
     
     private void restartLoader() {
+        restartLoader(null);
+    }
+
+    /**
+     * @param delta If not null, load the changes only
+     */
+    private void restartLoader(TimelineDelta delta) {
         final String method = "restartLoader";
         boolean ended = false;
         if (MyLog.isLoggable(this, MyLog.VERBOSE)) MyLog.v(this, method +  ", status:" + getAsyncLoaderStatus());
         synchronized (asyncLoaderLock) {
             if (cancelAsyncTask(method)) {
                 try {
-                    asyncLoader = new AsyncLoader();
+                    asyncLoader = new AsyncLoader(delta);
                     asyncLoader.execute();
                 } catch (Exception e) {
                     MyLog.e(this, method, e);
@@ -124,7 +154,10 @@ public class TimelineCursorLoader extends MyLoader<Cursor> implements MyServiceL
         Cursor cursorPrev = null;
         try {
             if (this.mCursor != cursor) {
-                cursorPrev = this.mCursor; 
+                if (!(cursor instanceof MergedTimelineCursor) 
+                        || !((MergedTimelineCursor) cursor).owns(this.mCursor)) {
+                    cursorPrev = this.mCursor;
+                }
                 this.mCursor = cursor;
             }
             if (getParams().cancelled || cursor == null) {
@@ -187,14 +220,21 @@ public class TimelineCursorLoader extends MyLoader<Cursor> implements MyServiceL
         if (isStarted()
                 && System.currentTimeMillis() - previousRequeryTime > MIN_LIST_REQUERY_MILLISECONDS) {
             previousRequeryTime = System.currentTimeMillis();
-            getParams().reQuery = true;
-            onStartLoading();
+            TimelineDelta delta = getParams().loadOneMorePage || !taskIsNotRunning() ? null
+                    : TimelineDelta.newInstance(mCursor, loadedVersion);
+            if (delta == null) {
+                getParams().reQuery = true;
+                onStartLoading();
+            } else {
+                restartLoader(delta);
+            }
         }
     }
     
     @Override
     protected void onReset() {
         serviceConnector.unregisterReceiver(getContext());
+        unregisterContentObserver();
         disposeResult();
         cancelAsyncTask("onReset");
     }
@@ -208,13 +248,33 @@ public class TimelineCursorLoader extends MyLoader<Cursor> implements MyServiceL
      * @author yvolk@yurivolkov.com
      */
     private class AsyncLoader extends AsyncTask<Void, Void, Cursor> {
-        
+        private final TimelineDelta delta;
+
+        AsyncLoader(TimelineDelta delta) {
+            this.delta = delta;
+        }
+
         @Override
         protected Cursor doInBackground(Void... voidParams) {
             markStart();
+            long version = MsgChangeLog.getVersion();
+            if (delta != null) {
+                Cursor cursor = delta.load(getParams());
+                if (cursor != null) {
+                    getParams().delta = delta;
+                    getParams().rows = delta.loadRows(getContext(), getParams().rows);
+                    loadedVersion = version;
+                    return cursor;
+                }
+            }
             prepareQueryInBackground();
             Cursor cursor = queryDatabase();
             checkIfReloadIsNeeded(cursor);
+            if (!isCancelled()) {
+                getParams().rows = TimelineRows.load(getContext(), cursor, getParams().rows,
+                        getParams().rows.getChangedSince(loadedVersion));
+            }
+            loadedVersion = version;
             return cursor;
         }
 
@@ -222,6 +282,7 @@ public class TimelineCursorLoader extends MyLoader<Cursor> implements MyServiceL
             getParams().startTime = System.nanoTime();
             getParams().cancelled = false;
             getParams().timelineToReload = TimelineTypeEnum.UNKNOWN;
+            getParams().delta = null;
             
             if (MyLog.isLoggable(this, MyLog.VERBOSE)) {
                 MyLog.v(this, (TextUtils.isEmpty(getParams().searchQuery) ? ""
@@ -299,6 +360,13 @@ public class TimelineCursorLoader extends MyLoader<Cursor> implements MyServiceL
 
         private void singleEnd(Cursor result) {
             logExecutionStats(result);
+            if (result != null && result == mCursor && !getParams().cancelled) {
+                // Nothing changed, the list already shows this cursor
+                synchronized (asyncLoaderLock) {
+                    asyncLoader = null;
+                }
+                return;
+            }
             TimelineCursorLoader.this.deliverResultsAndClean(result);
         }
         
@@ -316,6 +384,10 @@ public class TimelineCursorLoader extends MyLoader<Cursor> implements MyServiceL
                     }
                     text.append(", " + cursorInfo);
                 }
+                if (getParams().delta != null) {
+                    text.append(", " + getParams().delta);
+                }
+                text.append(", " + getParams().rows);
                 text.append(", " + Double.valueOf((System.nanoTime() - getParams().startTime)/1.0E6).longValue() + " ms");
                 MyLog.v(this, text.toString());
             }
@@ -327,9 +399,8 @@ public class TimelineCursorLoader extends MyLoader<Cursor> implements MyServiceL
         final String method = "onReceive";
         MyLog.v(this, method + ": " + commandData);
         switch (commandData.getCommand()) {
-            case AUTOMATIC_UPDATE:
-            case FETCH_TIMELINE:
             case GET_STATUS:
+            case GET_CONVERSATION:
             case SEARCH_MESSAGE:
                 if (commandData.getResult().getDownloadedCount() > 0) {
                     if (MyLog.isLoggable(this, MyLog.VERBOSE)) {
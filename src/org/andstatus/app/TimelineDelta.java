@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.text.TextUtils;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MsgChangeLog;
+import org.andstatus.app.data.MyDatabase.Msg;
+import org.andstatus.app.data.MyProvider;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SelectionAndArgs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Incremental update of the loaded timeline: only messages, which are not older than the top one,
+ * and messages, which changed since the timeline was loaded (see {@link MsgChangeLog}), are queried.
+ * Sent dates may be equal (e.g. they have seconds precision), so loaded messages with the date of the top one
+ * are queried again and are not duplicated.
+ * They are merged with the loaded rows into a {@link MergedTimelineCursor}.
+ * The result also maps old positions of the rows to the new ones, so the list may keep its scroll position.
+ * Rows are matched by message id, so a timeline with several rows of the same message
+ * (a combined timeline of several Users) is reloaded as a whole.
+ * @author yvolk@yurivolkov.com
+ */
+class TimelineDelta {
+    /** More changes are faster to get by reloading the whole timeline */
+    static final int MAX_CHANGED_MESSAGES = 100;
+    /** Don't let the chain of merged cursors grow infinitely */
+    static final int MAX_DEPTH = 10;
+
+    private final Cursor oldCursor;
+    /** Message ids of the old cursor, by position. Taken in the UI thread, as the cursor is used there */
+    private final long[] oldIds;
+    private final long versionFrom;
+
+    // Results
+    volatile int added = 0;
+    volatile int changed = 0;
+    volatile int removed = 0;
+    /** -1 for removed rows */
+    private volatile int[] oldToNew = new int[0];
+    /** Not empty after a successful merge */
+    private volatile Set<Long> changedIds = new HashSet<Long>();
+    /** Queried parts of the merged cursor, which are not shown yet */
+    private volatile Cursor[] loadedCursors = new Cursor[0];
+    /** Message ids of the merged cursor, by position */
+    private volatile long[] mergedIds = new long[0];
+
+    private TimelineDelta(Cursor oldCursor, long[] oldIds, long versionFrom) {
+        this.oldCursor = oldCursor;
+        this.oldIds = oldIds;
+        this.versionFrom = versionFrom;
+    }
+
+    /**
+     * Should be called in the UI thread
+     * @return null if the delta cannot be loaded for this cursor, e.g. it has several rows of the same message
+     */
+    static TimelineDelta newInstance(Cursor oldCursor, long versionFrom) {
+        if (oldCursor == null || oldCursor.isClosed() || oldCursor.getCount() == 0 || versionFrom == 0
+                || (oldCursor instanceof MergedTimelineCursor
+                        && ((MergedTimelineCursor) oldCursor).getDepth() >= MAX_DEPTH)) {
+            return null;
+        }
+        int idColumnIndex = oldCursor.getColumnIndex(Msg._ID);
+        if (idColumnIndex < 0) {
+            return null;
+        }
+        long[] oldIds = new long[oldCursor.getCount()];
+        Set<Long> ids = new HashSet<Long>();
+        for (int position = 0; position < oldIds.length; position++) {
+            if (!oldCursor.moveToPosition(position)) {
+                return null;
+            }
+            oldIds[position] = oldCursor.getLong(idColumnIndex);
+            if (!ids.add(oldIds[position])) {
+                return null;
+            }
+        }
+        return new TimelineDelta(oldCursor, oldIds, versionFrom);
+    }
+
+    /**
+     * Should be called in a background thread
+     * @return The merged cursor, the old cursor if nothing changed,
+     *   null if the whole timeline needs to be reloaded
+     */
+    Cursor load(TimelineListParameters params) {
+        final String method = "loadDelta";
+        Set<Long> changedIds = params.rows.getChangedSince(versionFrom);
+        if (changedIds == null || changedIds.size() > MAX_CHANGED_MESSAGES) {
+            MyLog.v(this, method + "; changes are unknown or too many");
+            return null;
+        }
+        if (changedIds.isEmpty()) {
+            return oldCursor;
+        }
+        Cursor newRows = null;
+        Cursor changedRows = null;
+        boolean merged = false;
+        try {
+            long headSentDate = MyProvider.msgIdToLongColumnValue(Msg.SENT_DATE, oldIds[0]);
+            newRows = query(params, MyProvider.MSG_TABLE_ALIAS + "." + Msg.SENT_DATE + ">=?",
+                    new String[] {Long.toString(headSentDate)});
+            changedRows = query(params, MyProvider.MSG_TABLE_ALIAS + "." + Msg._ID
+                    + " IN (" + TextUtils.join(",", changedIds) + ")", null);
+            Cursor cursor = merge(newRows, changedRows, changedIds);
+            merged = cursor != null;
+            return cursor;
+        } finally {
+            if (!merged) {
+                DbUtils.closeSilently(newRows);
+                DbUtils.closeSilently(changedRows);
+            }
+        }
+    }
+
+    private static Cursor query(TimelineListParameters params, String selection, String[] selectionArgs) {
+        SelectionAndArgs sa = new SelectionAndArgs();
+        sa.addSelection(params.sa.selection, params.sa.selectionArgs);
+        sa.addSelection(selection, selectionArgs);
+        return MyContextHolder.get().context().getContentResolver().query(params.contentUri,
+                params.projection, sa.selection, sa.selectionArgs, getSortOrder(params));
+    }
+
+    /**
+     * @return The order of the full load, which the delta is merged into, without its limit
+     */
+    private static String getSortOrder(TimelineListParameters params) {
+        int index = params.sortOrder.indexOf(" LIMIT ");
+        return index < 0 ? params.sortOrder : params.sortOrder.substring(0, index);
+    }
+
+    private Cursor merge(Cursor newRows, Cursor changedRows, Set<Long> changedIds) {
+        if (newRows == null || changedRows == null) {
+            return null;
+        }
+        Map<Long, Integer> changedPositions = positionsOfIds(changedRows);
+        Map<Long, Integer> oldPositions = new HashMap<Long, Integer>();
+        for (int position = 0; position < oldIds.length; position++) {
+            oldPositions.put(oldIds[position], position);
+        }
+        Map<Long, Integer> newPositions = positionsOfIds(newRows);
+        if (changedPositions.size() < changedRows.getCount() || newPositions.size() < newRows.getCount()) {
+            MyLog.v(this, "Several rows of the same message");
+            return null;
+        }
+        for (Long id : changedPositions.keySet()) {
+            if (!oldPositions.containsKey(id) && !newPositions.containsKey(id)) {
+                MyLog.v(this, "Changed message " + id + " has no place in the loaded timeline");
+                return null;
+            }
+        }
+        int size = newRows.getCount() + oldIds.length;
+        List<Cursor> rowCursors = new ArrayList<Cursor>(size);
+        List<Integer> rowPositions = new ArrayList<Integer>(size);
+        List<Long> rowIds = new ArrayList<Long>(size);
+        for (int position = 0; position < newRows.getCount(); position++) {
+            rowCursors.add(newRows);
+            rowPositions.add(position);
+            rowIds.add(0L);
+        }
+        for (Map.Entry<Long, Integer> entry : newPositions.entrySet()) {
+            rowIds.set(entry.getValue(), entry.getKey());
+        }
+        int[] oldToNewMap = new int[oldIds.length];
+        int addedCount = newRows.getCount();
+        int changedCount = 0;
+        int removedCount = 0;
+        for (int position = 0; position < oldIds.length; position++) {
+            long id = oldIds[position];
+            if (newPositions.containsKey(id)) {
+                // The message moved to the top or it has the same sent date as the top one
+                oldToNewMap[position] = newPositions.get(id);
+                addedCount--;
+                if (changedIds.contains(id)) {
+                    changedCount++;
+                }
+            } else if (changedPositions.containsKey(id)) {
+                oldToNewMap[position] = rowCursors.size();
+                rowCursors.add(changedRows);
+                rowPositions.add(changedPositions.get(id));
+                rowIds.add(id);
+                changedCount++;
+            } else if (changedIds.contains(id)) {
+                // The message doesn't belong to this timeline any more
+                oldToNewMap[position] = -1;
+                removedCount++;
+            } else {
+                oldToNewMap[position] = rowCursors.size();
+                rowCursors.add(oldCursor);
+                rowPositions.add(position);
+                rowIds.add(id);
+            }
+        }
+        int[] positions = new int[rowPositions.size()];
+        long[] ids = new long[rowIds.size()];
+        for (int ind = 0; ind < positions.length; ind++) {
+            positions[ind] = rowPositions.get(ind);
+            ids[ind] = rowIds.get(ind);
+        }
+        List<Cursor> sources = new ArrayList<Cursor>();
+        sources.add(oldCursor);
+        sources.add(newRows);
+        sources.add(changedRows);
+        this.changedIds = changedIds;
+        loadedCursors = new Cursor[] {newRows, changedRows};
+        mergedIds = ids;
+        added = addedCount;
+        changed = changedCount;
+        removed = removedCount;
+        oldToNew = oldToNewMap;
+        return new MergedTimelineCursor(sources, rowCursors.toArray(new Cursor[rowCursors.size()]), positions);
+    }
+
+    private static Map<Long, Integer> positionsOfIds(Cursor cursor) {
+        Map<Long, Integer> positions = new HashMap<Long, Integer>();
+        int idColumnIndex = cursor.getColumnIndex(Msg._ID);
+        for (int position = 0; cursor.moveToPosition(position); position++) {
+            positions.put(cursor.getLong(idColumnIndex), position);
+        }
+        return positions;
+    }
+
+    /**
+     * Should be called in the background thread, which loaded the delta, before the merged cursor is delivered,
+     * because the old cursor is used by the UI thread.
+     * @return Rows of the merged cursor: the previous ones for not changed messages, new ones for the rest
+     */
+    TimelineRows loadRows(Context context, TimelineRows previous) {
+        if (loadedCursors.length == 0) {
+            // Nothing was merged, the old cursor stays
+            return previous;
+        }
+        return TimelineRows.merge(context, previous, changedIds, mergedIds, loadedCursors);
+    }
+
+    /**
+     * @return The new position of the row, which was at this position before the merge.
+     *   The next row is taken for a removed one. -1 if unknown
+     */
+    int newPosition(int oldPosition) {
+        int[] map = oldToNew;
+        for (int position = Math.max(0, oldPosition); position < map.length; position++) {
+            if (map[position] >= 0) {
+                return map[position];
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return MyLog.formatKeyValue(this, "added:" + added + ", changed:" + changed + ", removed:" + removed);
+    }
+}
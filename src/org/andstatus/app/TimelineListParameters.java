@@ -49,6 +49,10 @@ class TimelineListParameters {
     volatile long startTime = 0;
     volatile boolean cancelled = false;
     volatile TimelineTypeEnum timelineToReload = TimelineTypeEnum.UNKNOWN;
+    /** Not null, if the last result was loaded incrementally */
+    volatile TimelineDelta delta = null;
+    /** Ready to show rows of the loaded messages */
+    volatile TimelineRows rows = TimelineRows.EMPTY;
     
     public boolean isEmpty() {
         return timelineType == TimelineTypeEnum.UNKNOWN;
@@ -64,7 +68,7 @@ class TimelineListParameters {
                 + contentUri + ", incrementallyLoadingPages=" + incrementallyLoadingPages
                 + ", rowsLimit=" + rowsLimit + ", lastItemId=" + lastItemId + ", sa=" + sa
                 + ", sortOrder=" + sortOrder + ", startTime=" + startTime + ", cancelled="
-                + cancelled + ", timelineToReload=" + timelineToReload + "]";
+                + cancelled + ", timelineToReload=" + timelineToReload + ", delta=" + delta + ", " + rows + "]";
     }
     
 }
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import org.andstatus.app.data.MsgChangeLog;
+import org.andstatus.app.data.TimelineRow;
+import org.andstatus.app.util.LongIntMap;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable {@link TimelineRow}s of a loaded timeline by message id and linked User id
+ * and positions of the messages in the loaded cursor.
+ * A combined timeline has a row of the same message for each of the Users, who have it
+ * in their timelines, and these rows differ (e.g. whether the message is favorited)
+ * @author yvolk@yurivolkov.com
+ */
+class TimelineRows {
+    static final TimelineRows EMPTY = new TimelineRows(Collections.<RowKey, TimelineRow>emptyMap(),
+            new LongIntMap(0), 0);
+
+    private final Map<RowKey, TimelineRow> rows;
+    /** Position of the first row of a message */
+    private final LongIntMap positions;
+    private final int reused;
+
+    private static final class RowKey {
+        private final long msgId;
+        private final long linkedUserId;
+
+        RowKey(long msgId, long linkedUserId) {
+            this.msgId = msgId;
+            this.linkedUserId = linkedUserId;
+        }
+
+        RowKey(TimelineRow row) {
+            this(row.msgId, row.linkedUserId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RowKey)) {
+                return false;
+            }
+            RowKey other = (RowKey) o;
+            return msgId == other.msgId && linkedUserId == other.linkedUserId;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (int) (msgId ^ (msgId >>> 32)) + (int) (linkedUserId ^ (linkedUserId >>> 32));
+        }
+    }
+
+    private TimelineRows(Map<RowKey, TimelineRow> rows, LongIntMap positions, int reused) {
+        this.rows = rows;
+        this.positions = positions;
+        this.reused = reused;
+    }
+
+    /**
+     * Builds rows for all messages of the cursor. Should be called in a background thread
+     * @param previous Rows of the previous load, these are reused for not changed messages
+     * @param changedIds Messages, which changed since the previous load, null if unknown
+     */
+    static TimelineRows load(Context context, Cursor cursor, TimelineRows previous, Set<Long> changedIds) {
+        Map<RowKey, TimelineRow> rows = new HashMap<RowKey, TimelineRow>();
+        LongIntMap positions = new LongIntMap(cursor == null || cursor.isClosed() ? 0 : cursor.getCount());
+        int reused = addRows(rows, positions, context, cursor, changedIds == null ? EMPTY : previous, changedIds);
+        return new TimelineRows(rows, positions, reused);
+    }
+
+    /**
+     * Reuses the previous rows of not changed messages and builds rows for the cursors,
+     * which are new parts of a merged timeline. Should be called in a background thread
+     * @param idsByPosition Message ids of the merged timeline
+     */
+    static TimelineRows merge(Context context, TimelineRows previous, Set<Long> changedIds,
+            long[] idsByPosition, Cursor... cursors) {
+        Map<RowKey, TimelineRow> rows = new HashMap<RowKey, TimelineRow>();
+        LongIntMap positions = new LongIntMap(idsByPosition.length);
+        for (int position = 0; position < idsByPosition.length; position++) {
+            putFirstPosition(positions, idsByPosition[position], position);
+        }
+        int reused = 0;
+        for (TimelineRow row : previous.rows.values()) {
+            if (!changedIds.contains(row.msgId)) {
+                rows.put(new RowKey(row), row.withCurrentTime(context));
+                reused++;
+            }
+        }
+        for (Cursor cursor : cursors) {
+            addRows(rows, null, context, cursor, EMPTY, changedIds);
+        }
+        return new TimelineRows(rows, positions, reused);
+    }
+
+    /**
+     * @param positions If not null, positions of the rows in the cursor are added here
+     */
+    private static int addRows(Map<RowKey, TimelineRow> rows, LongIntMap positions, Context context, Cursor cursor,
+            TimelineRows previous, Set<Long> changedIds) {
+        int reused = 0;
+        if (cursor == null || cursor.isClosed()) {
+            return reused;
+        }
+        TimelineRow.Columns columns = new TimelineRow.Columns(cursor);
+        for (int position = 0; cursor.moveToPosition(position); position++) {
+            long msgId = columns.getMsgId(cursor);
+            long linkedUserId = columns.getLinkedUserId(cursor);
+            if (positions != null) {
+                putFirstPosition(positions, msgId, position);
+            }
+            TimelineRow row = changedIds != null && changedIds.contains(msgId) ? null
+                    : previous.get(msgId, linkedUserId);
+            if (row == null) {
+                row = TimelineRow.fromCursor(context, cursor, columns);
+            } else {
+                row = row.withCurrentTime(context);
+                reused++;
+            }
+            rows.put(new RowKey(msgId, linkedUserId), row);
+        }
+        return reused;
+    }
+
+    private static void putFirstPosition(LongIntMap positions, long msgId, int position) {
+        if (positions.get(msgId) == LongIntMap.NOT_FOUND) {
+            positions.put(msgId, position);
+        }
+    }
+
+    /**
+     * Messages, which changed since the version of {@link MsgChangeLog}, and the loaded messages
+     * of the Users, whose name or avatar changed, so their rows shouldn't be reused
+     * @return null if the changes are unknown
+     */
+    Set<Long> getChangedSince(long version) {
+        Set<Long> changedIds = MsgChangeLog.getChangedSince(version);
+        Set<Long> userIds = MsgChangeLog.getUsersChangedSince(version);
+        if (changedIds == null || userIds == null) {
+            return null;
+        }
+        if (userIds.isEmpty()) {
+            return changedIds;
+        }
+        Set<Long> ids = new HashSet<Long>(changedIds);
+        for (TimelineRow row : rows.values()) {
+            if (userIds.contains(row.authorId)) {
+                ids.add(row.msgId);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @param linkedUserId The User, whose timeline has the row, 0 if the timeline is not combined
+     * @return null if not loaded
+     */
+    TimelineRow get(long msgId, long linkedUserId) {
+        return rows.get(new RowKey(msgId, linkedUserId));
+    }
+
+    int size() {
+        return rows.size();
+    }
+
+    /**
+     * @return Position of the first row of the message in the loaded cursor,
+     *   {@link LongIntMap#NOT_FOUND} if it is absent
+     */
+    int getPosition(long msgId) {
+        return positions.get(msgId);
+    }
+
+    @Override
+    public String toString() {
+        return "rows:" + rows.size() + ", reused:" + reused;
+    }
+}
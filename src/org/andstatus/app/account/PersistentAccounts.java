@@ -8,11 +8,17 @@ import org.andstatus.app.account.MyAccount.CredentialsVerificationStatus;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.PreferencesSnapshot;
 import org.andstatus.app.data.MyDatabase;
 import org.andstatus.app.data.MyProvider;
 import org.andstatus.app.util.MyLog;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -30,10 +36,73 @@ public class PersistentAccounts {
      */
     private volatile String currentAccountName = "";
     
-    private Map<String,MyAccount> persistentAccounts = new ConcurrentHashMap<String, MyAccount>();
+    /**
+     * Immutable set of the accounts with indexes. Changes replace the whole object.
+     * As MyAccount objects may be changed in place by {@link MyAccount.Builder}, the indexes
+     * are rebuilt when preferences change, see {@link #getIndex()}
+     */
+    private static final class Index {
+        final PreferencesSnapshot preferences;
+        final Map<String, MyAccount> byName;
+        final Map<Long, MyAccount> byUserId;
+        final Map<Long, List<MyAccount>> byOriginId;
+        /** Account names, which were not found in the AccountManager either */
+        final Map<String, Boolean> notFound = new ConcurrentHashMap<String, Boolean>();
+
+        Index(Collection<MyAccount> accounts, PreferencesSnapshot preferences) {
+            this.preferences = preferences;
+            Map<String, MyAccount> names = new LinkedHashMap<String, MyAccount>();
+            Map<Long, MyAccount> userIds = new HashMap<Long, MyAccount>();
+            Map<Long, List<MyAccount>> originIds = new HashMap<Long, List<MyAccount>>();
+            for (MyAccount ma : accounts) {
+                names.put(ma.getAccountName(), ma);
+                if (!userIds.containsKey(ma.getUserId())) {
+                    userIds.put(ma.getUserId(), ma);
+                }
+                List<MyAccount> ofOrigin = originIds.get(ma.getOriginId());
+                if (ofOrigin == null) {
+                    ofOrigin = new ArrayList<MyAccount>();
+                    originIds.put(ma.getOriginId(), ofOrigin);
+                }
+                ofOrigin.add(ma);
+            }
+            byName = Collections.unmodifiableMap(names);
+            byUserId = userIds;
+            byOriginId = originIds;
+        }
+
+        Index with(MyAccount ma) {
+            List<MyAccount> accounts = new ArrayList<MyAccount>(byName.values());
+            accounts.add(ma);
+            return new Index(accounts, preferences);
+        }
+
+        Index without(MyAccount ma) {
+            Map<String, MyAccount> names = new LinkedHashMap<String, MyAccount>(byName);
+            names.remove(ma.getAccountName());
+            return new Index(names.values(), preferences);
+        }
+    }
+
+    private volatile Index index = new Index(Collections.<MyAccount>emptyList(), null);
     
     private PersistentAccounts() {
     }
+
+    private Index getIndex() {
+        Index current = index;
+        PreferencesSnapshot preferences = MyContextHolder.get().preferences();
+        if (current.preferences != preferences) {
+            synchronized (this) {
+                current = index;
+                if (current.preferences != preferences) {
+                    current = new Index(current.byName.values(), preferences);
+                    index = current;
+                }
+            }
+        }
+        return current;
+    }
     
     /**
      * Get list of all persistent accounts
@@ -44,15 +113,15 @@ public class PersistentAccounts {
      * @return not null 
      */
     public Collection<MyAccount> collection() {
-        return persistentAccounts.values();
+        return index.byName.values();
     }
     
     public boolean isEmpty() {
-        return persistentAccounts.isEmpty();
+        return index.byName.isEmpty();
     }
     
     public int size() {
-        return persistentAccounts.size();
+        return index.byName.size();
     }
 
     public PersistentAccounts initialize() {
@@ -60,19 +129,33 @@ public class PersistentAccounts {
     }
     
     public PersistentAccounts initialize(MyContext myContext) {
+        return initialize(myContext, getAndroidAccounts(myContext.context()));
+    }
+
+    /**
+     * Doesn't need the database and origins, so may be called in parallel with their initialization
+     */
+    public static android.accounts.Account[] getAndroidAccounts(android.content.Context context) {
+        return AccountManager.get(context).getAccountsByType(AuthenticatorService.ANDROID_ACCOUNT_TYPE);
+    }
+
+    /**
+     * @param aa Accounts of our type, see {@link #getAndroidAccounts(android.content.Context)}
+     */
+    public PersistentAccounts initialize(MyContext myContext, android.accounts.Account[] aa) {
         defaultAccountName = MyPreferences.getDefaultSharedPreferences().getString(KEY_DEFAULT_ACCOUNT_NAME, "");
-        persistentAccounts.clear();
-        android.accounts.AccountManager am = AccountManager.get(myContext.context());
-        android.accounts.Account[] aa = am.getAccountsByType( AuthenticatorService.ANDROID_ACCOUNT_TYPE );
+        List<MyAccount> accounts = new ArrayList<MyAccount>();
         for (android.accounts.Account account : aa) {
             MyAccount ma = Builder.fromAndroidAccount(myContext, account).getAccount();
             if (ma.isValid()) {
-                persistentAccounts.put(ma.getAccountName(), ma);
+                accounts.add(ma);
             } else {
                 MyLog.e(this, "The account is not valid: " + ma);
             }
         }
-        MyLog.v(this, "Account list initialized, " + persistentAccounts.size() + " accounts");
+        Index newIndex = new Index(accounts, myContext.preferences());
+        index = newIndex;
+        MyLog.v(this, "Account list initialized, " + newIndex.byName.size() + " accounts");
         return this;
     }
     
@@ -90,7 +173,7 @@ public class PersistentAccounts {
 
         // Delete the User's object from the list
         boolean found = false;
-        for (MyAccount persistentAccount : persistentAccounts.values()) {
+        for (MyAccount persistentAccount : index.byName.values()) {
             if (persistentAccount.equals(ma)) {
                 found = true;
                 break;
@@ -100,7 +183,9 @@ public class PersistentAccounts {
             MyAccount.Builder.fromMyAccount(ma).deleteData();
 
             // And delete the object from the list
-            persistentAccounts.remove(ma.getAccountName());
+            synchronized (this) {
+                index = index.without(ma);
+            }
 
             isDeleted = true;
             MyPreferences.onPreferencesChanged();
@@ -110,23 +195,26 @@ public class PersistentAccounts {
 
     /**
      * Find persistent MyAccount by accountName in local cache AND in Android
-     * AccountManager
+     * AccountManager. Names, which were not found, are remembered
+     * till the next change of preferences, so they don't cause repeated requests to the AccountManager
      * 
      * @return null if was not found
      */
     public MyAccount fromAccountName(String accountNameIn) {
-        MyAccount myAccount = null;
+        if (TextUtils.isEmpty(accountNameIn)) {
+            return null;
+        }
+        Index current = getIndex();
+        MyAccount myAccount = current.byName.get(accountNameIn);
+        if (myAccount != null || current.notFound.containsKey(accountNameIn)) {
+            return myAccount;
+        }
         AccountName accountName = AccountName.fromAccountName(MyContextHolder.get(), accountNameIn);
         if (TextUtils.isEmpty(accountName.getUsername())) {
             return myAccount;
         }
 
-        for (MyAccount persistentAccount : persistentAccounts.values()) {
-            if (persistentAccount.getAccountName().compareTo(accountName.toString()) == 0) {
-                myAccount = persistentAccount;
-                break;
-            }
-        }
+        myAccount = current.byName.get(accountName.toString());
         // Try to find persisted Account which was not loaded yet
         if (myAccount == null
                 && !TextUtils.isEmpty(accountName.toString())) {
@@ -137,11 +225,16 @@ public class PersistentAccounts {
                 if (accountName.compareToString(androidAccount.name) == 0) {
                     myAccount = Builder.fromAndroidAccount(MyContextHolder.get(), androidAccount)
                             .getAccount();
-                    persistentAccounts.put(myAccount.getAccountName(), myAccount);
+                    synchronized (this) {
+                        index = index.with(myAccount);
+                    }
                     MyPreferences.onPreferencesChanged();
                     break;
                 }
             }
+            if (myAccount == null) {
+                current.notFound.put(accountNameIn, Boolean.TRUE);
+            }
         }
         return myAccount;
     }
@@ -162,8 +255,8 @@ public class PersistentAccounts {
         if (ma == null) {
             defaultAccountName = "";
         }
-        if (ma == null && !persistentAccounts.isEmpty()) {
-            ma = persistentAccounts.values().iterator().next();
+        if (ma == null && !isEmpty()) {
+            ma = collection().iterator().next();
         }
         if (ma != null) {
             // Correct Current and Default Accounts if needed
@@ -210,14 +303,7 @@ public class PersistentAccounts {
      * @return null if not found
      */
     public MyAccount fromUserId(long userId) {
-        MyAccount ma = null;
-        for (MyAccount persistentAccount : persistentAccounts.values()) {
-            if (persistentAccount.getUserId() == userId) {
-                ma = persistentAccount;
-                break;
-            }
-        }
-        return ma;
+        return getIndex().byUserId.get(userId);
     }
 
     /**
@@ -228,15 +314,17 @@ public class PersistentAccounts {
      */
     public MyAccount findFirstMyAccountByOriginId(long originId) {
         MyAccount ma = null;
-        for (MyAccount persistentAccount : persistentAccounts.values()) {
-            if (persistentAccount.getOriginId() == originId) {
-                if ( persistentAccount.getCredentialsVerified() == CredentialsVerificationStatus.SUCCEEDED) {
-                    ma = persistentAccount;
-                    break;
-                }
-                if (ma == null) {
-                    ma = persistentAccount;
-                }
+        List<MyAccount> ofOrigin = getIndex().byOriginId.get(originId);
+        if (ofOrigin == null) {
+            return ma;
+        }
+        for (MyAccount persistentAccount : ofOrigin) {
+            if ( persistentAccount.getCredentialsVerified() == CredentialsVerificationStatus.SUCCEEDED) {
+                ma = persistentAccount;
+                break;
+            }
+            if (ma == null) {
+                ma = persistentAccount;
             }
         }
         return ma;
@@ -295,7 +383,7 @@ public class PersistentAccounts {
     
     public void onMyPreferencesChanged() {
         long syncFrequencySeconds = MyPreferences.getSyncFrequencySeconds();
-        for (MyAccount ma : persistentAccounts.values()) {
+        for (MyAccount ma : collection()) {
             Builder builder = Builder.fromMyAccount(ma);
             builder.setSyncFrequency(syncFrequencySeconds);
             builder.save();
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.context;
+
+import org.andstatus.app.util.MyLog;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durations of the phases of {@link MyContext} initialization, so slow starts show up in the log
+ * @author yvolk@yurivolkov.com
+ */
+public class InitializationTrace {
+    private static volatile String lastTrace = "";
+
+    private final String initializerName;
+    private final long startedAt = System.nanoTime();
+    private long phaseStartedAt = startedAt;
+    private String phase = "";
+    private final StringBuilder phases = new StringBuilder();
+
+    InitializationTrace(String initializerName) {
+        this.initializerName = initializerName;
+    }
+
+    /**
+     * Ends the current phase (if any) and starts the next one
+     */
+    void phase(String name) {
+        endPhase();
+        phase = name;
+    }
+
+    private void endPhase() {
+        long now = System.nanoTime();
+        if (phase.length() > 0) {
+            phases.append(phase + ":" + TimeUnit.NANOSECONDS.toMillis(now - phaseStartedAt) + "ms, ");
+        }
+        phase = "";
+        phaseStartedAt = now;
+    }
+
+    /**
+     * Ends the trace and logs it
+     */
+    void end(MyContextState state) {
+        endPhase();
+        lastTrace = MyLog.formatKeyValue("Initialization", "by:" + initializerName + ", " + phases
+                + "total:" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) + "ms, state:" + state);
+        MyLog.i(this, lastTrace);
+    }
+
+    /**
+     * @return Trace of the latest finished initialization
+     */
+    public static String getLast() {
+        return lastTrace;
+    }
+}
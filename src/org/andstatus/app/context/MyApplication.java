@@ -16,6 +16,7 @@
 
 package org.andstatus.app.context;
 
+import org.andstatus.app.data.AvatarCache;
 import org.andstatus.app.util.MyLog;
 
 import android.app.Application;
@@ -38,6 +39,22 @@ public class MyApplication extends Application {
         MyContextHolder.storeContextIfNotPresent(this, this);
     }
 
+    @Override
+    public void onLowMemory() {
+        MyLog.v(this, "onLowMemory");
+        AvatarCache.getInstance().clear();
+        super.onLowMemory();
+    }
+
+    /**
+     * Since: API Level 14
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        AvatarCache.getInstance().onTrimMemory(level);
+        super.onTrimMemory(level);
+    }
+
     @Override
     public File getDatabasePath(String name) {
         return MyPreferences.getDatabasePath(name, null);
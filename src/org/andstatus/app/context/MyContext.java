@@ -36,6 +36,7 @@ public interface MyContext {
     Context context();
     String initializedBy();
     long preferencesChangeTime();
+    PreferencesSnapshot preferences();
     MyDatabase getDatabase();
     PersistentAccounts persistentAccounts();
     PersistentOrigins persistentOrigins();
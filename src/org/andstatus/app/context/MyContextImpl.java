@@ -29,6 +29,9 @@ import org.andstatus.app.origin.PersistentOrigins;
 import org.andstatus.app.util.MyLog;
 
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * Contains global state of the application
@@ -68,23 +71,59 @@ public final class MyContextImpl implements MyContext {
         MyContextImpl newMyContext = getCreator(context, initializerName);
         if ( newMyContext.context != null) {
             MyLog.v(TAG, "Starting initialization by " + initializerName);
-            newMyContext.preferencesChangeTime = MyPreferences.getPreferencesChangeTime();
+            InitializationTrace trace = new InitializationTrace(initializerName);
+            trace.phase("preferences");
+            newMyContext.preferencesChangeTime = MyPreferences.reloadSnapshot().changeTime;
+            // Reading accounts from the AccountManager doesn't need the database, so do this in parallel
+            FutureTask<android.accounts.Account[]> androidAccounts = startGettingAndroidAccounts(newMyContext.context);
+            trace.phase("database");
             MyDatabase newDb = new MyDatabase(newMyContext.context);
             newMyContext.state = newDb.checkState();
             switch (newMyContext.state) {
                 case READY:
                     newMyContext.db = newDb;
+                    trace.phase("origins");
                     newMyContext.persistentOrigins.initialize(newMyContext);
-                    newMyContext.persistentAccounts.initialize(newMyContext);
+                    trace.phase("accountManager");
+                    android.accounts.Account[] aa = getAndroidAccounts(androidAccounts, newMyContext.context);
+                    trace.phase("accounts");
+                    newMyContext.persistentAccounts.initialize(newMyContext, aa);
                     break;
                 default: 
+                    androidAccounts.cancel(false);
                     break;
             }
+            trace.end(newMyContext.state);
         }
 
         MyLog.v(this, toString());
         return newMyContext;
     }
+
+    private static FutureTask<android.accounts.Account[]> startGettingAndroidAccounts(final Context context) {
+        FutureTask<android.accounts.Account[]> task = new FutureTask<android.accounts.Account[]>(
+                new Callable<android.accounts.Account[]>() {
+                    @Override
+                    public android.accounts.Account[] call() {
+                        return PersistentAccounts.getAndroidAccounts(context);
+                    }
+                });
+        new Thread(task, "getAndroidAccounts").start();
+        return task;
+    }
+
+    private static android.accounts.Account[] getAndroidAccounts(FutureTask<android.accounts.Account[]> task,
+            Context context) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            MyLog.d(TAG, "getAndroidAccounts", e);
+        }
+        // Try once more in this thread
+        return PersistentAccounts.getAndroidAccounts(context);
+    }
     
     @Override
     public String toString() {
@@ -157,6 +196,11 @@ public final class MyContextImpl implements MyContext {
         return preferencesChangeTime;
     }
     
+    @Override
+    public PreferencesSnapshot preferences() {
+        return MyPreferences.getSnapshot();
+    }
+    
     @Override
     public MyDatabase getDatabase() {
         return db;
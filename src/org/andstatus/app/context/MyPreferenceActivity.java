@@ -41,6 +41,7 @@ import android.preference.PreferenceActivity;
 import android.preference.RingtonePreference;
 import android.preference.Preference.OnPreferenceChangeListener;
 import android.text.TextUtils;
+import android.text.format.Formatter;
 import android.view.KeyEvent;
 import android.widget.Toast;
 
@@ -52,6 +53,7 @@ import org.andstatus.app.MyActionBarContainer;
 import org.andstatus.app.R;
 import org.andstatus.app.TimelineActivity;
 import org.andstatus.app.account.AccountSettingsActivity;
+import org.andstatus.app.data.AvatarDiskCache;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.MyDatabase;
 import org.andstatus.app.origin.OriginList;
@@ -72,6 +74,7 @@ public class MyPreferenceActivity extends PreferenceActivity implements
 
     private static final String KEY_ADD_NEW_ACCOUNT = "add_new_account";
     private static final String KEY_MANAGE_EXISTING_ACCOUNTS = "manage_existing_accounts";
+    private static final String KEY_AVATARS_CACHE_INFO = "avatars_cache_info";
 
     private static final String TAG = MyPreferenceActivity.class.getSimpleName();
 
@@ -202,6 +205,8 @@ public class MyPreferenceActivity extends PreferenceActivity implements
         showFrequency();
         showHistorySize();
         showHistoryTime();
+        showAvatarsCacheSize();
+        showAvatarsCacheInfo();
         showRingtone();
         showMinLogLevel();
         showUseExternalStorage();
@@ -225,6 +230,24 @@ public class MyPreferenceActivity extends PreferenceActivity implements
         SharedPreferencesUtil.showListPreference(this, MyPreferences.KEY_HISTORY_TIME, R.array.history_time_values, R.array.history_time_display, R.string.summary_preference_history_time);
     }
 
+    protected void showAvatarsCacheSize() {
+        SharedPreferencesUtil.showListPreference(this, MyPreferences.KEY_AVATARS_CACHE_SIZE, R.array.avatars_cache_size_values, R.array.avatars_cache_size_display, R.string.summary_preference_avatars_cache_size);
+    }
+
+    protected void showAvatarsCacheInfo() {
+        Preference myPref = findPreference(KEY_AVATARS_CACHE_INFO);
+        if (AvatarDiskCache.getBytes() < 0) {
+            myPref.setSummary(R.string.summary_preference_avatars_cache_info_unknown);
+        } else {
+            int hitRate = AvatarDiskCache.getHitRatePercent();
+            myPref.setSummary(getString(R.string.summary_preference_avatars_cache_info,
+                    Formatter.formatFileSize(this, AvatarDiskCache.getBytes()),
+                    AvatarDiskCache.getFiles(),
+                    hitRate < 0 ? "-" : Integer.toString(hitRate) + "%",
+                    AvatarDiskCache.getEvictions()));
+        }
+    }
+
     protected void showFrequency() {
         SharedPreferencesUtil.showListPreference(this, MyPreferences.KEY_FETCH_FREQUENCY, R.array.fetch_frequency_values, R.array.fetch_frequency_display, R.string.summary_preference_frequency);
     }
@@ -292,6 +315,9 @@ public class MyPreferenceActivity extends PreferenceActivity implements
             if (key.equals(MyPreferences.KEY_HISTORY_TIME)) {
                 showHistoryTime();
             }
+            if (key.equals(MyPreferences.KEY_AVATARS_CACHE_SIZE)) {
+                showAvatarsCacheSize();
+            }
             if (key.equals(MyPreferences.KEY_MIN_LOG_LEVEL)) {
                 showMinLogLevel();
             }
@@ -68,6 +68,22 @@ public class MyPreferences {
     public static final String KEY_THEME_SIZE = "theme_size";
     public static final String KEY_THEME_COLOR = "theme_color";
     public static final String KEY_SHOW_AVATARS = "show_avatars";
+    /**
+     * Download missing earlier messages of conversations after timeline sync (boolean)
+     */
+    public static final String KEY_PREFETCH_CONVERSATIONS = "prefetch_conversations";
+    /**
+     * Store avatars as they were downloaded, without downscaling them to the size we show
+     */
+    public static final String KEY_KEEP_ORIGINAL_AVATARS = "keep_original_avatars";
+    /**
+     * Size (int, pixels), to which existing avatar files were shrunk last time
+     */
+    public static final String KEY_AVATARS_DOWNSCALED_SIZE = "avatars_downscaled_size";
+    /**
+     * Maximum size of the avatars directory, megabytes (String)
+     */
+    public static final String KEY_AVATARS_CACHE_SIZE = "avatars_cache_size";
 
     /**
      * Use this dir: http://developer.android.com/reference/android/content/Context.html#getExternalFilesDir(java.lang.String)
@@ -98,6 +114,16 @@ public class MyPreferences {
      * Notify of commands in the queue
      */
     public static final String KEY_NOTIFICATIONS_QUEUE = "notifications_queue";
+    public static final String KEY_NOTIFICATIONS_ENABLED = "notifications_enabled";
+    public static final String KEY_NOTIFICATIONS_MESSAGES = "notifications_messages";
+    public static final String KEY_NOTIFICATIONS_MENTIONS = "notifications_mentions";
+    public static final String KEY_NOTIFICATIONS_TIMELINE = "notifications_timeline";
+    public static final String KEY_VIBRATION = "vibration";
+
+    /**
+     * The latest snapshot of the preferences. It is replaced as a whole, never modified
+     */
+    private static volatile PreferencesSnapshot snapshot = null;
     
     private MyPreferences(){
         throw new AssertionError();
@@ -136,6 +162,7 @@ public class MyPreferences {
             MyLog.e(TAG, "setDefaultValues - Was not initialized yet");
         } else {
             PreferenceManager.setDefaultValues(context, resId, readAgain);
+            reloadSnapshot();
         }
     }
     
@@ -186,6 +213,31 @@ public class MyPreferences {
             .putLong(KEY_PREFERENCES_CHANGE_TIME,
                     java.lang.System.currentTimeMillis()).commit();
         }
+        reloadSnapshot();
+        MyLog.forget();
+    }
+
+    /**
+     * @return The latest snapshot of the preferences, which are read on hot paths
+     */
+    public static PreferencesSnapshot getSnapshot() {
+        PreferencesSnapshot current = snapshot;
+        if (current == null) {
+            current = reloadSnapshot();
+        }
+        return current;
+    }
+
+    /**
+     * Reads the preferences again and replaces the snapshot
+     */
+    static PreferencesSnapshot reloadSnapshot() {
+        if (MyContextHolder.get().context() == null) {
+            return PreferencesSnapshot.getEmpty();
+        }
+        PreferencesSnapshot loaded = PreferencesSnapshot.load(getDefaultSharedPreferences());
+        snapshot = loaded;
+        return loaded;
     }
     
     /**
@@ -370,6 +422,10 @@ public class MyPreferences {
     }
 
     public static boolean showAvatars() {
-        return getDefaultSharedPreferences().getBoolean(MyPreferences.KEY_SHOW_AVATARS, true);
+        return getSnapshot().showAvatars;
+    }
+
+    public static boolean keepOriginalAvatars() {
+        return getSnapshot().keepOriginalAvatars;
     }
 }
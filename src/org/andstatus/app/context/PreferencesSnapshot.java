@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.context;
+
+import android.content.SharedPreferences;
+
+import org.andstatus.app.util.MyLog;
+
+/**
+ * Immutable typed copy of the preferences, which are read on hot paths (e.g. on each list row bind),
+ * so these paths don't look up and parse preference values each time.
+ * A new snapshot is built by {@link MyPreferences#onPreferencesChanged()}
+ * @author yvolk@yurivolkov.com
+ */
+public final class PreferencesSnapshot {
+    static final int HISTORY_TIME_DAYS_DEFAULT = 3;
+    static final int HISTORY_SIZE_DEFAULT = 2000;
+
+    public final long changeTime;
+    public final boolean showAvatars;
+    public final boolean keepOriginalAvatars;
+    /** Messages older than this number of days may be pruned. 0 - don't prune by time */
+    public final int historyTimeDays;
+    /** Maximum number of messages to keep. 0 - don't prune by size */
+    public final int historySize;
+    /** Download missing earlier messages of conversations after timeline sync */
+    public final boolean prefetchConversations;
+    public final boolean notificationsEnabled;
+    public final boolean notificationsMessages;
+    public final boolean notificationsMentions;
+    public final boolean notificationsTimeline;
+    public final boolean notificationsVibrate;
+    /** Empty, if no sound */
+    public final String ringtone;
+
+    private static final PreferencesSnapshot EMPTY = new PreferencesSnapshot(null);
+
+    private PreferencesSnapshot(SharedPreferences sp) {
+        if (sp == null) {
+            changeTime = 0;
+            showAvatars = true;
+            keepOriginalAvatars = false;
+            historyTimeDays = HISTORY_TIME_DAYS_DEFAULT;
+            historySize = HISTORY_SIZE_DEFAULT;
+            prefetchConversations = false;
+            notificationsEnabled = false;
+            notificationsMessages = false;
+            notificationsMentions = false;
+            notificationsTimeline = false;
+            notificationsVibrate = false;
+            ringtone = "";
+        } else {
+            changeTime = sp.getLong(MyPreferences.KEY_PREFERENCES_CHANGE_TIME, 0);
+            showAvatars = sp.getBoolean(MyPreferences.KEY_SHOW_AVATARS, true);
+            keepOriginalAvatars = sp.getBoolean(MyPreferences.KEY_KEEP_ORIGINAL_AVATARS, false);
+            historyTimeDays = getInt(sp, MyPreferences.KEY_HISTORY_TIME, HISTORY_TIME_DAYS_DEFAULT);
+            historySize = getInt(sp, MyPreferences.KEY_HISTORY_SIZE, HISTORY_SIZE_DEFAULT);
+            prefetchConversations = sp.getBoolean(MyPreferences.KEY_PREFETCH_CONVERSATIONS, true);
+            notificationsEnabled = sp.getBoolean(MyPreferences.KEY_NOTIFICATIONS_ENABLED, false);
+            notificationsMessages = sp.getBoolean(MyPreferences.KEY_NOTIFICATIONS_MESSAGES, false);
+            notificationsMentions = sp.getBoolean(MyPreferences.KEY_NOTIFICATIONS_MENTIONS, false);
+            notificationsTimeline = sp.getBoolean(MyPreferences.KEY_NOTIFICATIONS_TIMELINE, false);
+            notificationsVibrate = sp.getBoolean(MyPreferences.KEY_VIBRATION, false);
+            String ringtoneStored = sp.getString(MyPreferences.KEY_RINGTONE_PREFERENCE, null);
+            ringtone = ringtoneStored == null ? "" : ringtoneStored;
+        }
+    }
+
+    static PreferencesSnapshot load(SharedPreferences sp) {
+        return sp == null ? EMPTY : new PreferencesSnapshot(sp);
+    }
+
+    static PreferencesSnapshot getEmpty() {
+        return EMPTY;
+    }
+
+    /**
+     * ListPreference stores its values as Strings,
+     * see http://code.google.com/p/android/issues/detail?id=2096
+     */
+    private static int getInt(SharedPreferences sp, String key, int defaultValue) {
+        try {
+            return Integer.parseInt(sp.getString(key, Integer.toString(defaultValue)));
+        } catch (ClassCastException e) {
+            return sp.getInt(key, defaultValue);
+        } catch (NumberFormatException e) {
+            MyLog.d(PreferencesSnapshot.class, "Wrong value of " + key, e);
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MyLog.formatKeyValue("PreferencesSnapshot", "changed:" + changeTime + ", avatars:" + showAvatars
+                + ", historyDays:" + historyTimeDays + ", historySize:" + historySize
+                + ", notifications:" + notificationsEnabled);
+    }
+}
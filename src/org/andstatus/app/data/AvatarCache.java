@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.text.TextUtils;
+import android.widget.ImageView;
+
+import org.andstatus.app.R;
+import org.andstatus.app.util.MyLog;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Memory cache of decoded avatars, shared by the Timeline and the Conversation.
+ * Avatar files are checked and decoded in a background thread, the default avatar is shown till then.
+ * We don't use android.util.LruCache as it appeared in API 12 only.
+ * @author yvolk@yurivolkov.com
+ */
+public class AvatarCache {
+    private static final AvatarCache INSTANCE = new AvatarCache(Runtime.getRuntime().maxMemory() / 8);
+
+    private final long maxBytes;
+    /** Guarded by "this". Access order, so the eldest entry is the least recently used one */
+    private final LinkedHashMap<String, Bitmap> bitmaps = new LinkedHashMap<String, Bitmap>(32, 0.75f, true);
+    private long bytes = 0;
+    /** Users, whose avatar files didn't exist, when we tried to decode them. Their download was requested already */
+    private final Set<Long> usersWithoutAvatar = new HashSet<Long>();
+
+    /** A new prefetch request cancels the previous one */
+    private final AtomicInteger prefetchGeneration = new AtomicInteger();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, AvatarCache.class.getSimpleName());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    AvatarCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static AvatarCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Shows the avatar in the view: immediately, if it is in the cache,
+     * otherwise the default avatar is shown till the file is decoded.
+     * The view may be reused for another avatar meanwhile, so we check its tag before setting the bitmap.
+     * Should be called in the UI thread.
+     */
+    void show(final AvatarDrawable avatar, final ImageView view) {
+        final String fileName = avatar.getFileName();
+        view.setTag(R.id.avatar_image, fileName);
+        Bitmap bitmap = TextUtils.isEmpty(fileName) ? null : get(fileName);
+        if (bitmap != null) {
+            view.setImageBitmap(bitmap);
+            return;
+        }
+        view.setImageDrawable(AvatarDrawable.getDefaultAvatar());
+        decoder.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap decoded = load(avatar);
+                if (decoded != null && !TextUtils.isEmpty(fileName)) {
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (fileName.equals(view.getTag(R.id.avatar_image))) {
+                                view.setImageBitmap(decoded);
+                            }
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads the avatars into the cache in the background (and requests downloads of missing files),
+     * so they are ready, when their rows become visible.
+     * Each avatar is a separate task, so avatars, requested by {@link #show(AvatarDrawable, ImageView)},
+     * don't wait for the whole list.
+     * @param avatars An empty list cancels the previous prefetch
+     */
+    public void prefetch(List<AvatarDrawable> avatars) {
+        int generation = prefetchGeneration.incrementAndGet();
+        if (!avatars.isEmpty()) {
+            decoder.execute(new PrefetchTask(avatars, 0, generation));
+        }
+    }
+
+    private class PrefetchTask implements Runnable {
+        private final List<AvatarDrawable> avatars;
+        private final int index;
+        private final int generation;
+
+        PrefetchTask(List<AvatarDrawable> avatars, int index, int generation) {
+            this.avatars = avatars;
+            this.index = index;
+            this.generation = generation;
+        }
+
+        @Override
+        public void run() {
+            if (generation != prefetchGeneration.get()) {
+                MyLog.v(AvatarCache.this, "Prefetch cancelled, " + (avatars.size() - index) + " avatars left");
+                return;
+            }
+            load(avatars.get(index));
+            if (index + 1 < avatars.size()) {
+                decoder.execute(new PrefetchTask(avatars, index + 1, generation));
+            }
+        }
+    }
+
+    /**
+     * Decodes the file in the current thread, if it is not in the cache yet
+     * @return null if the avatar file doesn't exist (its download is requested then)
+     */
+    Bitmap load(AvatarDrawable avatar) {
+        String fileName = avatar.getFileName();
+        Bitmap bitmap = TextUtils.isEmpty(fileName) ? null : get(fileName);
+        if (bitmap != null) {
+            return bitmap;
+        }
+        AvatarDiskCache.onAccess(avatar);
+        if (!avatar.exists()) {
+            boolean requested;
+            synchronized (this) {
+                requested = !usersWithoutAvatar.add(avatar.getUserId());
+            }
+            if (!requested) {
+                avatar.requestDownload();
+            }
+            return null;
+        }
+        bitmap = AvatarScaler.decodeSampled(avatar.getFile(), AvatarScaler.getSizePixels());
+        if (bitmap != null) {
+            put(fileName, bitmap);
+        }
+        return bitmap;
+    }
+
+    synchronized Bitmap get(String fileName) {
+        return bitmaps.get(fileName);
+    }
+
+    synchronized void put(String fileName, Bitmap bitmap) {
+        Bitmap previous = bitmaps.put(fileName, bitmap);
+        if (previous != null) {
+            bytes -= sizeOf(previous);
+        }
+        bytes += sizeOf(bitmap);
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * Download of the user's avatar was finished, successfully or not,
+     * so we may request it again, if the file is still absent
+     */
+    public synchronized void onDownloadFinished(long userId) {
+        usersWithoutAvatar.remove(userId);
+    }
+
+    /**
+     * The file was deleted
+     */
+    public synchronized void remove(String fileName) {
+        Bitmap previous = bitmaps.remove(fileName);
+        if (previous != null) {
+            bytes -= sizeOf(previous);
+        }
+    }
+
+    private synchronized void trimToSize(long size) {
+        for (Iterator<Map.Entry<String, Bitmap>> iterator = bitmaps.entrySet().iterator();
+                bytes > size && iterator.hasNext();) {
+            bytes -= sizeOf(iterator.next().getValue());
+            iterator.remove();
+        }
+    }
+
+    private static long sizeOf(Bitmap bitmap) {
+        return (long) bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    /**
+     * See {@link ComponentCallbacks2#onTrimMemory(int)}
+     */
+    public synchronized void onTrimMemory(int level) {
+        long bytesBefore = bytes;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            trimToSize(0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            trimToSize(maxBytes / 2);
+        }
+        MyLog.v(this, "onTrimMemory level=" + level + ", bytes before=" + bytesBefore + ", after=" + bytes);
+    }
+
+    public synchronized void clear() {
+        bitmaps.clear();
+        usersWithoutAvatar.clear();
+        bytes = 0;
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return MyLog.formatKeyValue("AvatarCache", "size:" + bitmaps.size() + ", bytes:" + bytes
+                + ", max:" + maxBytes + ", without avatar:" + usersWithoutAvatar.size());
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.data.MyDatabase.Avatar;
+import org.andstatus.app.util.MyLog;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the avatars directory under the size, configured in {@link MyPreferences#KEY_AVATARS_CACHE_SIZE},
+ * deleting files, which were not shown for the longest time. Rows of the {@link Avatar} table,
+ * which referenced deleted files, become {@link AvatarStatus#EXPIRED}, so the avatars will be downloaded again,
+ * when they are shown next time.
+ * The last access time is stored as "last modified" time of a file.
+ * @author yvolk@yurivolkov.com
+ */
+public class AvatarDiskCache {
+    /** Don't do too much at once, the rest will be deleted during the next pass */
+    static final int MAX_EVICTIONS_PER_PASS = 100;
+    /** Delete a bit more than needed, so we don't trim after each download */
+    static final int LOW_WATERMARK_PERCENT = 90;
+    private static final long TOUCH_INTERVAL_MILLIS = 60 * 60 * 1000L;
+    private static final String TEMP_FILE_PREFIX = "temp_";
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+    /** -1 means "not measured yet" */
+    private static volatile long bytes = -1;
+    private static volatile long files = -1;
+
+    private AvatarDiskCache() {
+        // Empty
+    }
+
+    /**
+     * Is called, when we are going to decode the avatar file
+     */
+    static void onAccess(AvatarDrawable avatar) {
+        if (!avatar.exists()) {
+            misses.incrementAndGet();
+            return;
+        }
+        hits.incrementAndGet();
+        File file = avatar.getFile();
+        long now = System.currentTimeMillis();
+        if (now - file.lastModified() > TOUCH_INTERVAL_MILLIS && !file.setLastModified(now)) {
+            MyLog.v(AvatarDiskCache.class, "Couldn't touch " + file.getAbsolutePath());
+        }
+    }
+
+    public static long getMaxBytes() {
+        long megabytes = 20;
+        try {
+            megabytes = Long.parseLong(MyPreferences.getDefaultSharedPreferences().getString(
+                    MyPreferences.KEY_AVATARS_CACHE_SIZE, Long.toString(megabytes)));
+        } catch (NumberFormatException e) {
+            MyLog.v(AvatarDiskCache.class, "Wrong cache size", e);
+        }
+        return megabytes * 1024 * 1024;
+    }
+
+    /**
+     * Evicts least recently used files, if the directory is larger than allowed.
+     * Should be called in a background thread.
+     * @return number of files deleted
+     */
+    public static int trim() {
+        final String method = "trim";
+        File dir = MyPreferences.getDataFilesDir(MyPreferences.DIRECTORY_AVATARS, null);
+        if (dir == null) {
+            return 0;
+        }
+        File[] listed = dir.listFiles();
+        List<File> fileList = new ArrayList<File>();
+        long size = 0;
+        for (File file : listed == null ? new File[0] : listed) {
+            if (file.isFile() && !file.getName().startsWith(TEMP_FILE_PREFIX)) {
+                fileList.add(file);
+                size += file.length();
+            }
+        }
+        long maxBytes = getMaxBytes();
+        int count = 0;
+        if (size > maxBytes) {
+            final long sizeToKeep = maxBytes * LOW_WATERMARK_PERCENT / 100;
+            Collections.sort(fileList, new Comparator<File>() {
+                @Override
+                public int compare(File lhs, File rhs) {
+                    long lhsModified = lhs.lastModified();
+                    long rhsModified = rhs.lastModified();
+                    return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+                }
+            });
+            for (File file : fileList) {
+                if (size <= sizeToKeep || count >= MAX_EVICTIONS_PER_PASS) {
+                    break;
+                }
+                long length = file.length();
+                // Files, which were not deleted, stay in the cache and in its size
+                if (evict(file)) {
+                    size -= length;
+                    count++;
+                }
+            }
+        }
+        bytes = size;
+        files = fileList.size() - count;
+        evictions.addAndGet(count);
+        MyLog.v(AvatarDiskCache.class, method + "; evicted " + count + " files; " + toDebugString());
+        return count;
+    }
+
+    private static boolean evict(File file) {
+        String fileName = file.getName();
+        if (!file.delete()) {
+            MyLog.e(AvatarDiskCache.class, "Couldn't delete " + file.getAbsolutePath());
+            return false;
+        }
+        AvatarCache.getInstance().remove(fileName);
+        ContentValues values = new ContentValues();
+        values.put(Avatar.STATUS, AvatarStatus.EXPIRED.save());
+        SQLiteDatabase db = MyContextHolder.get().getDatabase().getWritableDatabase();
+        onUsersChanged(db, fileName);
+        db.update(Avatar.TABLE_NAME, values, Avatar.FILE_NAME + "=?", new String[] {fileName});
+        return true;
+    }
+
+    /**
+     * Timelines show the file no more, see {@link MsgChangeLog#onUserChanged(long)}
+     */
+    private static void onUsersChanged(SQLiteDatabase db, String fileName) {
+        Cursor cursor = null;
+        try {
+            cursor = db.query(Avatar.TABLE_NAME, new String[] {Avatar.USER_ID}, Avatar.FILE_NAME + "=?",
+                    new String[] {fileName}, null, null, null);
+            while (cursor.moveToNext()) {
+                MsgChangeLog.onUserChanged(cursor.getLong(0));
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+    }
+
+    /**
+     * @return -1 if the size was not measured yet
+     */
+    public static long getBytes() {
+        return bytes;
+    }
+
+    public static long getFiles() {
+        return files;
+    }
+
+    /**
+     * @return percent of avatar files, which were found in the cache, -1 if there were no requests
+     */
+    public static int getHitRatePercent() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? -1 : (int) (hits.get() * 100 / total);
+    }
+
+    public static long getEvictions() {
+        return evictions.get();
+    }
+
+    static String toDebugString() {
+        return MyLog.formatKeyValue("AvatarDiskCache", "bytes:" + bytes + ", max:" + getMaxBytes()
+                + ", files:" + files + ", hits:" + hits.get() + ", misses:" + misses.get()
+                + ", evictions:" + evictions.get());
+    }
+}
@@ -19,6 +19,7 @@ package org.andstatus.app.data;
 import android.content.Context;
 import android.graphics.drawable.Drawable;
 import android.text.TextUtils;
+import android.widget.ImageView;
 
 import org.andstatus.app.R;
 import org.andstatus.app.context.MyContextHolder;
@@ -35,6 +36,8 @@ public class AvatarDrawable {
     private String fileName;
     private File file = null;
     public static final int AVATAR_SIZE_DIP = 48;
+    /** Loaded avatars are revalidated with the server, when requested after this period */
+    public static final long REVALIDATE_AFTER_MILLIS = 7 * 24 * 60 * 60 * 1000L;
     
     private static Drawable defaultAvatar = loadDefaultAvatar();
     
@@ -56,11 +59,29 @@ public class AvatarDrawable {
         return avatar;
     }
 
+    static Drawable getDefaultAvatar() {
+        return defaultAvatar;
+    }
+
+    /**
+     * Shows the avatar asynchronously, using the shared {@link AvatarCache}
+     */
+    public void showIn(ImageView view) {
+        AvatarCache.getInstance().show(this, view);
+    }
+
+    void requestDownload() {
+        MyServiceManager.sendCommand(new CommandData(CommandEnum.FETCH_AVATAR, null, userId));
+    }
+
+    /**
+     * Decodes the file synchronously, try to use {@link #showIn(ImageView)} instead
+     */
     public Drawable getDrawable() {
         if (exists()) {
             return Drawable.createFromPath(file.getAbsolutePath());
         }
-        MyServiceManager.sendCommand(new CommandData(CommandEnum.FETCH_AVATAR, null, userId));
+        requestDownload();
         return defaultAvatar;
     }
 
@@ -72,6 +93,10 @@ public class AvatarDrawable {
         return file;
     }
 
+    public long getUserId() {
+        return userId;
+    }
+
     public String getFileName() {
         return fileName;
     }
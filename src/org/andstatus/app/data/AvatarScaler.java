@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.util.MyLog;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Avatars are shown at {@link AvatarDrawable#AVATAR_SIZE_DIP} only, so we store them at that size
+ * (in pixels of this device), unless the user prefers to keep original files.
+ * @author yvolk@yurivolkov.com
+ */
+public class AvatarScaler {
+    private static final String TEMP_FILE_PREFIX = "temp_";
+    private static final int JPEG_QUALITY = 90;
+
+    private AvatarScaler() {
+        // Empty
+    }
+
+    public static int getSizePixels() {
+        float density = 1;
+        if (MyContextHolder.get().context() != null) {
+            density = MyContextHolder.get().context().getResources().getDisplayMetrics().density;
+        }
+        return Math.round(AvatarDrawable.AVATAR_SIZE_DIP * density);
+    }
+
+    /**
+     * Large pictures are subsampled while decoding, so they take not much more memory
+     * than a picture of the requested size
+     * @return null if the file couldn't be decoded
+     */
+    static Bitmap decodeSampled(File file, int sizePixels) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        int inSampleSize = 1;
+        while (options.outWidth / (inSampleSize * 2) >= sizePixels
+                && options.outHeight / (inSampleSize * 2) >= sizePixels) {
+            inSampleSize *= 2;
+        }
+        options = new BitmapFactory.Options();
+        options.inSampleSize = inSampleSize;
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        if (bitmap == null) {
+            MyLog.d(AvatarScaler.class, "Failed to decode " + file.getAbsolutePath());
+        }
+        return bitmap;
+    }
+
+    /**
+     * Writes a thumbnail of the source picture to the target file:
+     * as PNG, if the picture has transparency, or as JPEG otherwise
+     * @return true if the thumbnail was written.
+     *   false if the source is not larger than the thumbnail (in pixels or in bytes),
+     *   or it couldn't be processed
+     */
+    public static boolean downscale(File source, File target, int sizePixels) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(source.getAbsolutePath(), options);
+        if (options.outWidth <= sizePixels && options.outHeight <= sizePixels) {
+            return false;
+        }
+        Bitmap bitmap = decodeSampled(source, sizePixels);
+        if (bitmap == null) {
+            return false;
+        }
+        float scale = Math.min(1f, (float) sizePixels / Math.max(bitmap.getWidth(), bitmap.getHeight()));
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+        if (scaled != bitmap) {
+            bitmap.recycle();
+        }
+        boolean ok = false;
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(target));
+            if (scaled.hasAlpha()) {
+                ok = scaled.compress(Bitmap.CompressFormat.PNG, 100, out);
+            } else {
+                ok = scaled.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+            }
+        } catch (IOException e) {
+            MyLog.d(AvatarScaler.class, "Failed to write " + target.getAbsolutePath(), e);
+        } finally {
+            DbUtils.closeSilently(out);
+            scaled.recycle();
+        }
+        if (ok && target.length() >= source.length()) {
+            MyLog.v(AvatarScaler.class, "Keeping the original " + source.getName() + ", " + source.length()
+                    + " bytes, thumbnail: " + target.length());
+            ok = false;
+        }
+        if (!ok && target.exists() && !target.delete()) {
+            MyLog.d(AvatarScaler.class, "Couldn't delete " + target.getAbsolutePath());
+        }
+        return ok;
+    }
+
+    /**
+     * Migration: shrinks avatar files, which were stored before we started to downscale them
+     * (or for another screen density). Done once per thumbnail size.
+     * @return number of files shrunk
+     */
+    public static int shrinkExisting() {
+        final String method = "shrinkExisting";
+        int sizePixels = getSizePixels();
+        if (MyPreferences.keepOriginalAvatars()
+                || MyPreferences.getDefaultSharedPreferences().getInt(
+                        MyPreferences.KEY_AVATARS_DOWNSCALED_SIZE, 0) == sizePixels) {
+            return 0;
+        }
+        File dir = MyPreferences.getDataFilesDir(MyPreferences.DIRECTORY_AVATARS, null);
+        if (dir == null) {
+            return 0;
+        }
+        int count = 0;
+        long bytesBefore = 0;
+        long bytesAfter = 0;
+        String[] fileNames = dir.list();
+        for (String fileName : fileNames == null ? new String[0] : fileNames) {
+            File file = new File(dir, fileName);
+            if (!file.isFile() || fileName.startsWith(TEMP_FILE_PREFIX)) {
+                continue;
+            }
+            File fileTemp = new File(dir, TEMP_FILE_PREFIX + fileName);
+            long length = file.length();
+            if (downscale(file, fileTemp, sizePixels)) {
+                // Renaming replaces the file atomically, so the avatar is never lost
+                if (fileTemp.renameTo(file)) {
+                    count++;
+                    bytesBefore += length;
+                    bytesAfter += file.length();
+                    AvatarCache.getInstance().remove(fileName);
+                } else {
+                    MyLog.e(AvatarScaler.class, method + "; couldn't replace " + file.getAbsolutePath());
+                    if (fileTemp.exists() && !fileTemp.delete()) {
+                        MyLog.e(AvatarScaler.class, method + "; couldn't delete " + fileTemp.getAbsolutePath());
+                    }
+                }
+            }
+        }
+        MyPreferences.getDefaultSharedPreferences().edit()
+                .putInt(MyPreferences.KEY_AVATARS_DOWNSCALED_SIZE, sizePixels).commit();
+        MyLog.v(AvatarScaler.class, method + "; shrunk " + count + " files to " + sizePixels
+                + "px, bytes before=" + bytesBefore + ", after=" + bytesAfter);
+        return count;
+    }
+}
@@ -420,7 +420,9 @@ public class DataInserter {
         LatestUserMessages lum = new LatestUserMessages();
         long rowId = insertOrUpdateMsg(message, lum);
         lum.save();
-        execContext.getContext().getContentResolver().notifyChange(MyProvider.TIMELINE_URI, null);
+        TimelineChangeNotifier.onTimelineChanged(
+                execContext.getMyAccount() == null ? 0 : execContext.getMyAccount().getUserId(),
+                execContext.getTimelineType());
         return rowId;
     }
 }
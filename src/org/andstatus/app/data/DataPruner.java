@@ -18,10 +18,10 @@ package org.andstatus.app.data;
 
 import android.content.ContentResolver;
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.database.Cursor;
 
-import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.PreferencesSnapshot;
 import org.andstatus.app.data.MyDatabase.FollowingUser;
 import org.andstatus.app.data.MyDatabase.Msg;
 import org.andstatus.app.data.MyDatabase.MsgOfUser;
@@ -59,8 +59,7 @@ public class DataPruner {
         mDeleted = 0;
         int nDeletedTime = 0;
         // We're using global preferences here
-        SharedPreferences sp = MyPreferences
-                .getDefaultSharedPreferences();
+        PreferencesSnapshot preferences = MyContextHolder.get().preferences();
 
         // Don't delete messages which are favorited by any user
         String sqlNotFavoritedMessage = "NOT EXISTS ("
@@ -77,13 +76,13 @@ public class DataPruner {
                 + " AND " + FollowingUser.TABLE_NAME + "." + FollowingUser.USER_FOLLOWED + "=1"
                 + ")";
         
-        int maxDays = Integer.parseInt(sp.getString(MyPreferences.KEY_HISTORY_TIME, "3"));
+        int maxDays = preferences.historyTimeDays;
         long latestTimestamp = 0;
 
         int nTweets = 0;
         int nToDeleteSize = 0;
         int nDeletedSize = 0;
-        int maxSize = Integer.parseInt(sp.getString(MyPreferences.KEY_HISTORY_SIZE, "2000"));
+        int maxSize = preferences.historySize;
         long latestTimestampSize = 0;
         Cursor cursor = null;
         try {
@@ -100,13 +99,8 @@ public class DataPruner {
 
             if (maxSize > 0) {
                 nDeletedSize = 0;
-                cursor = mContentResolver.query(MyProvider.MSG_CONTENT_COUNT_URI, null, null, null, null);
-                if (cursor.moveToFirst()) {
-                    // Count is in the first column
-                    nTweets = cursor.getInt(0);
-                    nToDeleteSize = nTweets - maxSize;
-                }
-                cursor.close();
+                nTweets = (int) TimelineCounters.getTotal();
+                nToDeleteSize = nTweets - maxSize;
                 if (nToDeleteSize > 0) {
                     // Find INS_DATE of the most recent tweet to delete
                     cursor = mContentResolver.query(MyProvider.MSG_CONTENT_URI, new String[] {
@@ -142,6 +136,8 @@ public class DataPruner {
                     + nDeletedSize + " of " + nTweets + " messages, before " + new Date(latestTimestampSize).toString());
         }
         pruneLogs(MAX_DAYS_LOGS_TO_KEEP);
+        AvatarScaler.shrinkExisting();
+        AvatarDiskCache.trim();
         return ok;
     }
 
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * In-memory log of the latest changes of messages, made through {@link MyProvider},
+ * so a timeline may re-query only the messages, which changed since it was loaded.
+ * Changes of Users, which are shown with their messages (the name and the avatar), are logged here also.
+ * The log is short: if it cannot tell exactly, which messages changed, the whole timeline should be reloaded.
+ * @author yvolk@yurivolkov.com
+ */
+public class MsgChangeLog {
+    static final int CAPACITY = 256;
+
+    private static final long[] msgIds = new long[CAPACITY];
+    /** A change is either of a message or of a User, the other id is 0 */
+    private static final long[] userIds = new long[CAPACITY];
+    /** Guarded by the class. Version of the latest change. The change N is stored at N % CAPACITY */
+    private static long version = 1;
+    /** Changes up to this version (inclusive) are not known by message ids */
+    private static long unknownUpTo = 1;
+
+    private MsgChangeLog() {
+        // Empty
+    }
+
+    public static synchronized long getVersion() {
+        return version;
+    }
+
+    static synchronized void onChanged(long msgId) {
+        version++;
+        msgIds[(int) (version % CAPACITY)] = msgId;
+        userIds[(int) (version % CAPACITY)] = 0;
+    }
+
+    /**
+     * The User's name or avatar changed, so the User's messages should be shown anew
+     */
+    public static synchronized void onUserChanged(long userId) {
+        version++;
+        msgIds[(int) (version % CAPACITY)] = 0;
+        userIds[(int) (version % CAPACITY)] = userId;
+    }
+
+    /**
+     * Some messages changed (e.g. were deleted), but we don't know which of them
+     */
+    static synchronized void onChangedUnknown() {
+        version++;
+        unknownUpTo = version;
+    }
+
+    /**
+     * @return Ids of the messages, changed after the version, null if we don't know them
+     */
+    public static synchronized Set<Long> getChangedSince(long versionFrom) {
+        if (versionFrom < unknownUpTo || version - versionFrom >= CAPACITY) {
+            return null;
+        }
+        return getIdsSince(msgIds, versionFrom);
+    }
+
+    /**
+     * @return Ids of the Users, changed after the version, null if we don't know them
+     */
+    public static synchronized Set<Long> getUsersChangedSince(long versionFrom) {
+        if (versionFrom < unknownUpTo || version - versionFrom >= CAPACITY) {
+            return null;
+        }
+        return getIdsSince(userIds, versionFrom);
+    }
+
+    private static Set<Long> getIdsSince(long[] ids, long versionFrom) {
+        Set<Long> changed = new HashSet<Long>();
+        for (long ind = versionFrom + 1; ind <= version; ind++) {
+            long id = ids[(int) (ind % CAPACITY)];
+            if (id != 0) {
+                changed.add(id);
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+/**
+ * Delivery status of a message, see {@link MyDatabase.Msg#MSG_STATUS} and {@link Outbox}
+ * @author yvolk@yurivolkov.com
+ */
+public enum MsgStatus {
+    /** The message came from the server or was delivered to it */
+    LOADED(0),
+    /** The message was composed locally and waits for delivery */
+    SENDING(1),
+    /** Delivery failed, it will be retried */
+    FAILED(2),
+    /** Delivery failed and won't be retried: the User may resend or remove the message */
+    NOT_SENT(3);
+
+    private int code;
+    private MsgStatus(int codeIn) {
+        code = codeIn;
+    }
+
+    public String save() {
+        return Integer.toString(code);
+    }
+
+    public static MsgStatus load(int codeIn) {
+        for (MsgStatus status : MsgStatus.values()) {
+            if (status.code == codeIn) {
+                return status;
+            }
+        }
+        return LOADED;
+    }
+}
@@ -40,6 +40,8 @@ public final class MyDatabase extends SQLiteOpenHelper  {
      * This is used to check (and upgrade if necessary) 
      * existing database after application update.
      * 
+     * v.19 2014-06-28 yvolk. Avatar table extended with the download size of the file
+     * v.16 2014-06-14 yvolk. Avatar files are shared by URL, avatar table extended with HTTP validators
      * v.15 2014-02-16 yvolk. Public timeline added
      * v.14 2013-12-15 yvolk. Origin table added
      * v.13 2013-12-06 yvolk. Avatar table added
@@ -52,7 +54,7 @@ public final class MyDatabase extends SQLiteOpenHelper  {
      *      All messages are in the same table. 
      *      Allows to have multiple User Accounts in different Originating systems (twitter.com etc. ) 
      */
-    public static final int DATABASE_VERSION = 15;
+    public static final int DATABASE_VERSION = 19;
     public static final String DATABASE_NAME = "andstatus.sqlite";
 
     /**
@@ -144,6 +146,10 @@ public final class MyDatabase extends SQLiteOpenHelper  {
          * The Msg is public
          */
         public static final String PUBLIC = "public";
+        /**
+         * Delivery status of the message, see {@link MsgStatus}
+         */
+        public static final String MSG_STATUS = "msg_status";
 
         /*
          * Derived columns (they are not stored in this table but are result of joins and aliasing)
@@ -388,6 +394,19 @@ public final class MyDatabase extends SQLiteOpenHelper  {
          * Date and time there was last attempt to load avatar. The attempt may be successfull or not.
          */
         public static final String LOADED_DATE = "avatar_loaded_date";
+        /**
+         * "ETag" response header of the loaded file, used to revalidate it
+         */
+        public static final String ETAG = "avatar_etag";
+        /**
+         * "Last-Modified" response header of the loaded file (date in milliseconds)
+         */
+        public static final String LAST_MODIFIED = "avatar_last_modified";
+        /**
+         * Size of the file, as it was downloaded (before downscaling), bytes.
+         * This is how much a "304 Not Modified" response saves
+         */
+        public static final String DOWNLOAD_SIZE = "avatar_download_size";
         
         /*
          * Derived columns (they are not stored in this table but are result of joins)
@@ -398,6 +417,26 @@ public final class MyDatabase extends SQLiteOpenHelper  {
         public static final String AVATAR_ID = "avatar_id";
     }
 
+    /**
+     * Materialized numbers of messages: per User (Account) and Timeline type, and the total one.
+     * The table is maintained by triggers on the {@link Msg} and {@link MsgOfUser} tables,
+     * see {@link TimelineCounters}
+     */
+    public static final class TimelineCounter {
+        public static final String TABLE_NAME = TimelineCounter.class.getSimpleName().toLowerCase(Locale.US);
+        private TimelineCounter() {
+        }
+        /**
+         * 0 for the total number of messages
+         */
+        public static final String USER_ID = User.USER_ID;
+        /**
+         * See {@link TimelineTypeEnum#save()}
+         */
+        public static final String TIMELINE_TYPE = "timeline_type";
+        public static final String COUNTER = "counter";
+    }
+
     public static final class Origin implements BaseColumns {
         public static final String TABLE_NAME = Origin.class.getSimpleName().toLowerCase(Locale.US);
         private Origin() {
@@ -483,7 +522,8 @@ public final class MyDatabase extends SQLiteOpenHelper  {
                 + Msg.CREATED_DATE + " INTEGER,"
                 + Msg.SENT_DATE + " INTEGER,"
                 + Msg.INS_DATE + " INTEGER NOT NULL,"
-                + Msg.PUBLIC + " BOOLEAN DEFAULT 0 NOT NULL" 
+                + Msg.PUBLIC + " BOOLEAN DEFAULT 0 NOT NULL," 
+                + Msg.MSG_STATUS + " INTEGER DEFAULT 0 NOT NULL" 
                 + ")");
 
         db.execSQL("CREATE UNIQUE INDEX idx_msg_origin ON " + Msg.TABLE_NAME + " (" 
@@ -555,7 +595,10 @@ public final class MyDatabase extends SQLiteOpenHelper  {
                 + Avatar.URL + " TEXT NOT NULL," 
                 + Avatar.FILE_NAME + " TEXT," 
                 + Avatar.STATUS + " INTEGER NOT NULL DEFAULT 0," 
-                + Avatar.LOADED_DATE + " INTEGER"
+                + Avatar.LOADED_DATE + " INTEGER,"
+                + Avatar.ETAG + " TEXT,"
+                + Avatar.LAST_MODIFIED + " INTEGER NOT NULL DEFAULT 0,"
+                + Avatar.DOWNLOAD_SIZE + " INTEGER NOT NULL DEFAULT 0"
                 + ")");
 
         db.execSQL("CREATE INDEX idx_avatar_user ON " + Avatar.TABLE_NAME + " (" 
@@ -563,6 +606,10 @@ public final class MyDatabase extends SQLiteOpenHelper  {
                 + Avatar.STATUS
                 + ")");
 
+        db.execSQL("CREATE INDEX idx_avatar_file_name ON " + Avatar.TABLE_NAME + " ("
+                + Avatar.FILE_NAME
+                + ")");
+
         db.execSQL("CREATE TABLE " + Origin.TABLE_NAME + " (" 
                 + BaseColumns._ID + " INTEGER PRIMARY KEY AUTOINCREMENT," 
                 + Origin.ORIGIN_TYPE_ID + " INTEGER NOT NULL," 
@@ -600,6 +647,8 @@ public final class MyDatabase extends SQLiteOpenHelper  {
         for (String value : values) {
             db.execSQL(sqlIns.replace("%s", value));
         }
+
+        TimelineCounters.create(db);
         
     }
 
@@ -104,6 +104,18 @@ class MyDatabaseConverter {
         if (currentVersion == 14) {
             currentVersion = convert14to15(db, currentVersion);
         }
+        if (currentVersion == 15) {
+            currentVersion = convert15to16(db, currentVersion);
+        }
+        if (currentVersion == 16) {
+            currentVersion = convert16to17(db, currentVersion);
+        }
+        if (currentVersion == 17) {
+            currentVersion = convert17to18(db, currentVersion);
+        }
+        if (currentVersion == 18) {
+            currentVersion = convert18to19(db, currentVersion);
+        }
         if ( currentVersion == newVersion) {
             MyLog.i(this, "Successfully upgraded database from version " + oldVersion + " to version "
                     + newVersion + ".");
@@ -262,4 +274,101 @@ class MyDatabaseConverter {
         }
         return ok ? versionTo : oldVersion;
     }
+
+    private int convert15to16(SQLiteDatabase db, int oldVersion) {
+        final int versionTo = 16;
+        boolean ok = false;
+        String sql = "";
+        try {
+            MyLog.i(this, "Database upgrading step from version " + oldVersion + " to version " + versionTo );
+            
+            sql = "ALTER TABLE avatar ADD COLUMN avatar_etag TEXT";
+            db.execSQL(sql);
+            sql = "ALTER TABLE avatar ADD COLUMN avatar_last_modified INTEGER NOT NULL DEFAULT 0";
+            db.execSQL(sql);
+            sql = "CREATE INDEX idx_avatar_file_name ON avatar (avatar_file_name)";
+            db.execSQL(sql);
+            
+            ok = true;
+        } catch (Exception e) {
+            MyLog.e(this, e);
+        }
+        if (ok) {
+            MyLog.i(this, "Database upgrading step successfully upgraded database from " + oldVersion + " to version " + versionTo);
+        } else {
+            MyLog.e(this, "Database upgrading step failed to upgrade database from " + oldVersion 
+                    + " to version " + versionTo
+                    + " SQL='" + sql +"'");
+        }
+        return ok ? versionTo : oldVersion;
+    }
+
+    private int convert16to17(SQLiteDatabase db, int oldVersion) {
+        final int versionTo = 17;
+        boolean ok = false;
+        try {
+            MyLog.i(this, "Database upgrading step from version " + oldVersion + " to version " + versionTo );
+            
+            TimelineCounters.create(db);
+            
+            ok = true;
+        } catch (Exception e) {
+            MyLog.e(this, e);
+        }
+        if (ok) {
+            MyLog.i(this, "Database upgrading step successfully upgraded database from " + oldVersion + " to version " + versionTo);
+        } else {
+            MyLog.e(this, "Database upgrading step failed to upgrade database from " + oldVersion 
+                    + " to version " + versionTo);
+        }
+        return ok ? versionTo : oldVersion;
+    }
+
+    private int convert17to18(SQLiteDatabase db, int oldVersion) {
+        final int versionTo = 18;
+        boolean ok = false;
+        String sql = "";
+        try {
+            MyLog.i(this, "Database upgrading step from version " + oldVersion + " to version " + versionTo );
+            
+            sql = "ALTER TABLE msg ADD COLUMN msg_status INTEGER DEFAULT 0 NOT NULL";
+            db.execSQL(sql);
+            
+            ok = true;
+        } catch (Exception e) {
+            MyLog.e(this, e);
+        }
+        if (ok) {
+            MyLog.i(this, "Database upgrading step successfully upgraded database from " + oldVersion + " to version " + versionTo);
+        } else {
+            MyLog.e(this, "Database upgrading step failed to upgrade database from " + oldVersion 
+                    + " to version " + versionTo
+                    + " SQL='" + sql +"'");
+        }
+        return ok ? versionTo : oldVersion;
+    }
+
+    private int convert18to19(SQLiteDatabase db, int oldVersion) {
+        final int versionTo = 19;
+        boolean ok = false;
+        String sql = "";
+        try {
+            MyLog.i(this, "Database upgrading step from version " + oldVersion + " to version " + versionTo );
+            
+            sql = "ALTER TABLE avatar ADD COLUMN avatar_download_size INTEGER NOT NULL DEFAULT 0";
+            db.execSQL(sql);
+            
+            ok = true;
+        } catch (Exception e) {
+            MyLog.e(this, e);
+        }
+        if (ok) {
+            MyLog.i(this, "Database upgrading step successfully upgraded database from " + oldVersion + " to version " + versionTo);
+        } else {
+            MyLog.e(this, "Database upgrading step failed to upgrade database from " + oldVersion 
+                    + " to version " + versionTo
+                    + " SQL='" + sql +"'");
+        }
+        return ok ? versionTo : oldVersion;
+    }
 }
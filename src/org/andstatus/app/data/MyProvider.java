@@ -100,6 +100,7 @@ public class MyProvider extends ContentProvider {
         MSG_PROJECTION_MAP.put(Msg.CREATED_DATE, Msg.CREATED_DATE);
         MSG_PROJECTION_MAP.put(Msg.SENT_DATE, Msg.SENT_DATE);
         MSG_PROJECTION_MAP.put(Msg.INS_DATE, Msg.INS_DATE);
+        MSG_PROJECTION_MAP.put(Msg.MSG_STATUS, Msg.MSG_STATUS);
         MSG_PROJECTION_MAP.put(FollowingUser.AUTHOR_FOLLOWED, FollowingUser.AUTHOR_FOLLOWED);
         MSG_PROJECTION_MAP.put(FollowingUser.SENDER_FOLLOWED, FollowingUser.SENDER_FOLLOWED);
     }
@@ -318,6 +319,7 @@ public class MyProvider extends ContentProvider {
                     // Now delete messages themselves
                     sqlDesc = selection + descSuffix;
                     count = db.delete(Msg.TABLE_NAME, selection, selectionArgs);
+                    MsgChangeLog.onChangedUnknown();
                     /*
                     if (count > 0) {
                         // Now delete all related records from MyDatabase.MsgOfUser which don't have their messages
@@ -336,7 +338,7 @@ public class MyProvider extends ContentProvider {
                     db.endTransaction();
                 }
                 if (count > 0) {
-                    getContext().getContentResolver().notifyChange(MyProvider.TIMELINE_URI, null);
+                    TimelineChangeNotifier.onAllChanged();
                 }
                 break;
 
@@ -435,6 +437,9 @@ public class MyProvider extends ContentProvider {
             
             msgOfUserValues.setMsgId(rowId);
             msgOfUserValues.insert(db);
+            if (Msg.TABLE_NAME.equals(table)) {
+                MsgChangeLog.onChanged(rowId);
+            }
 
             if (followingUserValues != null) {
                 followingUserValues.followingUserId =  rowId;
@@ -466,10 +471,44 @@ public class MyProvider extends ContentProvider {
     }
 
     private void loadAvatar(long rowId, ContentValues values) {
-        if (MyPreferences.showAvatars() && values.containsKey(User.AVATAR_URL)) {
+        if (MyPreferences.showAvatars() && values.containsKey(User.AVATAR_URL)
+                && isAvatarDownloadNeeded(rowId, values.getAsString(User.AVATAR_URL))) {
             MyServiceManager.sendCommand(new CommandData(CommandEnum.FETCH_AVATAR, null, rowId));
         }
     }
+
+    /**
+     * @return true if the avatar with this URL is not loaded yet or it's time to revalidate it,
+     *  see {@link AvatarDrawable#REVALIDATE_AFTER_MILLIS}
+     */
+    private static boolean isAvatarDownloadNeeded(long userId, String url) {
+        if (TextUtils.isEmpty(url)) {
+            return true;
+        }
+        String sql = "SELECT " + Avatar.STATUS + ", " + Avatar.LOADED_DATE
+                + " FROM " + Avatar.TABLE_NAME
+                + " WHERE " + Avatar.USER_ID + "=" + userId + " AND " + Avatar.URL + "=" + quoteIfNotQuoted(url);
+        boolean needed = true;
+        Cursor cursor = null;
+        try {
+            cursor = MyContextHolder.get().getDatabase().getReadableDatabase().rawQuery(sql, null);
+            if (cursor.moveToNext()) {
+                switch (AvatarStatus.load(cursor.getInt(0))) {
+                    case LOADED:
+                        needed = System.currentTimeMillis() - cursor.getLong(1) > AvatarDrawable.REVALIDATE_AFTER_MILLIS;
+                        break;
+                    case HARD_ERROR:
+                        needed = false;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        return needed;
+    }
     
     /**
      * Move boolean value of the key from valuesIn to valuesOut and remove it from valuesIn
@@ -866,6 +905,7 @@ public class MyProvider extends ContentProvider {
         switch (matchedUri) {
             case MSG:
                 count = db.update(Msg.TABLE_NAME, values, selection, selectionArgs);
+                MsgChangeLog.onChangedUnknown();
                 break;
 
             case TIMELINE_MSG_ID:
@@ -879,19 +919,30 @@ public class MyProvider extends ContentProvider {
                             selectionArgs);
                 }
                 count += msgOfUserValues.update(db);
+                MsgChangeLog.onChanged(rowId);
                 break;
 
             case USERS:
                 count = db.update(User.TABLE_NAME, values, selection, selectionArgs);
+                if (values.containsKey(User.USERNAME)) {
+                    MsgChangeLog.onChangedUnknown();
+                }
                 break;
             case USER:
                 accountUserId = uriToAccountUserId(uri);
                 long selectedUserId = uriToUserId(uri);
+                // Users are updated on every sync, so we log actual renames only
+                boolean renamed = values.containsKey(User.USERNAME)
+                        && !TextUtils.equals(values.getAsString(User.USERNAME),
+                                userIdToStringColumnValue(User.USERNAME, selectedUserId));
                 FollowingUserValues followingUserValues = FollowingUserValues.valueOf(accountUserId, selectedUserId, values);
                 count = db.update(User.TABLE_NAME, values, BaseColumns._ID + "=" + selectedUserId
                         + (!TextUtils.isEmpty(selection) ? " AND (" + selection + ')' : ""),
                         selectionArgs);
                 followingUserValues.update(db);
+                if (renamed) {
+                    MsgChangeLog.onUserChanged(selectedUserId);
+                }
                 loadAvatar(selectedUserId, values);
                 break;
 
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.content.ContentValues;
+import android.net.Uri;
+import android.provider.BaseColumns;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.data.MyDatabase.Msg;
+import org.andstatus.app.data.MyDatabase.MsgOfUser;
+import org.andstatus.app.data.MyDatabase.OidEnum;
+import org.andstatus.app.util.MyLog;
+
+/**
+ * Messages, composed locally, are shown in the timeline at once: they are stored
+ * before delivery with a temporary oid and {@link MsgStatus#SENDING}.
+ * After delivery the row gets the oid from the server and is updated as any loaded message
+ * @author yvolk@yurivolkov.com
+ */
+public final class Outbox {
+    static final String TEMP_OID_PREFIX = "andstatustemp:";
+    private static final int N_RETRIES = 3;
+
+    private Outbox() {
+        // Empty
+    }
+
+    /**
+     * @return Id of the pending message, 0 if it couldn't be stored
+     */
+    public static long addPending(MyAccount ma, String body, long replyToMsgId, long recipientUserId) {
+        TimelineTypeEnum timelineType = recipientUserId == 0 ? TimelineTypeEnum.HOME : TimelineTypeEnum.DIRECT;
+        long now = System.currentTimeMillis();
+        ContentValues values = new ContentValues();
+        values.put(Msg.MSG_OID, TEMP_OID_PREFIX + ma.getUserId() + "-" + now + "-" + System.nanoTime());
+        values.put(Msg.ORIGIN_ID, ma.getOriginId());
+        values.put(Msg.SENDER_ID, ma.getUserId());
+        values.put(Msg.AUTHOR_ID, ma.getUserId());
+        values.put(Msg.BODY, body.trim());
+        values.put(Msg.CREATED_DATE, now);
+        // The message is shown at the top of the timeline till it's delivered
+        values.put(Msg.SENT_DATE, now);
+        values.put(Msg.MSG_STATUS, MsgStatus.SENDING.save());
+        if (replyToMsgId != 0) {
+            values.put(Msg.IN_REPLY_TO_MSG_ID, replyToMsgId);
+            long inReplyToUserId = MyProvider.msgIdToLongColumnValue(Msg.SENDER_ID, replyToMsgId);
+            if (inReplyToUserId != 0) {
+                values.put(Msg.IN_REPLY_TO_USER_ID, inReplyToUserId);
+            }
+        }
+        if (recipientUserId == 0) {
+            values.put(MsgOfUser.SUBSCRIBED, 1);
+        } else {
+            values.put(Msg.RECIPIENT_ID, recipientUserId);
+            values.put(MsgOfUser.DIRECTED, 1);
+        }
+        long msgId = 0;
+        try {
+            Uri msgUri = MyContextHolder.get().context().getContentResolver()
+                    .insert(MyProvider.getTimelineUri(ma.getUserId(), timelineType, false), values);
+            if (msgUri != null) {
+                msgId = MyProvider.uriToMessageId(msgUri);
+            }
+        } catch (Exception e) {
+            MyLog.e(Outbox.class, "addPending", e);
+        }
+        if (msgId != 0) {
+            TimelineChangeNotifier.onTimelineChanged(ma.getUserId(), timelineType);
+        }
+        MyLog.v(Outbox.class, "addPending; msgId=" + msgId + ", " + timelineType);
+        return msgId;
+    }
+
+    /**
+     * @return true if the message was not delivered yet
+     */
+    public static boolean isPending(String oid) {
+        return oid != null && oid.startsWith(TEMP_OID_PREFIX);
+    }
+
+    /**
+     * @return true if the message was not delivered yet, so it can't be replied to, favorited etc.
+     */
+    public static boolean isPending(long msgId) {
+        return msgId != 0 && isPending(MyProvider.msgIdToStringColumnValue(Msg.MSG_OID, msgId));
+    }
+
+    /**
+     * @param pendingMsgId Id of the message in the Outbox, 0 if the message was not stored before sending
+     * @return false if the pending message was deleted (or delivered already), so it shouldn't be sent
+     */
+    public static boolean maySend(long pendingMsgId) {
+        return pendingMsgId == 0 || isPending(pendingMsgId);
+    }
+
+    /**
+     * Changes status of the pending message. Does nothing for other messages
+     */
+    public static void setStatus(long msgId, MsgStatus status) {
+        if (msgId == 0) {
+            return;
+        }
+        ContentValues values = new ContentValues();
+        values.put(Msg.MSG_STATUS, status.save());
+        int updated = 0;
+        try {
+            updated = MyContextHolder.get().getDatabase().getWritableDatabase().update(Msg.TABLE_NAME, values,
+                    BaseColumns._ID + "=" + msgId + " AND " + Msg.MSG_OID + " LIKE '" + TEMP_OID_PREFIX + "%'", null);
+        } catch (Exception e) {
+            MyLog.e(Outbox.class, "setStatus " + status + "; msgId=" + msgId, e);
+        }
+        if (updated > 0) {
+            MsgChangeLog.onChanged(msgId);
+            TimelineChangeNotifier.onAllChanged();
+        }
+    }
+
+    /**
+     * The pending message was delivered: it gets the oid from the server, so it will be updated
+     * with the delivered message instead of showing the message twice.
+     * If the delivered message is already stored (e.g. it was loaded with a timeline), the pending one is deleted
+     * @return true if the pending message now has the oid
+     */
+    public static boolean onSent(long msgId, String oid, long originId) {
+        if (msgId == 0 || !isPending(MyProvider.msgIdToStringColumnValue(Msg.MSG_OID, msgId))) {
+            return false;
+        }
+        if (MyProvider.oidToId(OidEnum.MSG_OID, originId, oid) != 0) {
+            MyContextHolder.get().context().getContentResolver()
+                    .delete(MyProvider.MSG_CONTENT_URI, Msg.TABLE_NAME + "." + BaseColumns._ID + "=" + msgId, null);
+            MyLog.v(Outbox.class, "onSent; msgId=" + msgId + " deleted, oid='" + oid + "' is stored already");
+            return false;
+        }
+        ContentValues values = new ContentValues();
+        values.put(Msg.MSG_OID, oid);
+        values.put(Msg.MSG_STATUS, MsgStatus.LOADED.save());
+        // So the delivered message will be stored as a new one, see DataInserter
+        values.put(Msg.SENT_DATE, 0);
+        return DbUtils.updateRowWithRetry(Msg.TABLE_NAME, msgId, values, N_RETRIES) == 1;
+    }
+}
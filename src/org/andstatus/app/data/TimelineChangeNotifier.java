@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.util.MyLog;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Coalesces notifications about changed timelines: changes, made during a short time window,
+ * are sent at its end, each URI once. Only the timelines, which may show the changed messages,
+ * are notified, so other loaders don't re-query.
+ * @author yvolk@yurivolkov.com
+ */
+public class TimelineChangeNotifier {
+    static final long WINDOW_MILLIS = 500;
+    /** These timelines are not based on a timeline type flag, so they may show messages of any timeline */
+    private static final TimelineTypeEnum[] MIXED_TIMELINES = {
+            TimelineTypeEnum.USER, TimelineTypeEnum.FOLLOWING_USER, TimelineTypeEnum.MESSAGESTOACT,
+            TimelineTypeEnum.PUBLIC, TimelineTypeEnum.FAVORITES
+    };
+
+    /** Guarded by the class */
+    private static final Set<Uri> pending = new HashSet<Uri>();
+    private static boolean flushScheduled = false;
+    private static long requested = 0;
+    private static long sent = 0;
+    private static long suppressed = 0;
+
+    private static final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+    private static volatile Handler handler = null;
+
+    private TimelineChangeNotifier() {
+        // Empty
+    }
+
+    /**
+     * Messages of this timeline of the account changed
+     */
+    public static void onTimelineChanged(long accountUserId, TimelineTypeEnum timelineType) {
+        if (accountUserId == 0 || timelineType == null
+                || timelineType == TimelineTypeEnum.UNKNOWN || timelineType == TimelineTypeEnum.ALL) {
+            onAllChanged();
+            return;
+        }
+        Set<Uri> uris = new HashSet<Uri>();
+        addUris(uris, accountUserId, timelineType);
+        for (TimelineTypeEnum mixed : MIXED_TIMELINES) {
+            addUris(uris, accountUserId, mixed);
+        }
+        add(uris);
+    }
+
+    private static void addUris(Set<Uri> uris, long accountUserId, TimelineTypeEnum timelineType) {
+        uris.add(MyProvider.getTimelineUri(accountUserId, timelineType, false));
+        // Combined timelines are shown for any current account
+        for (MyAccount ma : MyContextHolder.get().persistentAccounts().collection()) {
+            uris.add(MyProvider.getTimelineUri(ma.getUserId(), timelineType, true));
+        }
+    }
+
+    /**
+     * We don't know, which timelines changed
+     */
+    public static void onAllChanged() {
+        Set<Uri> uris = new HashSet<Uri>();
+        uris.add(MyProvider.TIMELINE_URI);
+        add(uris);
+    }
+
+    private static void add(Set<Uri> uris) {
+        synchronized (TimelineChangeNotifier.class) {
+            requested++;
+            for (Uri uri : uris) {
+                if (!pending.add(uri)) {
+                    suppressed++;
+                }
+            }
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        getHandler().postDelayed(flushRunnable, WINDOW_MILLIS);
+    }
+
+    private static Handler getHandler() {
+        if (handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+        }
+        return handler;
+    }
+
+    /**
+     * Send pending notifications now
+     */
+    public static void flush() {
+        Set<Uri> uris;
+        synchronized (TimelineChangeNotifier.class) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            if (pending.contains(MyProvider.TIMELINE_URI)) {
+                // Notifies all timelines
+                suppressed += pending.size() - 1;
+                uris = new HashSet<Uri>();
+                uris.add(MyProvider.TIMELINE_URI);
+            } else {
+                uris = new HashSet<Uri>(pending);
+            }
+            pending.clear();
+            sent += uris.size();
+        }
+        for (Uri uri : uris) {
+            MyContextHolder.get().context().getContentResolver().notifyChange(uri, null);
+        }
+        if (MyLog.isLoggable(TimelineChangeNotifier.class, MyLog.VERBOSE)) {
+            MyLog.v(TimelineChangeNotifier.class, "Notified " + uris.size() + " URIs; " + getStats());
+        }
+    }
+
+    public static synchronized String getStats() {
+        return MyLog.formatKeyValue("TimelineChangeNotifier", "requested:" + requested + ", sent:" + sent
+                + ", suppressed:" + suppressed + ", pending:" + pending.size());
+    }
+
+    static synchronized long getSuppressed() {
+        return suppressed;
+    }
+
+    static synchronized int getPendingCount() {
+        return pending.size();
+    }
+}
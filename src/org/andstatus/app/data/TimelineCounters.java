@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.data.MyDatabase.Msg;
+import org.andstatus.app.data.MyDatabase.MsgOfUser;
+import org.andstatus.app.data.MyDatabase.TimelineCounter;
+import org.andstatus.app.util.MyLog;
+
+/**
+ * Numbers of messages, which are kept up to date by SQLite triggers, so reading a number
+ * is one lookup by the primary key instead of counting rows of the {@link Msg} table.
+ * Counted are: all messages (see {@link #getTotal()}) and messages of the "flag" timelines of each User,
+ * see {@link #COUNTED_TIMELINES}
+ * @author yvolk@yurivolkov.com
+ */
+public final class TimelineCounters {
+    /** User id of the {@link TimelineTypeEnum#ALL} counter */
+    static final long TOTAL_USER_ID = 0;
+    /** Timeline types, counted for each User, and their flags in the {@link MsgOfUser} table */
+    static final TimelineTypeEnum[] COUNTED_TIMELINES = {
+            TimelineTypeEnum.HOME, TimelineTypeEnum.FAVORITES, TimelineTypeEnum.MENTIONS, TimelineTypeEnum.DIRECT
+    };
+    private static final String[] COUNTED_FLAGS = {
+            MsgOfUser.SUBSCRIBED, MsgOfUser.FAVORITED, MsgOfUser.MENTIONED, MsgOfUser.DIRECTED
+    };
+
+    private TimelineCounters() {
+        // Empty
+    }
+
+    /**
+     * @return Number of all messages in the database
+     */
+    public static long getTotal() {
+        return get(TimelineTypeEnum.ALL, TOTAL_USER_ID);
+    }
+
+    /**
+     * @return Number of messages of this timeline type for the User, 0 if not counted
+     */
+    public static long get(TimelineTypeEnum timelineType, long userId) {
+        MyDatabase database = MyContextHolder.get().getDatabase();
+        if (database == null) {
+            return 0;
+        }
+        String sql = "SELECT " + TimelineCounter.COUNTER + " FROM " + TimelineCounter.TABLE_NAME
+                + " WHERE " + TimelineCounter.USER_ID + "=" + userId
+                + " AND " + TimelineCounter.TIMELINE_TYPE + "='" + timelineType.save() + "'";
+        try {
+            return DatabaseUtils.longForQuery(database.getReadableDatabase(), sql, null);
+        } catch (SQLiteDoneException e) {
+            // No row yet: nothing was counted
+            return 0;
+        } catch (Exception e) {
+            MyLog.i(TimelineCounters.class, "get; SQL='" + sql + "'", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Creates the table, its triggers and counts existing messages
+     */
+    static void create(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TimelineCounter.TABLE_NAME + " ("
+                + TimelineCounter.USER_ID + " INTEGER NOT NULL,"
+                + TimelineCounter.TIMELINE_TYPE + " TEXT NOT NULL,"
+                + TimelineCounter.COUNTER + " INTEGER NOT NULL DEFAULT 0,"
+                + " CONSTRAINT pk_timelinecounter PRIMARY KEY (" + TimelineCounter.USER_ID + " ASC, "
+                + TimelineCounter.TIMELINE_TYPE + " ASC)"
+                + ")");
+
+        db.execSQL("CREATE TRIGGER trg_msg_insert AFTER INSERT ON " + Msg.TABLE_NAME
+                + " BEGIN " + sqlUpdateTotal("+ 1") + "; END");
+        db.execSQL("CREATE TRIGGER trg_msg_delete AFTER DELETE ON " + Msg.TABLE_NAME
+                + " BEGIN " + sqlUpdateTotal("- 1") + "; END");
+
+        StringBuilder insertRows = new StringBuilder();
+        for (TimelineTypeEnum timelineType : COUNTED_TIMELINES) {
+            insertRows.append("INSERT OR IGNORE INTO " + TimelineCounter.TABLE_NAME + " ("
+                    + TimelineCounter.USER_ID + ", " + TimelineCounter.TIMELINE_TYPE + ", " + TimelineCounter.COUNTER
+                    + ") VALUES (NEW." + MsgOfUser.USER_ID + ", '" + timelineType.save() + "', 0); ");
+        }
+        db.execSQL("CREATE TRIGGER trg_msgofuser_insert AFTER INSERT ON " + MsgOfUser.TABLE_NAME
+                + " BEGIN " + insertRows + sqlUpdateFlags("NEW", "+ " + sqlFlagsCase("NEW")) + "; END");
+        db.execSQL("CREATE TRIGGER trg_msgofuser_update AFTER UPDATE ON " + MsgOfUser.TABLE_NAME
+                + " BEGIN " + sqlUpdateFlags("NEW", "+ " + sqlFlagsCase("NEW") + " - " + sqlFlagsCase("OLD"))
+                + "; END");
+        db.execSQL("CREATE TRIGGER trg_msgofuser_delete AFTER DELETE ON " + MsgOfUser.TABLE_NAME
+                + " BEGIN " + sqlUpdateFlags("OLD", "- " + sqlFlagsCase("OLD")) + "; END");
+
+        recount(db);
+    }
+
+    /**
+     * Counts all messages anew, e.g. after the upgrade of the database
+     */
+    static void recount(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + TimelineCounter.TABLE_NAME);
+        db.execSQL("INSERT INTO " + TimelineCounter.TABLE_NAME + " ("
+                + TimelineCounter.USER_ID + ", " + TimelineCounter.TIMELINE_TYPE + ", " + TimelineCounter.COUNTER
+                + ") SELECT " + TOTAL_USER_ID + ", '" + TimelineTypeEnum.ALL.save() + "', COUNT(*) FROM "
+                + Msg.TABLE_NAME);
+        for (int ind = 0; ind < COUNTED_TIMELINES.length; ind++) {
+            db.execSQL("INSERT INTO " + TimelineCounter.TABLE_NAME + " ("
+                    + TimelineCounter.USER_ID + ", " + TimelineCounter.TIMELINE_TYPE + ", " + TimelineCounter.COUNTER
+                    + ") SELECT " + MsgOfUser.USER_ID + ", '" + COUNTED_TIMELINES[ind].save() + "', "
+                    + "SUM(" + COUNTED_FLAGS[ind] + "=1) FROM " + MsgOfUser.TABLE_NAME
+                    + " GROUP BY " + MsgOfUser.USER_ID);
+        }
+    }
+
+    private static String sqlUpdateTotal(String delta) {
+        return "UPDATE " + TimelineCounter.TABLE_NAME + " SET " + TimelineCounter.COUNTER + "="
+                + TimelineCounter.COUNTER + " " + delta
+                + " WHERE " + TimelineCounter.USER_ID + "=" + TOTAL_USER_ID
+                + " AND " + TimelineCounter.TIMELINE_TYPE + "='" + TimelineTypeEnum.ALL.save() + "'";
+    }
+
+    private static String sqlUpdateFlags(String row, String delta) {
+        return "UPDATE " + TimelineCounter.TABLE_NAME + " SET " + TimelineCounter.COUNTER + "="
+                + TimelineCounter.COUNTER + " " + delta
+                + " WHERE " + TimelineCounter.USER_ID + "=" + row + "." + MsgOfUser.USER_ID;
+    }
+
+    /**
+     * @return 1 if the row has the flag of the counter's timeline type, 0 otherwise
+     */
+    private static String sqlFlagsCase(String row) {
+        StringBuilder builder = new StringBuilder("(CASE " + TimelineCounter.TIMELINE_TYPE);
+        for (int ind = 0; ind < COUNTED_TIMELINES.length; ind++) {
+            builder.append(" WHEN '" + COUNTED_TIMELINES[ind].save() + "' THEN (" + row + "."
+                    + COUNTED_FLAGS[ind] + "=1)");
+        }
+        builder.append(" ELSE 0 END)");
+        return builder.toString();
+    }
+}
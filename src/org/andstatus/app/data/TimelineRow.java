@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.text.Html;
+import android.text.TextUtils;
+
+import org.andstatus.app.R;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.data.MyDatabase.Msg;
+import org.andstatus.app.data.MyDatabase.MsgOfUser;
+import org.andstatus.app.data.MyDatabase.User;
+import org.andstatus.app.util.RelativeTime;
+import org.andstatus.app.util.RelativeTimeTicker;
+
+/**
+ * Ready to show values of a Message item in a Timeline list.
+ * Is built in a background thread, so binding it to a view doesn't need parsing or formatting
+ * @author yvolk@yurivolkov.com
+ */
+public final class TimelineRow {
+    public final long msgId;
+    public final String authorName;
+    /** Parsed HTML of the message body */
+    public final CharSequence body;
+    public final long createdDate;
+    /** "In reply to...", "To..." and delivery status part of the details */
+    public final String detailsSuffix;
+    /** Relative time and the {@link #detailsSuffix}, see {@link #getDetails(Context)} */
+    private final String details;
+    /** {@link RelativeTimeTicker#getTick()}, when the {@link #details} were composed */
+    private final long detailsTick;
+    public final boolean favorited;
+    public final long linkedUserId;
+    public final long authorId;
+    public final String avatarFileName;
+
+    /**
+     * Indexes of the columns of a cursor, resolved once for all its rows
+     */
+    public static final class Columns {
+        final int msgId;
+        final int authorName;
+        final int body;
+        final int createdDate;
+        final int inReplyToMsgId;
+        final int inReplyToName;
+        final int recipientName;
+        final int favorited;
+        final int linkedUserId;
+        final int authorId;
+        final int avatarFileName;
+        final int msgStatus;
+
+        public Columns(Cursor cursor) {
+            msgId = cursor.getColumnIndex(Msg._ID);
+            authorName = cursor.getColumnIndex(User.AUTHOR_NAME);
+            body = cursor.getColumnIndex(Msg.BODY);
+            createdDate = cursor.getColumnIndex(Msg.CREATED_DATE);
+            inReplyToMsgId = cursor.getColumnIndex(Msg.IN_REPLY_TO_MSG_ID);
+            inReplyToName = cursor.getColumnIndex(User.IN_REPLY_TO_NAME);
+            recipientName = cursor.getColumnIndex(User.RECIPIENT_NAME);
+            favorited = cursor.getColumnIndex(MsgOfUser.FAVORITED);
+            linkedUserId = cursor.getColumnIndex(User.LINKED_USER_ID);
+            authorId = cursor.getColumnIndex(Msg.AUTHOR_ID);
+            avatarFileName = cursor.getColumnIndex(MyDatabase.Avatar.FILE_NAME);
+            msgStatus = cursor.getColumnIndex(Msg.MSG_STATUS);
+        }
+
+        public long getMsgId(Cursor cursor) {
+            return getLong(cursor, msgId);
+        }
+
+        public long getLinkedUserId(Cursor cursor) {
+            return getLong(cursor, linkedUserId);
+        }
+    }
+
+    private TimelineRow(Builder builder, String details, long detailsTick) {
+        msgId = builder.msgId;
+        authorName = builder.authorName;
+        body = builder.body;
+        createdDate = builder.createdDate;
+        detailsSuffix = builder.detailsSuffix;
+        this.details = details;
+        this.detailsTick = detailsTick;
+        favorited = builder.favorited;
+        linkedUserId = builder.linkedUserId;
+        authorId = builder.authorId;
+        avatarFileName = builder.avatarFileName;
+    }
+
+    private static class Builder {
+        long msgId;
+        String authorName;
+        CharSequence body;
+        long createdDate;
+        String detailsSuffix;
+        boolean favorited;
+        long linkedUserId;
+        long authorId;
+        String avatarFileName;
+    }
+
+    /**
+     * The row, which is current in the cursor
+     */
+    public static TimelineRow fromCursor(Context context, Cursor cursor, Columns columns) {
+        Builder builder = new Builder();
+        builder.msgId = getLong(cursor, columns.msgId);
+        builder.authorName = getString(cursor, columns.authorName);
+        String body = getString(cursor, columns.body);
+        builder.body = TextUtils.isEmpty(body) ? "" : Html.fromHtml(body);
+        builder.createdDate = getLong(cursor, columns.createdDate);
+        builder.detailsSuffix = getDetailsSuffix(context, cursor, columns);
+        builder.favorited = getLong(cursor, columns.favorited) == 1;
+        builder.linkedUserId = getLong(cursor, columns.linkedUserId);
+        builder.authorId = getLong(cursor, columns.authorId);
+        if (columns.avatarFileName > -1) {
+            builder.avatarFileName = cursor.getString(columns.avatarFileName);
+        }
+        long tick = RelativeTimeTicker.getTick();
+        return new TimelineRow(builder, composeDetails(context, builder.createdDate, builder.detailsSuffix), tick);
+    }
+
+    private static String getDetailsSuffix(Context context, Cursor cursor, Columns columns) {
+        StringBuilder suffix = new StringBuilder();
+        if (getLong(cursor, columns.inReplyToMsgId) != 0) {
+            String replyToName = getString(cursor, columns.inReplyToName);
+            if (TextUtils.isEmpty(replyToName)) {
+                replyToName = "...";
+            }
+            suffix.append(" " + String.format(MyContextHolder.get().getLocale(),
+                    context.getText(R.string.message_source_in_reply_to).toString(), replyToName));
+        }
+        String recipientName = getString(cursor, columns.recipientName);
+        if (!TextUtils.isEmpty(recipientName)) {
+            suffix.append(" " + String.format(MyContextHolder.get().getLocale(),
+                    context.getText(R.string.message_source_to).toString(), recipientName));
+        }
+        switch (MsgStatus.load((int) getLong(cursor, columns.msgStatus))) {
+            case SENDING:
+                suffix.append(" " + context.getText(R.string.message_status_sending));
+                break;
+            case FAILED:
+                suffix.append(" " + context.getText(R.string.message_status_failed));
+                break;
+            case NOT_SENT:
+                suffix.append(" " + context.getText(R.string.message_status_not_sent));
+                break;
+            default:
+                break;
+        }
+        return suffix.toString();
+    }
+
+    private static String composeDetails(Context context, long createdDate, String detailsSuffix) {
+        return RelativeTime.getDifference(context, createdDate) + detailsSuffix;
+    }
+
+    /**
+     * @return Relative time and the {@link #detailsSuffix}. Composed again, if the precomposed value
+     *   may be stale, i.e. it was composed before the latest tick of the {@link RelativeTimeTicker}
+     */
+    public String getDetails(Context context) {
+        if (detailsTick == RelativeTimeTicker.getTick()) {
+            return details;
+        }
+        return composeDetails(context, createdDate, detailsSuffix);
+    }
+
+    /**
+     * @return The same row with the relative time, composed now. Parsed values are reused
+     */
+    public TimelineRow withCurrentTime(Context context) {
+        Builder builder = new Builder();
+        builder.msgId = msgId;
+        builder.authorName = authorName;
+        builder.body = body;
+        builder.createdDate = createdDate;
+        builder.detailsSuffix = detailsSuffix;
+        builder.favorited = favorited;
+        builder.linkedUserId = linkedUserId;
+        builder.authorId = authorId;
+        builder.avatarFileName = avatarFileName;
+        long tick = RelativeTimeTicker.getTick();
+        return new TimelineRow(builder, composeDetails(context, createdDate, detailsSuffix), tick);
+    }
+
+    private static long getLong(Cursor cursor, int columnIndex) {
+        return columnIndex > -1 ? cursor.getLong(columnIndex) : 0;
+    }
+
+    private static String getString(Cursor cursor, int columnIndex) {
+        String value = columnIndex > -1 ? cursor.getString(columnIndex) : null;
+        return value == null ? "" : value;
+    }
+}
@@ -96,7 +96,7 @@ class ActivitySender {
             activity.put("object", obj);
 
             ConnectionAndUrl conu = connection.getConnectionAndUrl(ApiRoutineEnum.STATUSES_UPDATE, connection.data.getAccountUserOid());
-            jso = conu.httpConnection.postRequest(conu.url, activity);
+            jso = conu.httpConnection.postRequest(ApiRoutineEnum.STATUSES_UPDATE, conu.url, activity);
             if (jso != null && MyLog.isLoggable(TAG, MyLog.VERBOSE)) {
                 MyLog.v(this, "verb '" + verb + "' object id='" + objectId + "' " + jso.toString(2));
             }
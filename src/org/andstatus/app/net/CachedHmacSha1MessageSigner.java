@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net;
+
+import oauth.signpost.OAuth;
+import oauth.signpost.exception.OAuthMessageSignerException;
+import oauth.signpost.http.HttpParameters;
+import oauth.signpost.http.HttpRequest;
+import oauth.signpost.signature.OAuthMessageSigner;
+import oauth.signpost.signature.SignatureBaseString;
+
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * The same signature as {@link oauth.signpost.signature.HmacSha1MessageSigner} produces,
+ * but the key material and the initialized {@link Mac} are reused between requests
+ * until the consumer secret or the token secret change.
+ * @author yvolk@yurivolkov.com
+ */
+class CachedHmacSha1MessageSigner extends OAuthMessageSigner {
+    private static final long serialVersionUID = 1L;
+    private static final String MAC_NAME = "HmacSHA1";
+
+    /** Guarded by "this". null means that the key needs to be recalculated */
+    private transient Mac mac = null;
+
+    @Override
+    public String getSignatureMethod() {
+        return "HMAC-SHA1";
+    }
+
+    @Override
+    public synchronized String sign(HttpRequest request, HttpParameters requestParams)
+            throws OAuthMessageSignerException {
+        try {
+            String sbs = new SignatureBaseString(request, requestParams).generate();
+            return base64Encode(getMac().doFinal(sbs.getBytes(OAuth.ENCODING))).trim();
+        } catch (GeneralSecurityException e) {
+            throw new OAuthMessageSignerException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new OAuthMessageSignerException(e);
+        }
+    }
+
+    private Mac getMac() throws GeneralSecurityException, UnsupportedEncodingException {
+        if (mac == null) {
+            String keyString = OAuth.percentEncode(getConsumerSecret()) + '&'
+                    + OAuth.percentEncode(getTokenSecret());
+            Mac macNew = Mac.getInstance(MAC_NAME);
+            macNew.init(new SecretKeySpec(keyString.getBytes(OAuth.ENCODING), MAC_NAME));
+            mac = macNew;
+        }
+        return mac;
+    }
+
+    @Override
+    public synchronized void setConsumerSecret(String consumerSecret) {
+        super.setConsumerSecret(consumerSecret);
+        mac = null;
+    }
+
+    @Override
+    public synchronized void setTokenSecret(String tokenSecret) {
+        super.setTokenSecret(tokenSecret);
+        mac = null;
+    }
+}
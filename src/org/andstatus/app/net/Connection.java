@@ -101,6 +101,10 @@ public abstract class Connection {
         SEARCH_MESSAGES(true),
 
         GET_MESSAGE,
+        /**
+         * Several messages, specified by their ids, in one request
+         */
+        GET_MESSAGES,
         STATUSES_UPDATE,
         STOP_FOLLOWING_USER,
         
@@ -146,7 +150,7 @@ public abstract class Connection {
     protected abstract String getApiPath1(ApiRoutineEnum routine);
 
     /**
-     * Full path of the API. Logged
+     * Full path of the API. Logged.
      * @return URL or throws a ConnectionException in case the API routine is not supported
      */
     protected final String getApiPath(ApiRoutineEnum routine) throws ConnectionException {
@@ -271,6 +275,14 @@ public abstract class Connection {
 
     /** See {@link #getMessage(String)} */
     protected abstract MbMessage getMessage1(String statusId) throws ConnectionException;
+
+    /**
+     * Returns the messages, specified by their ids, in one request. Messages, which were not found, are omitted.
+     * Supported if {@link ApiRoutineEnum#GET_MESSAGES} is supported
+     */
+    public List<MbMessage> getMessages(List<String> statusIds) throws ConnectionException {
+        throw ConnectionException.fromStatusCodeAndHost(StatusCode.UNSUPPORTED_API, "(any host)", "getMessages for " + statusIds.size() + " ids");
+    }
     
     /**
      * Update user status by posting to the Twitter REST API.
@@ -446,10 +458,11 @@ public abstract class Connection {
         }
     }
 
-    public JSONArray getRequestArrayInObject(String path, String arrayName) throws ConnectionException {
+    public JSONArray getRequestArrayInObject(ApiRoutineEnum apiRoutine, String path, String arrayName)
+            throws ConnectionException {
         String method = "getRequestArrayInObject";
         JSONArray jArr = null;
-        JSONObject jso = http.getRequest(path);
+        JSONObject jso = http.getRequest(apiRoutine, path);
         if (jso != null) {
             try {
                 jArr = jso.getJSONArray(arrayName);
@@ -97,7 +97,8 @@ public class ConnectionPumpio extends Connection {
 
     @Override
     public MbUser verifyCredentials() throws ConnectionException {
-        JSONObject user = http.getRequest(getApiPath(ApiRoutineEnum.ACCOUNT_VERIFY_CREDENTIALS));
+        JSONObject user = http.getRequest(ApiRoutineEnum.ACCOUNT_VERIFY_CREDENTIALS,
+                getApiPath(ApiRoutineEnum.ACCOUNT_VERIFY_CREDENTIALS));
         return userFromJson(user);
     }
 
@@ -180,7 +181,7 @@ public class ConnectionPumpio extends Connection {
             builder.appendQueryParameter("count",String.valueOf(fixedDownloadLimitForApiRoutine(limit, apiRoutine)));
         }
         String url = builder.build().toString();
-        JSONArray jArr = conu.httpConnection.getRequestAsArray(url);
+        JSONArray jArr = conu.httpConnection.getRequestAsArray(apiRoutine, url);
         List<MbUser> followedUsers = new ArrayList<MbUser>();
         if (jArr != null) {
             for (int index = 0; index < jArr.length(); index++) {
@@ -199,7 +200,7 @@ public class ConnectionPumpio extends Connection {
 
     @Override
     public MbMessage getMessage1(String messageId) throws ConnectionException {
-        JSONObject message = http.getRequest(messageId);
+        JSONObject message = http.getRequest(ApiRoutineEnum.GET_MESSAGE, messageId);
         return messageFromJson(message);
     }
 
@@ -319,7 +320,7 @@ public class ConnectionPumpio extends Connection {
             builder.appendQueryParameter("count",String.valueOf(fixedDownloadLimitForApiRoutine(limit, apiRoutine)));
         }
         String url = builder.build().toString();
-        JSONArray jArr = conu.httpConnection.getRequestAsArray(url);
+        JSONArray jArr = conu.httpConnection.getRequestAsArray(apiRoutine, url);
         List<MbTimelineItem> timeline = new ArrayList<MbTimelineItem>();
         if (jArr != null) {
             // Read the activities in chronological order
@@ -590,7 +591,7 @@ public class ConnectionPumpio extends Connection {
     @Override
     public MbUser getUser(String userId) throws ConnectionException {
         ConnectionAndUrl conu = getConnectionAndUrl(ApiRoutineEnum.GET_USER, userId);
-        JSONObject jso = conu.httpConnection.getRequest(conu.url);
+        JSONObject jso = conu.httpConnection.getRequest(ApiRoutineEnum.GET_USER, conu.url);
         MbUser mbUser = userFromJson(jso);
         MyLog.v(this, "getUser '" + userId + "' " + mbUser.realName);
         return mbUser;
@@ -108,7 +108,8 @@ public abstract class ConnectionTwitter extends Connection {
 
     @Override
     public boolean destroyStatus(String statusId) throws ConnectionException {
-        JSONObject jso = http.postRequest(getApiPath(ApiRoutineEnum.STATUSES_DESTROY) + statusId + EXTENSION);
+        JSONObject jso = http.postRequest(ApiRoutineEnum.STATUSES_DESTROY,
+                getApiPath(ApiRoutineEnum.STATUSES_DESTROY) + statusId + EXTENSION);
         if (jso != null && MyLog.isLoggable(null, MyLog.VERBOSE)) {
             try {
                 MyLog.v(TAG, "destroyStatus response: " + jso.toString(2));
@@ -152,7 +153,7 @@ public abstract class ConnectionTwitter extends Connection {
         Uri.Builder builder = sUri.buildUpon();
         builder.appendQueryParameter("user_id", userId);
         List<String> list = new ArrayList<String>();
-        JSONArray jArr = getRequestArrayInObject(builder.build().toString(), "ids");
+        JSONArray jArr = getRequestArrayInObject(ApiRoutineEnum.GET_FRIENDS_IDS, builder.build().toString(), "ids");
         try {
             for (int index = 0; jArr != null && index < jArr.length(); index++) {
                 list.add(jArr.getString(index));
@@ -177,7 +178,7 @@ public abstract class ConnectionTwitter extends Connection {
         Uri sUri = Uri.parse(getApiPath(ApiRoutineEnum.GET_MESSAGE));
         Uri.Builder builder = sUri.buildUpon();
         builder.appendQueryParameter("id", messageId);
-        JSONObject message = http.getRequest(builder.build().toString());
+        JSONObject message = http.getRequest(ApiRoutineEnum.GET_MESSAGE, builder.build().toString());
         return messageFromJson(message);
     }
 
@@ -196,7 +197,7 @@ public abstract class ConnectionTwitter extends Connection {
         if (!TextUtils.isEmpty(userId)) {
             builder.appendQueryParameter("user_id", userId);
         }
-        JSONArray jArr = http.getRequestAsArray(builder.build().toString());
+        JSONArray jArr = http.getRequestAsArray(apiRoutine, builder.build().toString());
         return jArrToTimeline(jArr, apiRoutine, url);
     }
 
@@ -371,7 +372,7 @@ public abstract class ConnectionTwitter extends Connection {
         if (!TextUtils.isEmpty(searchQuery)) {
             builder.appendQueryParameter("q", searchQuery);
         }
-        JSONArray jArr = http.getRequestAsArray(builder.build().toString());
+        JSONArray jArr = http.getRequestAsArray(apiRoutine, builder.build().toString());
         return jArrToTimeline(jArr, apiRoutine, url);
     }
     
@@ -405,7 +406,7 @@ public abstract class ConnectionTwitter extends Connection {
         Uri sUri = Uri.parse(getApiPath(ApiRoutineEnum.GET_USER));
         Uri.Builder builder = sUri.buildUpon();
         builder.appendQueryParameter("user_id", userId);
-        JSONObject jso = http.getRequest(builder.build().toString());
+        JSONObject jso = http.getRequest(ApiRoutineEnum.GET_USER, builder.build().toString());
         return userFromJson(jso);
     }
     
@@ -426,7 +427,8 @@ public abstract class ConnectionTwitter extends Connection {
     
     @Override
     public MbMessage postReblog(String rebloggedId) throws ConnectionException {
-        JSONObject jso = http.postRequest(getApiPath(ApiRoutineEnum.POST_REBLOG) + rebloggedId + EXTENSION);
+        JSONObject jso = http.postRequest(ApiRoutineEnum.POST_REBLOG,
+                getApiPath(ApiRoutineEnum.POST_REBLOG) + rebloggedId + EXTENSION);
         return messageFromJson(jso);
     }
 
@@ -447,7 +449,8 @@ public abstract class ConnectionTwitter extends Connection {
      */
     @Override
     public MbRateLimitStatus rateLimitStatus() throws ConnectionException {
-        JSONObject result = http.getRequest(getApiPath(ApiRoutineEnum.ACCOUNT_RATE_LIMIT_STATUS));
+        JSONObject result = http.getRequest(ApiRoutineEnum.ACCOUNT_RATE_LIMIT_STATUS,
+                getApiPath(ApiRoutineEnum.ACCOUNT_RATE_LIMIT_STATUS));
         MbRateLimitStatus status = new MbRateLimitStatus();
         if (result != null) {
             switch (data.getOriginType().getApi()) {
@@ -495,12 +498,13 @@ public abstract class ConnectionTwitter extends Connection {
      */
     @Override
     public MbUser verifyCredentials() throws ConnectionException {
-        JSONObject user = http.getRequest(getApiPath(ApiRoutineEnum.ACCOUNT_VERIFY_CREDENTIALS));
+        JSONObject user = http.getRequest(ApiRoutineEnum.ACCOUNT_VERIFY_CREDENTIALS,
+                getApiPath(ApiRoutineEnum.ACCOUNT_VERIFY_CREDENTIALS));
         return userFromJson(user);
     }
 
     protected final JSONObject postRequest(ApiRoutineEnum apiRoutine, JSONObject formParams) throws ConnectionException {
-        return http.postRequest(getApiPath(apiRoutine), formParams);
+        return http.postRequest(apiRoutine, getApiPath(apiRoutine), formParams);
     }
     
     @Override
@@ -24,6 +24,7 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -31,6 +32,8 @@ import java.util.List;
  *
  */
 public class ConnectionTwitter1p1 extends ConnectionTwitter {
+    /** Maximum number of ids in one "statuses/lookup" request */
+    static final int MESSAGES_LOOKUP_LIMIT = 100;
 
     @Override
     protected String getApiPath1(ApiRoutineEnum routine) {
@@ -42,6 +45,10 @@ public class ConnectionTwitter1p1 extends ConnectionTwitter {
             case CREATE_FAVORITE:
                 url = "favorites/create" + EXTENSION;
                 break;
+            case GET_MESSAGES:
+                // https://dev.twitter.com/docs/api/1.1/get/statuses/lookup
+                url = "statuses/lookup" + EXTENSION;
+                break;
             case GET_FRIENDS:
                 // TODO: see https://dev.twitter.com/docs/api/1.1/get/friends/list
                 //   url will be: "friends/list" + EXTENSION
@@ -94,6 +101,28 @@ public class ConnectionTwitter1p1 extends ConnectionTwitter {
         return messageFromJson(jso);
     }
 
+    @Override
+    public List<MbMessage> getMessages(List<String> statusIds) throws ConnectionException {
+        List<MbMessage> messages = new ArrayList<MbMessage>();
+        for (int start = 0; start < statusIds.size(); start += MESSAGES_LOOKUP_LIMIT) {
+            Uri sUri = Uri.parse(getApiPath(ApiRoutineEnum.GET_MESSAGES));
+            Uri.Builder builder = sUri.buildUpon();
+            builder.appendQueryParameter("id", TextUtils.join(",",
+                    statusIds.subList(start, Math.min(start + MESSAGES_LOOKUP_LIMIT, statusIds.size()))));
+            JSONArray jArr = http.getRequestAsArray(ApiRoutineEnum.GET_MESSAGES, builder.build().toString());
+            for (int index = 0; jArr != null && index < jArr.length(); index++) {
+                try {
+                    MbMessage message = messageFromJson(jArr.getJSONObject(index));
+                    message.setPublic(true);
+                    messages.add(message);
+                } catch (JSONException e) {
+                    throw ConnectionException.loggedJsonException(this, e, jArr, "Parsing statuses/lookup");
+                }
+            }
+        }
+        return messages;
+    }
+
     @Override
     public List<MbTimelineItem> search(String searchQuery, int limit)
             throws ConnectionException {
@@ -107,7 +136,7 @@ public class ConnectionTwitter1p1 extends ConnectionTwitter {
         if (!TextUtils.isEmpty(searchQuery)) {
             builder.appendQueryParameter("q", searchQuery);
         }
-        JSONArray jArr = getRequestArrayInObject(builder.build().toString(), "statuses");
+        JSONArray jArr = getRequestArrayInObject(apiRoutine, builder.build().toString(), "statuses");
         return jArrToTimeline(jArr, apiRoutine, url);
     }
 }
@@ -65,7 +65,7 @@ public class ConnectionTwitterStatusNet extends ConnectionTwitter1p0 {
         Uri.Builder builder = sUri.buildUpon();
         builder.appendQueryParameter("user_id", userId);
         List<String> list = new ArrayList<String>();
-        JSONArray jArr = http.getRequestAsArray(builder.build().toString());
+        JSONArray jArr = http.getRequestAsArray(ApiRoutineEnum.GET_FRIENDS_IDS, builder.build().toString());
         try {
             for (int index = 0; index < jArr.length(); index++) {
                 list.add(jArr.getString(index));
@@ -97,7 +97,7 @@ public class ConnectionTwitterStatusNet extends ConnectionTwitter1p0 {
     
     @Override
     public MbConfig getConfig() throws ConnectionException {
-        JSONObject result = http.getRequest(getApiPath(ApiRoutineEnum.GET_CONFIG));
+        JSONObject result = http.getRequest(ApiRoutineEnum.GET_CONFIG, getApiPath(ApiRoutineEnum.GET_CONFIG));
         MbConfig config = MbConfig.getEmpty();
         if (result != null) {
             JSONObject site = result.optJSONObject("site");
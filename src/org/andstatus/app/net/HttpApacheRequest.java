@@ -16,13 +16,14 @@
 
 package org.andstatus.app.net;
 
+import org.andstatus.app.net.Connection.ApiRoutineEnum;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 
 public interface HttpApacheRequest {
-    JSONObject postRequest(HttpPost postMethod) throws ConnectionException;
-    JSONTokener getRequest(HttpGet get) throws ConnectionException;
+    JSONObject postRequest(ApiRoutineEnum apiRoutine, HttpPost postMethod) throws ConnectionException;
+    JSONTokener getRequest(ApiRoutineEnum apiRoutine, HttpGet get) throws ConnectionException;
     String pathToUrl(String path);
 }
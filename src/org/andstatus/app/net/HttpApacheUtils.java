@@ -18,13 +18,18 @@ package org.andstatus.app.net;
 
 import android.text.TextUtils;
 
+import org.andstatus.app.net.Connection.ApiRoutineEnum;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.TriState;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
 import org.apache.http.HttpVersion;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.conn.scheme.PlainSocketFactory;
 import org.apache.http.conn.scheme.Scheme;
@@ -37,12 +42,16 @@ import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
 import org.apache.http.params.HttpProtocolParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.ExecutionContext;
 import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -55,8 +64,8 @@ class HttpApacheUtils {
         this.request = request;
     }
 
-    final JSONArray getRequestAsArray(HttpGet get) throws ConnectionException {
-        return jsonTokenerToArray(request.getRequest(get));
+    final JSONArray getRequestAsArray(ApiRoutineEnum apiRoutine, HttpGet get) throws ConnectionException {
+        return jsonTokenerToArray(request.getRequest(apiRoutine, get));
     }
 
     final JSONArray jsonTokenerToArray(JSONTokener jst) throws ConnectionException {
@@ -89,10 +98,10 @@ class HttpApacheUtils {
         return jsa;
     }
     
-    final JSONObject getRequestAsObject(HttpGet get) throws ConnectionException {
+    final JSONObject getRequestAsObject(ApiRoutineEnum apiRoutine, HttpGet get) throws ConnectionException {
         String method = "getRequestAsObject";
         JSONObject jso = null;
-        JSONTokener jst = request.getRequest(get);
+        JSONTokener jst = request.getRequest(apiRoutine, get);
         try {
             jso = (JSONObject) jst.nextValue();
         } catch (JSONException e) {
@@ -105,12 +114,13 @@ class HttpApacheUtils {
         return jso;
     }
 
-    protected JSONObject postRequest(String path) throws ConnectionException {
+    protected JSONObject postRequest(ApiRoutineEnum apiRoutine, String path) throws ConnectionException {
         HttpPost post = new HttpPost(request.pathToUrl(path));
-        return request.postRequest(post);
+        return request.postRequest(apiRoutine, post);
     }
     
-    protected JSONObject postRequest(String path, JSONObject jso) throws ConnectionException {
+    protected JSONObject postRequest(ApiRoutineEnum apiRoutine, String path, JSONObject jso)
+            throws ConnectionException {
         List<NameValuePair> formParams = HttpApacheUtils.jsonToNameValuePair(jso);
         HttpPost postMethod = new HttpPost(request.pathToUrl(path));
         try {
@@ -118,7 +128,7 @@ class HttpApacheUtils {
                 UrlEncodedFormEntity formEntity = new UrlEncodedFormEntity(formParams, HTTP.UTF_8);
                 postMethod.setEntity(formEntity);
             }
-            jso = request.postRequest(postMethod);
+            jso = request.postRequest(apiRoutine, postMethod);
         } catch (UnsupportedEncodingException e) {
             MyLog.e(this, e);
         }
@@ -142,6 +152,30 @@ class HttpApacheUtils {
         return formParams;
     }
     
+    /**
+     * Executes the request and records the response status and the connection reuse to the metrics
+     */
+    static HttpResponse execute(HttpClient client, HttpUriRequest request, HttpRequestMetrics metrics) throws IOException {
+        HttpContext context = new BasicHttpContext();
+        HttpResponse response = client.execute(request, context);
+        metrics.onResponse(response.getStatusLine().getStatusCode());
+        Object connection = context.getAttribute(ExecutionContext.HTTP_CONNECTION);
+        if (connection instanceof org.apache.http.HttpConnection) {
+            try {
+                metrics.reused = TriState.fromBoolean(
+                        ((org.apache.http.HttpConnection) connection).getMetrics().getRequestCount() > 1);
+            } catch (RuntimeException e) {
+                MyLog.ignored(HttpApacheUtils.class, e);
+            }
+        }
+        return response;
+    }
+
+    static long responseLength(HttpEntity entity, String responseString) {
+        long length = entity == null ? -1 : entity.getContentLength();
+        return length >= 0 || responseString == null ? length : responseString.length();
+    }
+
     static HttpClient getHttpClient() {
         SchemeRegistry schemeRegistry = new SchemeRegistry();
         schemeRegistry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
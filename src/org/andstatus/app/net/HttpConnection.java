@@ -19,6 +19,7 @@ package org.andstatus.app.net;
 import android.net.Uri;
 
 import org.andstatus.app.account.AccountDataWriter;
+import org.andstatus.app.net.Connection.ApiRoutineEnum;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -37,7 +38,11 @@ public abstract class HttpConnection {
  
     public void registerClient(String path) throws ConnectionException {}
     
-    protected abstract JSONObject postRequest(String path, JSONObject jso) throws ConnectionException;
+    /**
+     * @param apiRoutine The request is counted in {@link HttpMetrics} for this routine, null if unknown
+     */
+    protected abstract JSONObject postRequest(ApiRoutineEnum apiRoutine, String path, JSONObject jso)
+            throws ConnectionException;
 
     protected void setConnectionData(HttpConnectionData data) {
         this.data = data;
@@ -53,11 +58,11 @@ public abstract class HttpConnection {
         }
     }
     
-    protected abstract JSONObject postRequest(String path) throws ConnectionException;
+    protected abstract JSONObject postRequest(ApiRoutineEnum apiRoutine, String path) throws ConnectionException;
 
-    protected abstract JSONObject getRequest(String path) throws ConnectionException;
+    protected abstract JSONObject getRequest(ApiRoutineEnum apiRoutine, String path) throws ConnectionException;
     
-    protected abstract JSONArray getRequestAsArray(String path) throws ConnectionException;
+    protected abstract JSONArray getRequestAsArray(ApiRoutineEnum apiRoutine, String path) throws ConnectionException;
 
     public abstract void clearAuthInformation();
 
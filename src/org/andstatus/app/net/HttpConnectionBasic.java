@@ -22,6 +22,7 @@ import android.util.Base64;
 
 import org.andstatus.app.account.AccountDataWriter;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.net.Connection.ApiRoutineEnum;
 import org.andstatus.app.util.MyLog;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -49,21 +50,23 @@ public class HttpConnectionBasic extends HttpConnection implements HttpApacheReq
     }  
     
     @Override
-    protected JSONObject postRequest(String path) throws ConnectionException {
-        return new HttpApacheUtils(this).postRequest(path);
+    protected JSONObject postRequest(ApiRoutineEnum apiRoutine, String path) throws ConnectionException {
+        return new HttpApacheUtils(this).postRequest(apiRoutine, path);
     }
     
     @Override
-    protected JSONObject postRequest(String path, JSONObject jso) throws ConnectionException {
-        return new HttpApacheUtils(this).postRequest(path, jso);
+    protected JSONObject postRequest(ApiRoutineEnum apiRoutine, String path, JSONObject jso)
+            throws ConnectionException {
+        return new HttpApacheUtils(this).postRequest(apiRoutine, path, jso);
     }
 
     @Override
-    public JSONObject postRequest(HttpPost postMethod) throws ConnectionException {
+    public JSONObject postRequest(ApiRoutineEnum apiRoutine, HttpPost postMethod) throws ConnectionException {
         String method = "postRequest";
         String result = "?";
         JSONObject jObj = null;
         int statusCode = 0;
+        HttpRequestMetrics metrics = HttpRequestMetrics.start(data, apiRoutine);
         try {
             HttpClient client = HttpApacheUtils.getHttpClient();
             postMethod.setHeader("User-Agent", HttpConnection.USER_AGENT);
@@ -72,9 +75,10 @@ public class HttpConnectionBasic extends HttpConnection implements HttpApacheReq
             }
             client.getParams().setIntParameter(CoreConnectionPNames.CONNECTION_TIMEOUT, DEFAULT_POST_REQUEST_TIMEOUT);
             client.getParams().setIntParameter(CoreConnectionPNames.SO_TIMEOUT, DEFAULT_POST_REQUEST_TIMEOUT);
-            HttpResponse httpResponse = client.execute(postMethod);
+            HttpResponse httpResponse = HttpApacheUtils.execute(client, postMethod, metrics);
             statusCode = httpResponse.getStatusLine().getStatusCode();
             result = retrieveInputStream(httpResponse.getEntity());
+            metrics.addBytes(HttpApacheUtils.responseLength(httpResponse.getEntity(), result));
             jObj = new JSONObject(result);
             if (jObj != null) {
                 String error = jObj.optString("error");
@@ -91,21 +95,22 @@ public class HttpConnectionBasic extends HttpConnection implements HttpApacheReq
             throw new ConnectionException(e);
         } finally {
             postMethod.abort();
+            metrics.finish();
         }
         parseStatusCode(statusCode);
         return jObj;
     }
 
     @Override
-    protected final JSONObject getRequest(String path) throws ConnectionException {
+    protected final JSONObject getRequest(ApiRoutineEnum apiRoutine, String path) throws ConnectionException {
         HttpGet get = new HttpGet(pathToUrl(path));
-        return new HttpApacheUtils(this).getRequestAsObject(get);
+        return new HttpApacheUtils(this).getRequestAsObject(apiRoutine, get);
     }
 
     @Override
-    protected final JSONArray getRequestAsArray(String path) throws ConnectionException {
+    protected final JSONArray getRequestAsArray(ApiRoutineEnum apiRoutine, String path) throws ConnectionException {
         HttpGet get = new HttpGet(pathToUrl(path));
-        return new HttpApacheUtils(this).getRequestAsArray(get);
+        return new HttpApacheUtils(this).getRequestAsArray(apiRoutine, get);
     }
     
     /**
@@ -116,20 +121,22 @@ public class HttpConnectionBasic extends HttpConnection implements HttpApacheReq
      * @throws ConnectionException
      */
     @Override
-    public JSONTokener getRequest(HttpGet getMethod) throws ConnectionException {
+    public JSONTokener getRequest(ApiRoutineEnum apiRoutine, HttpGet getMethod) throws ConnectionException {
         JSONTokener jso = null;
         String response = null;
         boolean ok = false;
         int statusCode = 0;
         HttpClient client = HttpApacheUtils.getHttpClient();
+        HttpRequestMetrics metrics = HttpRequestMetrics.start(data, apiRoutine);
         try {
             getMethod.setHeader("User-Agent", HttpConnection.USER_AGENT);
             getMethod.addHeader("Authorization", "Basic " + getCredentials());
             client.getParams().setIntParameter(CoreConnectionPNames.CONNECTION_TIMEOUT, DEFAULT_GET_REQUEST_TIMEOUT);
             client.getParams().setIntParameter(CoreConnectionPNames.SO_TIMEOUT, DEFAULT_GET_REQUEST_TIMEOUT);
-            HttpResponse httpResponse = client.execute(getMethod);
+            HttpResponse httpResponse = HttpApacheUtils.execute(client, getMethod, metrics);
             statusCode = httpResponse.getStatusLine().getStatusCode();
             response = retrieveInputStream(httpResponse.getEntity());
+            metrics.addBytes(HttpApacheUtils.responseLength(httpResponse.getEntity(), response));
             jso = new JSONTokener(response);
             ok = true;
         } catch (Exception e) {
@@ -137,6 +144,7 @@ public class HttpConnectionBasic extends HttpConnection implements HttpApacheReq
             throw new ConnectionException(e);
         } finally {
             getMethod.abort();
+            metrics.finish();
         }
         parseStatusCode(statusCode);
         if (!ok) {
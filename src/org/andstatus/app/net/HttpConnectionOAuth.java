@@ -18,6 +18,8 @@ package org.andstatus.app.net;
 
 import android.text.TextUtils;
 
+import oauth.signpost.OAuthConsumer;
+
 import org.andstatus.app.account.AccountDataWriter;
 import org.andstatus.app.net.HttpConnection;
 import org.andstatus.app.net.Connection.ApiRoutineEnum;
@@ -90,16 +92,43 @@ abstract class HttpConnectionOAuth extends HttpConnection implements OAuthConsum
         return url;
     }
 
+    /**
+     * @return New OAuth Consumer with the client keys only
+     */
+    protected abstract OAuthConsumer newConsumer();
+
+    @Override
+    public OAuthConsumer getConsumer() {
+        OAuthConsumer consumer = newConsumer();
+        if (getCredentialsPresent()) {
+            consumer.setTokenWithSecret(getUserToken(), getUserSecret());
+        }
+        return consumer;
+    }
+
+    /**
+     * @return Signer, which is shared by all connections of this account to this host
+     */
+    protected OAuthSigner getSigner() {
+        return OAuthSigner.fromConnection(this);
+    }
+
     /**
      * @param token null means to clear the old values
      * @param secret
      */
     @Override
     public void setUserTokenWithSecret(String token, String secret) {
+        boolean changed;
         synchronized (this) {
+            changed = !TextUtils.equals(userToken, token) || !TextUtils.equals(userSecret, secret);
             userToken = token;
             userSecret = secret;
         }
+        if (changed) {
+            OAuthSigner.invalidate(data);
+            RedirectCache.invalidate(data);
+        }
         MyLog.v(this, "Credentials set?: " + !TextUtils.isEmpty(token) + ", " + !TextUtils.isEmpty(secret));
     }
 
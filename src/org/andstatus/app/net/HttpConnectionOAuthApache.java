@@ -23,16 +23,21 @@ import oauth.signpost.commonshttp.CommonsHttpOAuthProvider;
 
 import org.andstatus.app.net.Connection.ApiRoutineEnum;
 import org.andstatus.app.util.MyLog;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.impl.client.BasicResponseHandler;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 
+import java.io.IOException;
+
 public class HttpConnectionOAuthApache extends HttpConnectionOAuth implements HttpApacheRequest {
     private static final String NULL_JSON = "(null)";
     private static final String TAG = HttpConnectionOAuth.class.getSimpleName();
@@ -56,32 +61,35 @@ public class HttpConnectionOAuthApache extends HttpConnectionOAuth implements Ht
     }
     
     @Override
-    protected final JSONObject getRequest(String path) throws ConnectionException {
+    protected final JSONObject getRequest(ApiRoutineEnum apiRoutine, String path) throws ConnectionException {
         HttpGet get = new HttpGet(pathToUrl(path));
-        return new HttpApacheUtils(this).getRequestAsObject(get);
+        return new HttpApacheUtils(this).getRequestAsObject(apiRoutine, get);
     }
 
     @Override
-    protected final JSONArray getRequestAsArray(String path) throws ConnectionException {
+    protected final JSONArray getRequestAsArray(ApiRoutineEnum apiRoutine, String path) throws ConnectionException {
         HttpGet get = new HttpGet(pathToUrl(path));
-        return new HttpApacheUtils(this).getRequestAsArray(get);
+        return new HttpApacheUtils(this).getRequestAsArray(apiRoutine, get);
     }
 
     @Override
-    public JSONTokener getRequest(HttpGet get) throws ConnectionException {
+    public JSONTokener getRequest(ApiRoutineEnum apiRoutine, HttpGet get) throws ConnectionException {
         JSONTokener jso = null;
         String response = null;
         boolean ok = false;
+        HttpRequestMetrics metrics = HttpRequestMetrics.start(data, apiRoutine);
         try {
             if (data.oauthClientKeys.areKeysPresent()) {
-                getConsumer().sign(get);
+                metrics.addSigningTime(getSigner().sign(get, false));
             }
-            response = mClient.execute(get, new BasicResponseHandler());
+            response = execute(get, metrics);
             jso = new JSONTokener(response);
             ok = true;
         } catch (Exception e) {
             MyLog.e(this, "Exception was caught, URL='" + get.getURI().toString() + "'", e);
             throw new ConnectionException(e);
+        } finally {
+            metrics.finish();
         }
         if (!ok) {
             jso = null;
@@ -90,36 +98,51 @@ public class HttpConnectionOAuthApache extends HttpConnectionOAuth implements Ht
     }
 
     @Override
-    public OAuthConsumer getConsumer() {
-        OAuthConsumer consumer = new CommonsHttpOAuthConsumer(data.oauthClientKeys.getConsumerKey(),
+    protected OAuthConsumer newConsumer() {
+        return new CommonsHttpOAuthConsumer(data.oauthClientKeys.getConsumerKey(),
                 data.oauthClientKeys.getConsumerSecret());
-        if (getCredentialsPresent()) {
-            consumer.setTokenWithSecret(getUserToken(), getUserSecret());
-        }
-        return consumer;
     }
     
+    /**
+     * The same as executing with the {@link BasicResponseHandler}, but measured
+     */
+    private String execute(HttpUriRequest request, HttpRequestMetrics metrics) throws IOException {
+        HttpResponse response = HttpApacheUtils.execute(mClient, request, metrics);
+        HttpEntity entity = response.getEntity();
+        try {
+            String responseString = new BasicResponseHandler().handleResponse(response);
+            metrics.addBytes(HttpApacheUtils.responseLength(entity, responseString));
+            return responseString;
+        } finally {
+            if (entity != null) {
+                entity.consumeContent();
+            }
+        }
+    }
+
     @Override
-    protected final JSONObject postRequest(String path) throws ConnectionException {
-        return new HttpApacheUtils(this).postRequest(path);
+    protected final JSONObject postRequest(ApiRoutineEnum apiRoutine, String path) throws ConnectionException {
+        return new HttpApacheUtils(this).postRequest(apiRoutine, path);
     }
 
     @Override
-    protected JSONObject postRequest(String path, JSONObject jso) throws ConnectionException {
-        return new HttpApacheUtils(this).postRequest(path, jso);
+    protected JSONObject postRequest(ApiRoutineEnum apiRoutine, String path, JSONObject jso)
+            throws ConnectionException {
+        return new HttpApacheUtils(this).postRequest(apiRoutine, path, jso);
     }
     
     @Override
-    public JSONObject postRequest(HttpPost post) throws ConnectionException {
+    public JSONObject postRequest(ApiRoutineEnum apiRoutine, HttpPost post) throws ConnectionException {
         JSONObject jso = null;
         String response = null;
         boolean ok = false;
+        HttpRequestMetrics metrics = HttpRequestMetrics.start(data, apiRoutine);
         try {
             if (data.oauthClientKeys.areKeysPresent()) {
                 // sign the request to authenticate
-                getConsumer().sign(post);
+                metrics.addSigningTime(getSigner().sign(post, false));
             }
-            response = mClient.execute(post, new BasicResponseHandler());
+            response = execute(post, metrics);
             jso = new JSONObject(response);
             ok = true;
         } catch (HttpResponseException e) {
@@ -133,6 +156,8 @@ public class HttpConnectionOAuthApache extends HttpConnectionOAuth implements Ht
             // We don't catch other exceptions because in fact it's vary difficult to tell
             // what was a real cause of it. So let's make code clearer.
             throw new ConnectionException(e);
+        } finally {
+            metrics.finish();
         }
         if (!ok) {
             jso = null;
@@ -59,6 +59,7 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
         String consumerSecret = "";
         data.oauthClientKeys.clear();
         Writer writer = null;
+        HttpRequestMetrics metrics = HttpRequestMetrics.start(data, ApiRoutineEnum.REGISTER_CLIENT);
         try {
             URL endpoint = new URL(pathToUrl(path));
             HttpURLConnection conn = (HttpURLConnection) endpoint.openConnection();
@@ -77,6 +78,7 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
             writer.write(requestBody);
             writer.close();
             
+            metrics.onResponse(conn.getResponseCode());
             if(conn.getResponseCode() != 200) {
                 String msg = HttpJavaNetUtils.readAll(new InputStreamReader(conn.getErrorStream(), "UTF-8"));
                 MyLog.e(this, "Server returned an error response: " + msg);
@@ -96,6 +98,7 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
             MyLog.e(this, "registerClient Exception", e);
         } finally {
             DbUtils.closeSilently(writer);
+            metrics.finish();
         }
         if (data.oauthClientKeys.areKeysPresent()) {
             MyLog.v(this, "Registered client for " + data.host);
@@ -115,11 +118,13 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
     }
 
     @Override
-    protected JSONObject postRequest(String path, JSONObject jso) throws ConnectionException {
+    protected JSONObject postRequest(ApiRoutineEnum apiRoutine, String path, JSONObject jso)
+            throws ConnectionException {
         String method = "postRequest: ";
         URL url = null;
         JSONObject result = null;
         OutputStreamWriter writer = null;
+        HttpRequestMetrics metrics = HttpRequestMetrics.start(data, apiRoutine);
         try {
             MyLog.v(this, method + (jso == null ? "(empty)" : jso.toString(2)));
         
@@ -129,7 +134,10 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
             conn.setDoInput(true);
             conn.setRequestMethod("POST");
             conn.setRequestProperty("Content-Type", "application/json");
-            setAuthorization(conn, getConsumer(), false);
+            metrics.addSigningTime(setAuthorization(conn, getSigner(), false));
+            long connectStartedAt = System.nanoTime();
+            conn.connect();
+            metrics.addConnectTime(connectStartedAt);
             
             if (jso != null) {
                 OutputStream os = conn.getOutputStream();
@@ -140,12 +148,17 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
             }
                         
             int responseCode = conn.getResponseCode();
+            metrics.onResponse(responseCode);
+            String responseString;
             switch(responseCode) {
                 case 200:
-                    result = new JSONObject(HttpJavaNetUtils.readAll(conn.getInputStream()));
+                    responseString = HttpJavaNetUtils.readAll(conn.getInputStream());
+                    metrics.addBytes(responseLength(conn, responseString));
+                    result = new JSONObject(responseString);
                     break;
                 default:
-                    String responseString = HttpJavaNetUtils.readAll(new InputStreamReader(conn.getErrorStream(), "UTF-8"));
+                    responseString = HttpJavaNetUtils.readAll(new InputStreamReader(conn.getErrorStream(), "UTF-8"));
+                    metrics.addBytes(responseLength(conn, responseString));
                     throw exceptionFromJsonErrorResponse(path, responseCode, responseString, StatusCode.UNKNOWN);
             }
         } catch (JSONException e) {
@@ -154,6 +167,7 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
             throw new ConnectionException(method + urlAndDataToString(url), e);
         } finally {
             DbUtils.closeSilently(writer);
+            metrics.finish();
         }
         return result;
     }
@@ -161,49 +175,64 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
     private String urlAndDataToString(URL url) {
         return "url:'" + url + "', " + data;
     }
+
+    private static long responseLength(HttpURLConnection conn, String responseString) {
+        int length = conn.getContentLength();
+        return length >= 0 ? length : responseString.length();
+    }
     
-    @Override public OAuthConsumer getConsumer() {
-        OAuthConsumer consumer = new DefaultOAuthConsumer(
+    @Override
+    protected OAuthConsumer newConsumer() {
+        return new DefaultOAuthConsumer(
                 data.oauthClientKeys.getConsumerKey(),
                 data.oauthClientKeys.getConsumerSecret());
-        if (getCredentialsPresent()) {
-            consumer.setTokenWithSecret(getUserToken(), getUserSecret());
-        }
-        return consumer;
     }
     
     @Override
-    protected JSONObject postRequest(String path) throws ConnectionException {
-        return postRequest(path, null);
+    protected JSONObject postRequest(ApiRoutineEnum apiRoutine, String path) throws ConnectionException {
+        return postRequest(apiRoutine, path, null);
     }
 
     @Override
-    protected JSONObject getRequest(String path) throws ConnectionException {
+    protected JSONObject getRequest(ApiRoutineEnum apiRoutine, String path) throws ConnectionException {
         if (TextUtils.isEmpty(path)) {
             throw new IllegalArgumentException("path is empty");
         }
         String responseString = "";
         JSONObject result = null;
+        HttpRequestMetrics metrics = HttpRequestMetrics.start(data, apiRoutine);
         try {
-            OAuthConsumer consumer = getConsumer();
+            OAuthSigner signer = getSigner();
             
-            URL url = new URL(pathToUrl(path));
+            String originalUrl = pathToUrl(path);
+            String cachedUrl = RedirectCache.getResolved(data, originalUrl);
+            URL url = new URL(cachedUrl == null ? originalUrl : cachedUrl);
             HttpURLConnection conn;
-            boolean redirected = false;
+            boolean redirected = cachedUrl != null;
+            if (redirected) {
+                MyLog.v(this, "Using cached redirect to " + url);
+            }
             boolean done=false;
             do {
                 conn = (HttpURLConnection) url.openConnection();
                 conn.setInstanceFollowRedirects(false);
-                setAuthorization(conn, consumer, redirected);
+                metrics.addSigningTime(setAuthorization(conn, signer, redirected));
+                long connectStartedAt = System.nanoTime();
                 conn.connect();
+                metrics.addConnectTime(connectStartedAt);
                 int responseCode = conn.getResponseCode();
+                metrics.onResponse(responseCode);
                 StatusCode statusCode = StatusCode.fromResponseCode(responseCode);
                 switch(responseCode) {
                     case 200:
                         try {
                             responseString = HttpJavaNetUtils.readAll(conn.getInputStream());
+                            metrics.addBytes(responseLength(conn, responseString));
                             result = new JSONObject(responseString);
                             done = true;
+                            if (redirected && !url.toString().equals(cachedUrl)) {
+                                RedirectCache.put(data, originalUrl, url.toString());
+                            }
                         } catch (JSONException e) {
                             throw ConnectionException.loggedJsonException(this, e, null,
                                     "Error reading response from '"
@@ -232,7 +261,16 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
                         }
                         break;                        
                     default:
+                        if (cachedUrl != null && responseCode >= 400 && responseCode < 500) {
+                            MyLog.v(this, "Cached redirect failed, status=" + responseCode + "; retrying " + originalUrl);
+                            RedirectCache.remove(data, originalUrl);
+                            cachedUrl = null;
+                            url = new URL(originalUrl);
+                            redirected = false;
+                            break;
+                        }
                         responseString = HttpJavaNetUtils.readAll(new InputStreamReader(conn.getErrorStream(), "UTF-8"));
+                        metrics.addBytes(responseLength(conn, responseString));
                         throw exceptionFromJsonErrorResponse(path, responseCode, responseString, statusCode);
                 }
             } while (!done);
@@ -240,6 +278,8 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
             throw e;
         } catch(Exception e) {
             throw new ConnectionException(ERROR_GETTING + path + "'", e);
+        } finally {
+            metrics.finish();
         }
         return result;
     }
@@ -260,31 +300,36 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
         return ce;
     }
 
-    private void setAuthorization(HttpURLConnection conn, OAuthConsumer consumer, boolean redirected)
+    /**
+     * @return Signing time, ms
+     */
+    private long setAuthorization(HttpURLConnection conn, OAuthSigner signer, boolean redirected)
             throws OAuthMessageSignerException, OAuthExpectationFailedException,
             OAuthCommunicationException {
+        long signingTimeMs = 0;
         if (getCredentialsPresent()) {
             if (data.host.contentEquals(data.hostForUserToken)) {
-                consumer.sign(conn);
+                signingTimeMs = signer.sign(conn, false);
             } else {
                 // See http://tools.ietf.org/html/draft-prodromou-dialback-00
                 if (redirected) {
-                    consumer.setTokenWithSecret("", "");
-                    consumer.sign(conn);
+                    signingTimeMs = signer.sign(conn, true);
                 } else {
                     conn.setRequestProperty("Authorization", "Dialback");
                     conn.setRequestProperty("host", data.hostForUserToken);
                     conn.setRequestProperty("token", getUserToken());
                     MyLog.v(this, "Dialback authorization at " + data.host + "; host=" + data.hostForUserToken + "; token=" + getUserToken());
-                    consumer.sign(conn);
+                    signingTimeMs = signer.sign(conn, false);
                 }
             }
+            MyLog.v(this, "Signed in " + signingTimeMs + "ms, " + signer);
         }
+        return signingTimeMs;
     }
 
     @Override
-    protected JSONArray getRequestAsArray(String path) throws ConnectionException {
-        JSONObject jso = getRequest(path);
+    protected JSONArray getRequestAsArray(ApiRoutineEnum apiRoutine, String path) throws ConnectionException {
+        JSONObject jso = getRequest(apiRoutine, path);
         JSONArray jsa = null;
         if (jso == null) {
             throw new ConnectionException("Response is null");
@@ -65,10 +65,16 @@ public class HttpJavaNetUtils {
     }
 
     public static InputStream urlOpenStream(URL url) throws IOException {
+        return openConnection(url).getInputStream();
+    }
+
+    /**
+     * @return Not connected yet, so request headers may be added
+     */
+    public static URLConnection openConnection(URL url) throws IOException {
         URLConnection con = url.openConnection();
         con.setConnectTimeout(CONNECTION_TIMEOUT_MS);
         con.setReadTimeout(CONNECTION_TIMEOUT_MS);
-        InputStream is = con.getInputStream();
-        return is;
+        return con;
     }
 }
@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net;
+
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.TriState;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Rolling statistics of HTTP requests per account, host and API routine,
+ * so we could find slow endpoints without a packet capture.
+ * Each endpoint keeps the current and the previous time window, the report covers both of them.
+ * Not every client can measure everything: the connection reuse is known for the Apache HttpClient only,
+ * the connect time - for the HttpURLConnection only. So the report shows "reused:" as "reused/measured"
+ * and the "connect:" histogram counts the measured requests only.
+ * @author yvolk@yurivolkov.com
+ */
+public class HttpMetrics {
+    static final long WINDOW_MILLIS = 60 * 60 * 1000L;
+    public static final String REPORT_FILE_NAME = "http_metrics.txt";
+    /** Upper bounds of the histogram buckets, ms. The last bucket is for longer times */
+    static final long[] BUCKET_BOUNDS = {50, 100, 200, 400, 800, 1600, 3200, 6400, 12800};
+
+    private static final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+    private static final ThreadLocal<Totals> threadTotals = new ThreadLocal<Totals>();
+    private static volatile boolean changedSinceDump = false;
+
+    private HttpMetrics() {
+        // Empty
+    }
+
+    /**
+     * Network usage by the current thread, e.g. to be shown in a {@link org.andstatus.app.service.CommandResult}
+     */
+    public static class Totals {
+        public final int requests;
+        public final long timeMs;
+        public final long bytes;
+
+        Totals(int requests, long timeMs, long bytes) {
+            this.requests = requests;
+            this.timeMs = timeMs;
+            this.bytes = bytes;
+        }
+
+        public Totals minus(Totals other) {
+            return new Totals(requests - other.requests, timeMs - other.timeMs, bytes - other.bytes);
+        }
+    }
+
+    /**
+     * Histogram of durations
+     */
+    static class Histogram {
+        final long[] counts = new long[BUCKET_BOUNDS.length + 1];
+
+        void add(long millis) {
+            if (millis < 0) {
+                return;
+            }
+            int ind = 0;
+            while (ind < BUCKET_BOUNDS.length && millis > BUCKET_BOUNDS[ind]) {
+                ind++;
+            }
+            counts[ind]++;
+        }
+
+        void addAll(Histogram other) {
+            for (int ind = 0; ind < counts.length; ind++) {
+                counts[ind] += other.counts[ind];
+            }
+        }
+
+        long count() {
+            long count = 0;
+            for (long value : counts) {
+                count += value;
+            }
+            return count;
+        }
+
+        /**
+         * @return Upper bound of the bucket, where the percentile is, ms.
+         *  Long.MAX_VALUE for the last bucket, -1 if there is no data
+         */
+        long percentile(int percent) {
+            long count = count();
+            if (count == 0) {
+                return -1;
+            }
+            long threshold = (count * percent + 99) / 100;
+            long sum = 0;
+            for (int ind = 0; ind < counts.length; ind++) {
+                sum += counts[ind];
+                if (sum >= threshold) {
+                    return ind < BUCKET_BOUNDS.length ? BUCKET_BOUNDS[ind] : Long.MAX_VALUE;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            if (count() > 0) {
+                builder.append("p50:" + boundToString(percentile(50)) + ",p90:" + boundToString(percentile(90)) + ",");
+                for (int ind = 0; ind < counts.length; ind++) {
+                    if (counts[ind] > 0) {
+                        builder.append((ind < BUCKET_BOUNDS.length ? "<=" + BUCKET_BOUNDS[ind] : ">"
+                                + BUCKET_BOUNDS[BUCKET_BOUNDS.length - 1]) + ":" + counts[ind] + ",");
+                    }
+                }
+            }
+            return MyLog.formatKeyValue("ms", builder.toString());
+        }
+
+        private static String boundToString(long bound) {
+            return bound == Long.MAX_VALUE ? ">" + BUCKET_BOUNDS[BUCKET_BOUNDS.length - 1] : "<=" + bound;
+        }
+    }
+
+    /**
+     * Measurements of one endpoint during one time window
+     */
+    static class Window {
+        final long startedAt;
+        long requests = 0;
+        long failed = 0;
+        long reused = 0;
+        /** Requests, for which the connection reuse is known */
+        long reuseMeasured = 0;
+        long bytes = 0;
+        long signingMs = 0;
+        final Map<Integer, Long> statusCodes = new TreeMap<Integer, Long>();
+        final Histogram connect = new Histogram();
+        final Histogram firstByte = new Histogram();
+        final Histogram total = new Histogram();
+
+        Window(long startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        void add(HttpRequestMetrics metrics) {
+            requests++;
+            if (metrics.statusCode == 0 || metrics.statusCode >= 400) {
+                failed++;
+            }
+            if (metrics.reused != TriState.UNKNOWN) {
+                reuseMeasured++;
+                if (metrics.reused == TriState.TRUE) {
+                    reused++;
+                }
+            }
+            bytes += metrics.bytes;
+            signingMs += metrics.signingMs;
+            Long count = statusCodes.get(metrics.statusCode);
+            statusCodes.put(metrics.statusCode, count == null ? 1L : count + 1);
+            connect.add(metrics.connectMs);
+            firstByte.add(metrics.firstByteMs);
+            total.add(metrics.totalMs);
+        }
+
+        void addAll(Window other) {
+            requests += other.requests;
+            failed += other.failed;
+            reused += other.reused;
+            reuseMeasured += other.reuseMeasured;
+            bytes += other.bytes;
+            signingMs += other.signingMs;
+            for (Map.Entry<Integer, Long> entry : other.statusCodes.entrySet()) {
+                Long count = statusCodes.get(entry.getKey());
+                statusCodes.put(entry.getKey(), count == null ? entry.getValue() : count + entry.getValue());
+            }
+            connect.addAll(other.connect);
+            firstByte.addAll(other.firstByte);
+            total.addAll(other.total);
+        }
+
+        @Override
+        public String toString() {
+            return "requests:" + requests + ",failed:" + failed + ",reused:" + reused + "/" + reuseMeasured
+                    + ",bytes:" + bytes
+                    + ",signing:" + signingMs + "ms,status:" + statusCodes
+                    + ",total:" + total + ",firstByte:" + firstByte + ",connect:" + connect;
+        }
+    }
+
+    static class Endpoint {
+        private Window previous = null;
+        private Window current;
+
+        Endpoint(long now) {
+            current = new Window(now);
+        }
+
+        synchronized void add(HttpRequestMetrics metrics, long now) {
+            roll(now);
+            current.add(metrics);
+        }
+
+        private void roll(long now) {
+            if (now - current.startedAt >= WINDOW_MILLIS) {
+                previous = (now - current.startedAt >= 2 * WINDOW_MILLIS) ? null : current;
+                current = new Window(now);
+            }
+        }
+
+        /**
+         * @return Sum of the current and the previous windows
+         */
+        synchronized Window getRolling(long now) {
+            roll(now);
+            Window sum = new Window(previous == null ? current.startedAt : previous.startedAt);
+            if (previous != null) {
+                sum.addAll(previous);
+            }
+            sum.addAll(current);
+            return sum;
+        }
+    }
+
+    static void add(HttpRequestMetrics metrics) {
+        long now = System.currentTimeMillis();
+        String key = metrics.account + " " + metrics.host + " "
+                + (metrics.apiRoutine == null ? "(other)" : metrics.apiRoutine.toString());
+        Endpoint endpoint = endpoints.get(key);
+        if (endpoint == null) {
+            Endpoint newEndpoint = new Endpoint(now);
+            endpoint = endpoints.putIfAbsent(key, newEndpoint);
+            if (endpoint == null) {
+                endpoint = newEndpoint;
+            }
+        }
+        endpoint.add(metrics, now);
+        changedSinceDump = true;
+
+        Totals totals = threadTotals.get();
+        threadTotals.set(new Totals((totals == null ? 0 : totals.requests) + 1,
+                (totals == null ? 0 : totals.timeMs) + metrics.totalMs,
+                (totals == null ? 0 : totals.bytes) + metrics.bytes));
+    }
+
+    /**
+     * @return Accumulated totals of the current thread
+     */
+    public static Totals getThreadTotals() {
+        Totals totals = threadTotals.get();
+        return totals == null ? new Totals(0, 0, 0) : totals;
+    }
+
+    /**
+     * @return One line per endpoint: "account host routine:{...}", sorted
+     */
+    public static String getReport() {
+        long now = System.currentTimeMillis();
+        Map<String, Endpoint> sorted = new TreeMap<String, Endpoint>(endpoints);
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Endpoint> entry : sorted.entrySet()) {
+            Window window = entry.getValue().getRolling(now);
+            if (window.requests > 0) {
+                builder.append(MyLog.formatKeyValue(entry.getKey(), window.toString()) + "\n");
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the report to the {@link #REPORT_FILE_NAME} in the log directory,
+     * if there were new requests since the previous dump
+     * @return true if the file was written
+     */
+    public static boolean dumpToLogDir() {
+        if (!changedSinceDump) {
+            return false;
+        }
+        changedSinceDump = false;
+        return MyLog.writeStringToFile(getReport(), REPORT_FILE_NAME);
+    }
+
+    static void clear() {
+        endpoints.clear();
+        threadTotals.remove();
+        changedSinceDump = false;
+    }
+}
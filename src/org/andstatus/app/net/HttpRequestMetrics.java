@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net;
+
+import org.andstatus.app.net.Connection.ApiRoutineEnum;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.TriState;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measurements of one HTTP request (including its redirects).
+ * Finished requests are aggregated by {@link HttpMetrics}
+ * @author yvolk@yurivolkov.com
+ */
+class HttpRequestMetrics {
+    final String account;
+    final String host;
+    /** null if unknown */
+    final ApiRoutineEnum apiRoutine;
+    private final long startedAt = System.nanoTime();
+
+    /** -1 means "not measured". Measured by the HttpURLConnection clients only */
+    long connectMs = -1;
+    long firstByteMs = -1;
+    long totalMs = -1;
+    long signingMs = 0;
+    long bytes = 0;
+    /** 0 if no response was received */
+    int statusCode = 0;
+    /** Known for the Apache HttpClient only */
+    TriState reused = TriState.UNKNOWN;
+
+    private HttpRequestMetrics(HttpConnectionData data, ApiRoutineEnum apiRoutine) {
+        account = data.originType + "/" + data.accountUsername;
+        host = data.host;
+        this.apiRoutine = apiRoutine;
+    }
+
+    /**
+     * @param apiRoutine null if unknown
+     */
+    static HttpRequestMetrics start(HttpConnectionData data, ApiRoutineEnum apiRoutine) {
+        return new HttpRequestMetrics(data, apiRoutine);
+    }
+
+    void addConnectTime(long startedAtNanos) {
+        connectMs = (connectMs < 0 ? 0 : connectMs) + elapsedMs(startedAtNanos);
+    }
+
+    void addSigningTime(long millis) {
+        signingMs += millis;
+    }
+
+    /**
+     * Response headers were received
+     */
+    void onResponse(int statusCodeIn) {
+        statusCode = statusCodeIn;
+        if (firstByteMs < 0) {
+            firstByteMs = elapsedMs(startedAt);
+        }
+    }
+
+    void addBytes(long bytesIn) {
+        if (bytesIn > 0) {
+            bytes += bytesIn;
+        }
+    }
+
+    /**
+     * Call this once, successful or not
+     */
+    void finish() {
+        totalMs = elapsedMs(startedAt);
+        HttpMetrics.add(this);
+        if (MyLog.isLoggable(this, MyLog.VERBOSE)) {
+            MyLog.v(this, toString());
+        }
+    }
+
+    private static long elapsedMs(long startedAtNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos);
+    }
+
+    @Override
+    public String toString() {
+        return MyLog.formatKeyValue("HttpRequestMetrics", "account:" + account + ", host:" + host
+                + ", routine:" + apiRoutine + ", status:" + statusCode + ", connect:" + connectMs
+                + "ms, firstByte:" + firstByteMs + "ms, total:" + totalMs + "ms, signing:" + signingMs
+                + "ms, bytes:" + bytes + ", reused:" + reused);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net;
+
+import android.text.TextUtils;
+
+import oauth.signpost.OAuthConsumer;
+import oauth.signpost.exception.OAuthCommunicationException;
+import oauth.signpost.exception.OAuthExpectationFailedException;
+import oauth.signpost.exception.OAuthMessageSignerException;
+
+import org.andstatus.app.util.MyLog;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Signs requests of one account at one host. The OAuth consumers and their key material
+ * are created once and shared by all threads, so we don't initialize them for every request.
+ * Instances are cached per account and host, see {@link #fromConnection(HttpConnectionOAuth)}
+ * @author yvolk@yurivolkov.com
+ */
+class OAuthSigner {
+    private static final Map<String, OAuthSigner> signers = new ConcurrentHashMap<String, OAuthSigner>();
+
+    private final String consumerKey;
+    private final String consumerSecret;
+    private final String token;
+    private final String tokenSecret;
+    /** Signs with the user token (if the token is present) */
+    private final OAuthConsumer consumer;
+    /** For the Dialback redirects */
+    private final OAuthConsumer consumerWithoutToken;
+
+    private final AtomicLong signedCount = new AtomicLong();
+    private final AtomicLong signingTimeNanos = new AtomicLong();
+
+    private OAuthSigner(HttpConnectionOAuth connection) {
+        consumerKey = consumerKeyOf(connection);
+        consumerSecret = consumerSecretOf(connection);
+        if (connection.getCredentialsPresent()) {
+            token = connection.getUserToken();
+            tokenSecret = connection.getUserSecret();
+        } else {
+            token = "";
+            tokenSecret = "";
+        }
+        consumer = newConsumer(connection, token, tokenSecret);
+        consumerWithoutToken = TextUtils.isEmpty(token) ? consumer : newConsumer(connection, "", "");
+    }
+
+    private static OAuthConsumer newConsumer(HttpConnectionOAuth connection, String token, String tokenSecret) {
+        OAuthConsumer consumer = connection.newConsumer();
+        consumer.setMessageSigner(new CachedHmacSha1MessageSigner());
+        if (!TextUtils.isEmpty(token)) {
+            consumer.setTokenWithSecret(token, tokenSecret);
+        }
+        return consumer;
+    }
+
+    private static String consumerKeyOf(HttpConnectionOAuth connection) {
+        return connection.data.oauthClientKeys.getConsumerKey();
+    }
+
+    private static String consumerSecretOf(HttpConnectionOAuth connection) {
+        return connection.data.oauthClientKeys.getConsumerSecret();
+    }
+
+    /**
+     * @return The cached signer, a new one is created if credentials of the connection changed
+     */
+    static OAuthSigner fromConnection(HttpConnectionOAuth connection) {
+        String key = keyOf(connection.data);
+        OAuthSigner signer = signers.get(key);
+        if (signer == null || !signer.isValidFor(connection)) {
+            signer = new OAuthSigner(connection);
+            signers.put(key, signer);
+            MyLog.v(OAuthSigner.class, "New signer for " + key);
+        }
+        return signer;
+    }
+
+    private boolean isValidFor(HttpConnectionOAuth connection) {
+        boolean credentialsPresent = connection.getCredentialsPresent();
+        return TextUtils.equals(consumerKey, consumerKeyOf(connection))
+                && TextUtils.equals(consumerSecret, consumerSecretOf(connection))
+                && TextUtils.equals(token, credentialsPresent ? connection.getUserToken() : "")
+                && TextUtils.equals(tokenSecret, credentialsPresent ? connection.getUserSecret() : "");
+    }
+
+    /**
+     * Forget signers of this account at all hosts
+     */
+    static void invalidate(HttpConnectionData data) {
+        String prefix = keyPrefixOf(data);
+        for (Iterator<String> iterator = signers.keySet().iterator(); iterator.hasNext();) {
+            if (iterator.next().startsWith(prefix)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static String keyOf(HttpConnectionData data) {
+        return keyPrefixOf(data) + data.host;
+    }
+
+    private static String keyPrefixOf(HttpConnectionData data) {
+        return data.originType + "/" + data.accountUsername + "/" + data.hostForUserToken + "@";
+    }
+
+    /**
+     * A consumer (with its message signer) keeps state of the request being signed,
+     * so concurrent requests are signed by the shared consumer one at a time
+     * @param withoutToken sign with empty user token and secret
+     *   (used after the first hop of the Dialback authorization)
+     * @return Signing time, ms
+     */
+    long sign(Object request, boolean withoutToken) throws OAuthMessageSignerException,
+            OAuthExpectationFailedException, OAuthCommunicationException {
+        OAuthConsumer signingConsumer = withoutToken ? consumerWithoutToken : consumer;
+        long startedAt = System.nanoTime();
+        synchronized (signingConsumer) {
+            signingConsumer.sign(request);
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        signedCount.incrementAndGet();
+        signingTimeNanos.addAndGet(elapsedNanos);
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    @Override
+    public String toString() {
+        long count = signedCount.get();
+        return "OAuthSigner{signed:" + count
+                + (count > 0 ? ", average:" + (signingTimeNanos.get() / count / 1000) + "us" : "")
+                + "}";
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net;
+
+import org.andstatus.app.util.MyLog;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers where requests of an account were redirected to (e.g. during the Dialback authorization
+ * at Pump.io hosts), so next requests go to the final URL directly.
+ *
+ * If only the host and the "directory" part of the path changed during the redirection,
+ * the rule is applied to all URLs of that "directory" (i.e. to the same timeline with other parameters),
+ * otherwise only to the same URL.
+ * @author yvolk@yurivolkov.com
+ */
+class RedirectCache {
+    static final long TIME_TO_LIVE_MILLIS = 30 * 60 * 1000L;
+    private static final Map<String, Redirect> redirects = new ConcurrentHashMap<String, Redirect>();
+
+    private static class Redirect {
+        final String fromPrefix;
+        final String toPrefix;
+        final long expiresAt;
+
+        Redirect(String fromPrefix, String toPrefix) {
+            this.fromPrefix = fromPrefix;
+            this.toPrefix = toPrefix;
+            expiresAt = System.currentTimeMillis() + TIME_TO_LIVE_MILLIS;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    private RedirectCache() {
+        // Empty
+    }
+
+    /**
+     * @return The final URL or null if we don't know it
+     */
+    static String getResolved(HttpConnectionData data, String url) {
+        Redirect redirect = get(data, url);
+        if (redirect == null) {
+            redirect = get(data, directoryOf(url));
+        }
+        if (redirect == null) {
+            return null;
+        }
+        return redirect.toPrefix + url.substring(redirect.fromPrefix.length());
+    }
+
+    private static Redirect get(HttpConnectionData data, String prefix) {
+        String key = keyOf(data, prefix);
+        Redirect redirect = redirects.get(key);
+        if (redirect != null && redirect.isExpired()) {
+            redirects.remove(key);
+            redirect = null;
+        }
+        return redirect;
+    }
+
+    static void put(HttpConnectionData data, String url, String resolvedUrl) {
+        String fromPrefix = url;
+        String toPrefix = resolvedUrl;
+        String directory = directoryOf(url);
+        String rest = url.substring(directory.length());
+        if (resolvedUrl.endsWith(rest)) {
+            String resolvedDirectory = resolvedUrl.substring(0, resolvedUrl.length() - rest.length());
+            if (resolvedDirectory.equals(directoryOf(resolvedUrl))) {
+                fromPrefix = directory;
+                toPrefix = resolvedDirectory;
+            }
+        }
+        redirects.put(keyOf(data, fromPrefix), new Redirect(fromPrefix, toPrefix));
+        MyLog.v(RedirectCache.class, "Redirect cached: '" + fromPrefix + "' -> '" + toPrefix + "'");
+    }
+
+    static void remove(HttpConnectionData data, String url) {
+        redirects.remove(keyOf(data, url));
+        redirects.remove(keyOf(data, directoryOf(url)));
+    }
+
+    /**
+     * Forget redirects of this account
+     */
+    static void invalidate(HttpConnectionData data) {
+        String prefix = keyOf(data, "");
+        for (Iterator<String> iterator = redirects.keySet().iterator(); iterator.hasNext();) {
+            if (iterator.next().startsWith(prefix)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return The URL up to (and including) the last slash of its path,
+     *   the URL itself if it has no path
+     */
+    static String directoryOf(String url) {
+        int indQuery = url.indexOf('?');
+        String withoutQuery = indQuery < 0 ? url : url.substring(0, indQuery);
+        int indHost = withoutQuery.indexOf("://");
+        int indPath = withoutQuery.indexOf('/', indHost < 0 ? 0 : indHost + 3);
+        if (indPath < 0) {
+            return url;
+        }
+        return url.substring(0, withoutQuery.lastIndexOf('/') + 1);
+    }
+
+    private static String keyOf(HttpConnectionData data, String prefix) {
+        return data.originType + "/" + data.accountUsername + "/" + data.hostForUserToken + " " + prefix;
+    }
+}
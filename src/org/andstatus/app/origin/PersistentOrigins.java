@@ -26,12 +26,44 @@ import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.MyDatabase;
 import org.andstatus.app.util.MyLog;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class PersistentOrigins {
-    private Map<String,Origin> persistentOrigins = new ConcurrentHashMap<String, Origin>();
+    /**
+     * Immutable set of the origins with indexes. Changes replace the whole object
+     */
+    private static final class Index {
+        static final Index EMPTY = new Index(Collections.<Origin>emptyList());
+
+        final Map<String, Origin> byName;
+        final Map<Long, Origin> byId;
+        /** The first origin of each type */
+        final Map<OriginType, Origin> byType;
+
+        Index(Collection<Origin> origins) {
+            Map<String, Origin> names = new LinkedHashMap<String, Origin>();
+            Map<Long, Origin> ids = new HashMap<Long, Origin>();
+            Map<OriginType, Origin> types = new HashMap<OriginType, Origin>();
+            for (Origin origin : origins) {
+                names.put(origin.name, origin);
+                ids.put(origin.id, origin);
+                if (!types.containsKey(origin.originType)) {
+                    types.put(origin.originType, origin);
+                }
+            }
+            byName = Collections.unmodifiableMap(names);
+            byId = ids;
+            byType = types;
+        }
+    }
+
+    private volatile Index index = Index.EMPTY;
     
     private PersistentOrigins() {
     }
@@ -49,16 +81,16 @@ public class PersistentOrigins {
         Cursor cursor = null;
         try {
             cursor = db.rawQuery(sql, null);
-            persistentOrigins.clear();
+            List<Origin> origins = new ArrayList<Origin>();
             while (cursor.moveToNext()) {
-                Origin origin = new Origin.Builder(cursor).build();
-                persistentOrigins.put(origin.name, origin);
+                origins.add(new Origin.Builder(cursor).build());
             }
+            index = new Index(origins);
         } finally {
             DbUtils.closeSilently(cursor);
         }
         
-        MyLog.v(this, "Initialized " + persistentOrigins.size() + " origins");
+        MyLog.v(this, "Initialized " + index.byName.size() + " origins");
         return this;
     }
     
@@ -70,12 +102,8 @@ public class PersistentOrigins {
      * @return Origin of UNKNOWN type if not found
      */
     public Origin fromId(long originId) {
-        for (Origin origin : persistentOrigins.values()) {
-            if (origin.id == originId) {
-                return origin;
-            }
-        }
-        return Origin.Builder.getUnknown();
+        Origin origin = index.byId.get(originId);
+        return origin == null ? Origin.Builder.getUnknown() : origin;
     }
     
     /**
@@ -84,7 +112,7 @@ public class PersistentOrigins {
     public Origin fromName(String originName) {
         Origin origin = null;
         if (!TextUtils.isEmpty(originName)) {
-            origin = persistentOrigins.get(originName);
+            origin = index.byName.get(originName);
         }
         if (origin == null) {
             origin = Origin.Builder.getUnknown();
@@ -96,16 +124,12 @@ public class PersistentOrigins {
      * @return Origin of this type or empty Origin of UNKNOWN type if not found
      */
     public Origin firstOfType(OriginType originType) {
-        for (Origin origin : persistentOrigins.values()) {
-            if (origin.originType == originType) {
-                return origin;
-            }
-        }
-        return Origin.Builder.getUnknown();
+        Origin origin = index.byType.get(originType);
+        return origin == null ? Origin.Builder.getUnknown() : origin;
     }
 
     public Collection<Origin> collection() {
-        return persistentOrigins.values();
+        return index.byName.values();
     }
     
     public boolean isHtmlContentAllowed(long originId) {
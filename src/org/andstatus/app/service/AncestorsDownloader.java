@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.data.DataInserter;
+import org.andstatus.app.data.LatestUserMessages;
+import org.andstatus.app.data.MyDatabase.Msg;
+import org.andstatus.app.data.MyDatabase.OidEnum;
+import org.andstatus.app.data.MyProvider;
+import org.andstatus.app.data.Outbox;
+import org.andstatus.app.data.TimelineChangeNotifier;
+import org.andstatus.app.data.TimelineTypeEnum;
+import org.andstatus.app.net.Connection;
+import org.andstatus.app.net.Connection.ApiRoutineEnum;
+import org.andstatus.app.net.ConnectionException;
+import org.andstatus.app.net.ConnectionException.StatusCode;
+import org.andstatus.app.net.MbMessage;
+import org.andstatus.app.util.MyLog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Downloads missing messages together with their missing ancestors in one execution:
+ * the chains are followed one reply level at a time, and all messages of the level are retrieved
+ * in one request, if the API allows it (see {@link ApiRoutineEnum#GET_MESSAGES}),
+ * or one by one otherwise. Downloaded messages are stored in one transaction at the end.
+ * Stops at the depth, time or requests limit, see {@link #setLimits(int, long, int)}
+ * @author yvolk@yurivolkov.com
+ */
+class AncestorsDownloader {
+    static final int DEPTH_LIMIT_DEFAULT = 20;
+    static final long TIME_LIMIT_MILLIS_DEFAULT = 30000;
+
+    private final CommandExecutionContext execContext;
+    private final CommandExecutorParent parent;
+    private int depthLimit = DEPTH_LIMIT_DEFAULT;
+    private long timeLimitMillis = TIME_LIMIT_MILLIS_DEFAULT;
+    private int requestsLimit = Integer.MAX_VALUE;
+
+    private long startedAt = 0;
+    private int requests = 0;
+    private ConnectionException error = null;
+
+    AncestorsDownloader(CommandExecutionContext execContext, CommandExecutorParent parent) {
+        this.execContext = execContext;
+        this.parent = parent;
+    }
+
+    AncestorsDownloader setLimits(int depthLimit, long timeLimitMillis, int requestsLimit) {
+        this.depthLimit = depthLimit;
+        this.timeLimitMillis = timeLimitMillis;
+        this.requestsLimit = requestsLimit;
+        return this;
+    }
+
+    /**
+     * Downloads the message, if it is missing, and its missing ancestors. Loaded ancestors are skipped
+     * @return Number of stored messages
+     */
+    int download(long msgId) {
+        long idToLoad = msgId;
+        while (idToLoad != 0 && !isMissing(idToLoad)) {
+            idToLoad = MyProvider.msgIdToLongColumnValue(Msg.IN_REPLY_TO_MSG_ID, idToLoad);
+        }
+        if (idToLoad == 0) {
+            return 0;
+        }
+        return download(Collections.singleton(idToLoad));
+    }
+
+    /**
+     * Downloads the messages and their missing ancestors
+     * @return Number of stored messages
+     */
+    int download(Collection<Long> msgIds) {
+        startedAt = System.currentTimeMillis();
+        List<String> oids = new ArrayList<String>();
+        for (long msgId : msgIds) {
+            String oid = MyProvider.idToOid(OidEnum.MSG_OID, msgId, 0);
+            if (!TextUtils.isEmpty(oid) && !Outbox.isPending(oid)) {
+                oids.add(oid);
+            }
+        }
+        Set<String> requested = new HashSet<String>(oids);
+        List<MbMessage> downloaded = new ArrayList<MbMessage>();
+        int depth = 0;
+        while (!oids.isEmpty() && depth < depthLimit && mayRequest()) {
+            List<MbMessage> messages = getMessages(oids);
+            downloaded.addAll(messages);
+            depth++;
+            oids = new ArrayList<String>();
+            for (MbMessage message : messages) {
+                String parentOid = getMissingParentOid(message);
+                if (!TextUtils.isEmpty(parentOid) && requested.add(parentOid)) {
+                    oids.add(parentOid);
+                }
+            }
+            if (error != null) {
+                break;
+            }
+            parent.preempt(execContext.getCommandData());
+        }
+        int stored = store(downloaded);
+        MyLog.d(this, "Stored " + stored + " messages, depth " + depth + ", " + requests + " requests, "
+                + oids.size() + " left, " + (System.currentTimeMillis() - startedAt) + "ms; "
+                + execContext.getMyAccount().getAccountName());
+        return stored;
+    }
+
+    /**
+     * @return The last connection error, which stopped downloading, or null
+     */
+    ConnectionException getError() {
+        return error;
+    }
+
+    private boolean mayRequest() {
+        return requests < requestsLimit
+                && System.currentTimeMillis() - startedAt < timeLimitMillis
+                && !parent.isStopping();
+    }
+
+    private List<MbMessage> getMessages(List<String> oids) {
+        List<MbMessage> messages = new ArrayList<MbMessage>();
+        Connection connection = execContext.getMyAccount().getConnection();
+        if (oids.size() > 1 && connection.isApiSupported(ApiRoutineEnum.GET_MESSAGES)) {
+            requests++;
+            try {
+                messages.addAll(connection.getMessages(oids));
+            } catch (ConnectionException e) {
+                onConnectionException(e, oids.size() + " messages");
+            }
+            return messages;
+        }
+        for (String oid : oids) {
+            if (!mayRequest()) {
+                break;
+            }
+            requests++;
+            try {
+                MbMessage message = connection.getMessage(oid);
+                if (!message.isEmpty()) {
+                    messages.add(message);
+                }
+            } catch (ConnectionException e) {
+                onConnectionException(e, "oid=" + oid);
+                if (error != null) {
+                    break;
+                }
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Messages, which were not found, are skipped, other errors stop downloading
+     */
+    private void onConnectionException(ConnectionException e, String detailMessage) {
+        MyLog.i(this, "Failed to get " + detailMessage, e);
+        if (e.getStatusCode() != StatusCode.NOT_FOUND) {
+            error = e;
+        }
+    }
+
+    /**
+     * @return Oid of the message, to which this one replies, if it's not stored yet, empty otherwise
+     */
+    private String getMissingParentOid(MbMessage message) {
+        if (message.inReplyToMessage == null || TextUtils.isEmpty(message.inReplyToMessage.oid)) {
+            return "";
+        }
+        String oid = message.inReplyToMessage.oid;
+        long msgId = MyProvider.oidToId(OidEnum.MSG_OID, execContext.getMyAccount().getOriginId(), oid);
+        if (msgId != 0 && !isMissing(msgId)) {
+            return "";
+        }
+        return oid;
+    }
+
+    /**
+     * The message is known by its oid only, see {@link DataInserter}
+     */
+    private static boolean isMissing(long msgId) {
+        return MyProvider.msgIdToLongColumnValue(Msg.CREATED_DATE, msgId) == 0;
+    }
+
+    /**
+     * Stores the messages, the earliest ancestors first, in one transaction.
+     * A failure rolls back all of them and is a soft error of the command, so it may be retried
+     * @return Number of stored messages
+     */
+    private int store(List<MbMessage> messages) {
+        if (messages.isEmpty()) {
+            return 0;
+        }
+        TimelineTypeEnum timelineTypeStored = execContext.getTimelineType();
+        // The ancestors don't belong to the timelines of the account
+        execContext.setTimelineType(TimelineTypeEnum.ALL);
+        DataInserter di = new DataInserter(execContext);
+        LatestUserMessages lum = new LatestUserMessages();
+        int stored = 0;
+        SQLiteDatabase db = MyContextHolder.get().getDatabase().getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int ind = messages.size() - 1; ind >= 0; ind--) {
+                if (di.insertOrUpdateMsg(messages.get(ind), lum) != 0) {
+                    stored++;
+                }
+            }
+            lum.save();
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            MyLog.e(this, "Storing " + messages.size() + " messages", e);
+            execContext.getResult().incrementNumIoExceptions();
+            stored = 0;
+        } finally {
+            db.endTransaction();
+        }
+        execContext.setTimelineType(timelineTypeStored);
+        if (stored > 0) {
+            TimelineChangeNotifier.onTimelineChanged(execContext.getMyAccount().getUserId(), TimelineTypeEnum.ALL);
+        }
+        return stored;
+    }
+}
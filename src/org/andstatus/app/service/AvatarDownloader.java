@@ -7,9 +7,13 @@ import android.database.sqlite.SQLiteException;
 import android.text.TextUtils;
 
 import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.data.AvatarCache;
 import org.andstatus.app.data.AvatarDrawable;
+import org.andstatus.app.data.AvatarScaler;
 import org.andstatus.app.data.AvatarStatus;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MsgChangeLog;
 import org.andstatus.app.data.MyProvider;
 import org.andstatus.app.data.MyDatabase.Avatar;
 import org.andstatus.app.data.MyDatabase.User;
@@ -23,14 +27,37 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
+/**
+ * Avatar files are named by a hash of their URLs, so users with the same avatar URL share one file.
+ * The file is referenced by rows of the {@link Avatar} table and is deleted, when the last reference is removed.
+ * Files, which we already have, are revalidated using "ETag" and "Last-Modified" response headers,
+ * see {@link AvatarDrawable#REVALIDATE_AFTER_MILLIS}.
+ */
 class AvatarDownloader {
+    private static final String FILE_NAME_PREFIX = "url_";
+
     private long userId;
     private long rowId = 0;
     private String fileNameStored = "";
     private AvatarStatus status = AvatarStatus.UNKNOWN; 
+    private long loadedDateStored = 0;
+    /** Validators of the file, which we already have for this URL */
+    private String eTag = "";
+    private long lastModified = 0;
+    /** Size of the file for this URL, as it was downloaded */
+    private long downloadSize = 0;
+    /** The file for this URL is used by another user */
+    private boolean sharedFileExists = false;
+    /** Sizes of files, which we didn't need to download */
+    private long bytesSaved = 0;
 
     private boolean hardError = false;
     private boolean softError = false;
@@ -63,7 +90,11 @@ class AvatarDownloader {
                 + " AND " + Avatar.URL + "=" + MyProvider.quoteIfNotQuoted(url.toExternalForm()) ;
         String sql = "SELECT " + Avatar.STATUS + ", "
                 + Avatar._ID + ", "
-                + Avatar.FILE_NAME
+                + Avatar.FILE_NAME + ", "
+                + Avatar.LOADED_DATE + ", "
+                + Avatar.ETAG + ", "
+                + Avatar.LAST_MODIFIED + ", "
+                + Avatar.DOWNLOAD_SIZE
                 + " FROM " + Avatar.TABLE_NAME 
                 + " WHERE " + where;
         
@@ -76,6 +107,10 @@ class AvatarDownloader {
                 status = AvatarStatus.load(cursor.getInt(0));
                 rowId = cursor.getLong(1);
                 fileNameStored = cursor.getString(2);
+                loadedDateStored = cursor.getLong(3);
+                eTag = notNull(cursor.getString(4));
+                lastModified = cursor.getLong(5);
+                downloadSize = cursor.getLong(6);
             }
         } finally {
             DbUtils.closeSilently(cursor);
@@ -84,12 +119,67 @@ class AvatarDownloader {
                 && !new AvatarDrawable(userId, fileNameStored).exists()) {
            status = AvatarStatus.ABSENT;
         }
+        if (!AvatarStatus.LOADED.equals(status)) {
+            loadSharedFileData(db);
+        }
+    }
+
+    /**
+     * Maybe another user has the same avatar already
+     */
+    private void loadSharedFileData(SQLiteDatabase db) {
+        String sql = "SELECT " + Avatar.ETAG + ", "
+                + Avatar.LAST_MODIFIED + ", "
+                + Avatar.DOWNLOAD_SIZE
+                + " FROM " + Avatar.TABLE_NAME
+                + " WHERE " + Avatar.FILE_NAME + "=" + MyProvider.quoteIfNotQuoted(fileNameForUrl(url))
+                + " AND " + Avatar.STATUS + "=" + AvatarStatus.LOADED.save()
+                + " AND " + Avatar.USER_ID + "<>" + userId;
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, null);
+            if (cursor.moveToNext()) {
+                sharedFileExists = new AvatarDrawable(userId, fileNameForUrl(url)).exists();
+                if (sharedFileExists) {
+                    eTag = notNull(cursor.getString(0));
+                    lastModified = cursor.getLong(1);
+                    downloadSize = cursor.getLong(2);
+                }
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+    }
+
+    private static String notNull(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * @return The name of the file, where the avatar with this URL is stored
+     */
+    static String fileNameForUrl(URL url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder builder = new StringBuilder(FILE_NAME_PREFIX);
+            for (byte b : digest.digest(url.toExternalForm().getBytes("UTF-8"))) {
+                builder.append(String.format("%02x", b & 0xFF));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
     }
     
     void load(CommandData commandData) {
         if (!hardError) {
             switch (status) {
                 case LOADED:
+                    if (System.currentTimeMillis() - loadedDateStored > AvatarDrawable.REVALIDATE_AFTER_MILLIS) {
+                        loadUrl();
+                    }
                     break;
                 case HARD_ERROR:
                     hardError = true;
@@ -105,24 +195,60 @@ class AvatarDownloader {
         if (softError) {
             commandData.getResult().incrementNumIoExceptions();
         }
+        commandData.getResult().addBytesSaved(bytesSaved);
+        AvatarCache.getInstance().onDownloadFinished(userId);
     }
 
     private void loadUrl() {
+        boolean shownBefore = AvatarStatus.LOADED.equals(status);
         loadTimeNew =  System.currentTimeMillis();
-        fileNameNew =  Long.toString(userId) + "_" + Long.toString(loadTimeNew);
-        downloadAvatarFile();
+        fileNameNew =  fileNameForUrl(url);
+        boolean downloaded = downloadAvatarFile();
         saveToDatabase();
         if (!isError()) {
+            if (downloaded) {
+                updateSharedRows();
+            }
             removeOld();
+            if (!shownBefore || !fileNameNew.equals(fileNameStored)) {
+                // Rows of the user's messages were built without this file
+                MsgChangeLog.onUserChanged(userId);
+            }
             MyLog.v(this, "Loaded avatar userId=" + userId);
         }
     }
 
-    private void downloadAvatarFile() {
+    /**
+     * @return true if new content of the file was downloaded
+     */
+    private boolean downloadAvatarFile() {
         String method = "downloadAvatarFile";
-        File fileTemp = new AvatarDrawable(userId, "temp_" + fileNameNew).getFile();
+        File fileNew = new AvatarDrawable(userId, fileNameNew).getFile();
+        boolean fileExists = fileNew.exists() && fileNew.isFile();
+        if (fileExists && sharedFileExists && TextUtils.isEmpty(eTag) && lastModified == 0) {
+            onNotModified(method + ", Reused the file of another user");
+            return false;
+        }
+        // Other users may download the same URL at the same time
+        File fileTemp = new AvatarDrawable(userId, "temp_" + userId + "_" + fileNameNew).getFile();
         try {
-            InputStream is = HttpJavaNetUtils.urlOpenStream(url);
+            URLConnection con = HttpJavaNetUtils.openConnection(url);
+            if (fileExists && con instanceof HttpURLConnection) {
+                if (!TextUtils.isEmpty(eTag)) {
+                    con.setRequestProperty("If-None-Match", eTag);
+                }
+                if (lastModified > 0) {
+                    con.setIfModifiedSince(lastModified);
+                }
+                if (((HttpURLConnection) con).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    ((HttpURLConnection) con).disconnect();
+                    onNotModified(method + ", Not modified");
+                    return false;
+                }
+            }
+            InputStream is = con.getInputStream();
+            eTag = notNull(con.getHeaderField("ETag"));
+            lastModified = con.getLastModified();
             try {
                 byte[] buffer = new byte[1024];
                 int length;
@@ -132,8 +258,10 @@ class AvatarDownloader {
                     if (mockNetworkError) {
                         throw new IOException(method + ", Mocked IO exception");
                     }
+                    downloadSize = 0;
                     while ((length = is.read(buffer))>0) {
                         out.write(buffer, 0, length);
+                        downloadSize += length;
                       }
                 } finally {
                     DbUtils.closeSilently(out);
@@ -150,13 +278,27 @@ class AvatarDownloader {
         }
         if (isError()) {
             deleteFileLogged(fileTemp);
+            return false;
         }
-        File fileNew = new AvatarDrawable(userId, fileNameNew).getFile();
         deleteFileLogged(fileNew);
-        if (!isError() && !fileTemp.renameTo(fileNew)) {
+        AvatarCache.getInstance().remove(fileNameNew);
+        if (!MyPreferences.keepOriginalAvatars()
+                && AvatarScaler.downscale(fileTemp, fileNew, AvatarScaler.getSizePixels())) {
+            MyLog.v(this, method + ", Downscaled " + fileTemp.length() + " bytes to " + fileNew.length());
+            deleteFileLogged(fileTemp);
+        } else if (!fileTemp.renameTo(fileNew)) {
             MyLog.v(this, method + ", Couldn't rename file " + fileTemp + " to " + fileNew);
             softError = true;
         }
+        return !softError;
+    }
+
+    /**
+     * We didn't download the file, which (before downscaling) had {@link #downloadSize} bytes
+     */
+    private void onNotModified(String message) {
+        bytesSaved += downloadSize;
+        MyLog.v(this, message + ", saved " + downloadSize + " bytes; url=" + url.toExternalForm());
     }
 
     private void deleteFileLogged(File file) {
@@ -200,6 +342,9 @@ class AvatarDownloader {
        values.put(Avatar.STATUS, status.save());
        values.put(Avatar.FILE_NAME, fileNameNew);
        values.put(Avatar.LOADED_DATE, loadTimeNew);
+       values.put(Avatar.ETAG, eTag);
+       values.put(Avatar.LAST_MODIFIED, lastModified);
+       values.put(Avatar.DOWNLOAD_SIZE, downloadSize);
 
        rowId = DbUtils.addRowWithRetry(Avatar.TABLE_NAME, values, 3);
        if (rowId == -1) {
@@ -216,22 +361,52 @@ class AvatarDownloader {
         values.put(Avatar.STATUS, status.save());
         if (!isError()) {
             values.put(Avatar.FILE_NAME, fileNameNew);
+            values.put(Avatar.ETAG, eTag);
+            values.put(Avatar.LAST_MODIFIED, lastModified);
+            values.put(Avatar.DOWNLOAD_SIZE, downloadSize);
         }
         values.put(Avatar.LOADED_DATE, loadTimeNew);
 
         if (DbUtils.updateRowWithRetry(Avatar.TABLE_NAME, rowId, values, 3) != 1) {
             softError = true;
         }
-        if (!isError()) {
-            deleteAvatarByFileName(fileNameStored);
+        if (!isError() && !fileNameNew.equals(fileNameStored)) {
+            deleteAvatarByFileName(fileNameStored, 0);
         }
     }
 
-    private void deleteAvatarByFileName(String fileNameToDelete) {
+    /**
+     * New content of the shared file is revalidated with its new validators by all users
+     */
+    private void updateSharedRows() {
+        ContentValues values = new ContentValues();
+        values.put(Avatar.ETAG, eTag);
+        values.put(Avatar.LAST_MODIFIED, lastModified);
+        values.put(Avatar.DOWNLOAD_SIZE, downloadSize);
+        try {
+            int updated = MyContextHolder.get().getDatabase().getWritableDatabase().update(Avatar.TABLE_NAME,
+                    values, Avatar.FILE_NAME + "=? AND " + Avatar._ID + "<>" + rowId, new String[] {fileNameNew});
+            if (updated > 0) {
+                MyLog.v(this, "Updated validators of " + updated + " rows, sharing " + fileNameNew);
+            }
+        } catch (SQLiteException e) {
+            logError("Couldn't update rows, sharing " + fileNameNew, e);
+        }
+    }
+
+    /**
+     * Deletes the file, if it is not referenced by other rows
+     * @param exceptRowId The row, which is being deleted
+     */
+    private void deleteAvatarByFileName(String fileNameToDelete, long exceptRowId) {
+        if (TextUtils.isEmpty(fileNameToDelete) || isReferenced(fileNameToDelete, exceptRowId)) {
+            return;
+        }
         AvatarDrawable avatarDrawable = new AvatarDrawable(userId, fileNameToDelete);
         if (avatarDrawable.exists()) {
             deleteFileLogged(avatarDrawable.getFile());
         }
+        AvatarCache.getInstance().remove(fileNameToDelete);
     }
     
     private void logError(String message, Exception e) {
@@ -257,7 +432,7 @@ class AvatarDownloader {
                 cursor = db.rawQuery(sql, null);
                 while (cursor.moveToNext()) {
                     long rowIdOld = cursor.getLong(0);
-                    deleteAvatarByFileName(cursor.getString(1));
+                    deleteAvatarByFileName(cursor.getString(1), rowIdOld);
                     rowsDeleted += db.delete(Avatar.TABLE_NAME, Avatar._ID + "=" + Long.toString(rowIdOld), null);
                 }
                 done = true;
@@ -277,6 +452,20 @@ class AvatarDownloader {
         MyLog.v(this, method + (done ? " succeeded" : " failed") + "; deleted " + rowsDeleted + " old rows");
     }
 
+    private boolean isReferenced(String fileName, long exceptRowId) {
+        String sql = "SELECT COUNT(*) FROM " + Avatar.TABLE_NAME
+                + " WHERE " + Avatar.FILE_NAME + "=" + MyProvider.quoteIfNotQuoted(fileName)
+                + " AND " + Avatar._ID + "<>" + exceptRowId;
+        SQLiteDatabase db = MyContextHolder.get().getDatabase().getWritableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, null);
+            return cursor.moveToNext() && cursor.getLong(0) > 0;
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+    }
+
     protected String getFileName() {
         return fileNameStored;
     }
@@ -57,6 +57,7 @@ public class CommandData implements Comparable<CommandData> {
     /**
      * This is: 
      * 1. Generally: Message ID ({@link MyDatabase.Msg#MSG_ID} of the {@link MyDatabase.Msg}).
+     *      For the {@link CommandEnum#UPDATE_STATUS} it's ID of the pending message, see {@link org.andstatus.app.data.Outbox}
      * 2. User ID ( {@link MyDatabase.User#USER_ID} ) for the {@link CommandEnum#FETCH_USER_TIMELINE}, 
      *      {@link CommandEnum#FOLLOW_USER}, {@link CommandEnum#STOP_FOLLOWING_USER} 
      */
@@ -137,7 +138,15 @@ public class CommandData implements Comparable<CommandData> {
     }
 
     public static CommandData updateStatus(String accountName, String status, long replyToId, long recipientId) {
-        CommandData commandData = new CommandData(CommandEnum.UPDATE_STATUS, accountName);
+        return updateStatus(accountName, status, replyToId, recipientId, 0);
+    }
+
+    /**
+     * @param pendingMsgId Id of the message in the {@link org.andstatus.app.data.Outbox}, 0 if none
+     */
+    public static CommandData updateStatus(String accountName, String status, long replyToId, long recipientId,
+            long pendingMsgId) {
+        CommandData commandData = new CommandData(CommandEnum.UPDATE_STATUS, accountName, pendingMsgId);
         commandData.bundle.putString(IntentExtra.EXTRA_STATUS.key, status);
         if (replyToId != 0) {
             commandData.bundle.putLong(IntentExtra.EXTRA_INREPLYTOID.key, replyToId);
@@ -368,15 +377,33 @@ public class CommandData implements Comparable<CommandData> {
         return MyContextHolder.get().persistentAccounts().fromAccountName(accountName);
     }
 
+    /**
+     * Commands with higher priority go first: the head of a {@link java.util.PriorityQueue} is its least element
+     */
     @Override
     public int compareTo(CommandData another) {
         int greater = 0;
         if ( another != null && another.priority != this.priority) {
-            greater = this.priority > another.priority ? 1 : -1;
+            greater = this.priority > another.priority ? -1 : 1;
         }
         return greater;
     }
 
+    /**
+     * @return true if this command may be executed in the middle of the long running command,
+     *   i.e. it is short and has higher priority
+     */
+    boolean mayPreempt(CommandData longCommand) {
+        switch (command) {
+            case AUTOMATIC_UPDATE:
+            case FETCH_TIMELINE:
+            case SEARCH_MESSAGE:
+                return false;
+            default:
+                return longCommand != null && priority > longCommand.priority;
+        }
+    }
+
     public CommandEnum getCommand() {
         return command;
     }
@@ -388,4 +415,19 @@ public class CommandData implements Comparable<CommandData> {
     public CommandResult getResult() {
         return commandResult;
     }
+
+    /**
+     * @return Snapshot of the command, which is not changed by its further execution
+     */
+    CommandData copy() {
+        CommandData copy = new CommandData();
+        copy.command = command;
+        copy.priority = priority;
+        copy.accountName = accountName;
+        copy.timelineType = timelineType;
+        copy.itemId = itemId;
+        copy.bundle = new Bundle(bundle);
+        copy.commandResult = commandResult.copy();
+        return copy;
+    }
 }
\ No newline at end of file
@@ -42,6 +42,10 @@ public enum CommandEnum {
     UPDATE_STATUS("update-status", 10), 
     DESTROY_STATUS("destroy-status", 3),
     GET_STATUS("get-status", 5),
+    /**
+     * Retrieve the message and its missing ancestors, see {@link AncestorsDownloader}
+     */
+    GET_CONVERSATION("get-conversation", 5),
 
     SEARCH_MESSAGE("search-message", -4),
     
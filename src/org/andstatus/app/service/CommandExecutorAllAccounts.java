@@ -39,6 +39,7 @@ public class CommandExecutorAllAccounts extends CommandExecutorStrategy {
                 execContext.getResult().setSoftErrorIfNotOk(false);
                 break;
             }
+            preemptAtCheckpoint();
         }
     }
 }
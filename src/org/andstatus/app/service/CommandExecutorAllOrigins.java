@@ -25,6 +25,7 @@ class CommandExecutorAllOrigins extends CommandExecutorStrategy {
                 execContext.getResult().setSoftErrorIfNotOk(false);
                 break;
             }
+            preemptAtCheckpoint();
         }
     }
 }
@@ -28,9 +28,10 @@ import org.andstatus.app.IntentExtra;
 import org.andstatus.app.R;
 import org.andstatus.app.TimelineActivity;
 import org.andstatus.app.appwidget.MyAppWidgetProvider;
-import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.PreferencesSnapshot;
 import org.andstatus.app.data.DataPruner;
-import org.andstatus.app.data.MyProvider;
+import org.andstatus.app.data.TimelineChangeNotifier;
 import org.andstatus.app.data.TimelineTypeEnum;
 import org.andstatus.app.net.ConnectionException;
 import org.andstatus.app.util.I18n;
@@ -38,12 +39,10 @@ import org.andstatus.app.util.MyLog;
 
 class CommandExecutorLoadTimeline extends CommandExecutorStrategy {
 
-    private boolean mNotificationsEnabled;
-    private boolean mNotificationsVibrate;
+    private final PreferencesSnapshot preferences;
     
     CommandExecutorLoadTimeline() {
-        mNotificationsEnabled = MyPreferences.getDefaultSharedPreferences().getBoolean("notifications_enabled", false);
-        mNotificationsVibrate = MyPreferences.getDefaultSharedPreferences().getBoolean("vibration", false);
+        preferences = MyContextHolder.get().preferences();
     }
     
     /* (non-Javadoc)
@@ -51,14 +50,20 @@ class CommandExecutorLoadTimeline extends CommandExecutorStrategy {
      */
     @Override
     void execute() {
+        long startedAt = System.currentTimeMillis();
         loadTimelines();
+        if (!execContext.getResult().hasError() && preferences.prefetchConversations 
+                && hasConversations() && !isStopping()) {
+            new ConversationPrefetcher(execContext, this).prefetch(startedAt);
+        }
         if (!execContext.getResult().hasError() && execContext.getCommandData().getTimelineType() == TimelineTypeEnum.ALL && !isStopping()) {
             new DataPruner(execContext.getContext()).prune();
         }
         if (!execContext.getResult().hasError()) {
-            // Notify all timelines, 
-            // see http://stackoverflow.com/questions/6678046/when-contentresolver-notifychange-is-called-for-a-given-uri-are-contentobserv
-            execContext.getContext().getContentResolver().notifyChange(MyProvider.TIMELINE_URI, null);
+            // Notify the loaded timelines only
+            for (TimelineTypeEnum timelineType : getTimelines()) {
+                TimelineChangeNotifier.onTimelineChanged(execContext.getMyAccount().getUserId(), timelineType);
+            }
         }
     }
 
@@ -67,7 +72,12 @@ class CommandExecutorLoadTimeline extends CommandExecutorStrategy {
      * @return True if everything Succeeded
      */
     private void loadTimelines() {
+        boolean first = true;
         for (TimelineTypeEnum timelineType : getTimelines()) {
+            if (!first) {
+                preemptAtCheckpoint();
+            }
+            first = false;
             if (isStopping()) {
                 break;
             }
@@ -80,6 +90,18 @@ class CommandExecutorLoadTimeline extends CommandExecutorStrategy {
         }
     }
 
+    /**
+     * @return true if the loaded timelines have replies, worth completing their conversations
+     */
+    private boolean hasConversations() {
+        for (TimelineTypeEnum timelineType : getTimelines()) {
+            if (timelineType == TimelineTypeEnum.HOME || timelineType == TimelineTypeEnum.MENTIONS) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private TimelineTypeEnum[] getTimelines() {
         TimelineTypeEnum[] timelineTypes;
         if (execContext.getCommandData().getTimelineType() == TimelineTypeEnum.ALL) {
@@ -106,7 +128,7 @@ class CommandExecutorLoadTimeline extends CommandExecutorStrategy {
                 }
                 execContext.setTimelineUserId(userId);
                 MyLog.d(this, "Getting " + execContext.getTimelineType() + " timeline for " + execContext.getMyAccount().getAccountName() );
-                TimelineDownloader.getStrategy(execContext).download();
+                TimelineDownloader.getStrategy(execContext, this).download();
             } else {
                 MyLog.v(this, execContext.getTimelineType() + " is not supported for "
                         + execContext.getMyAccount().getAccountName());
@@ -157,30 +179,25 @@ class CommandExecutorLoadTimeline extends CommandExecutorStrategy {
         }
 
         // If no notifications are enabled, return
-        if (!mNotificationsEnabled || numTweets == 0) {
+        if (!preferences.notificationsEnabled || numTweets == 0) {
             return;
         }
 
-        boolean notificationsMessages = MyPreferences.getDefaultSharedPreferences().getBoolean("notifications_messages", false);
-        boolean notificationsReplies = MyPreferences.getDefaultSharedPreferences().getBoolean("notifications_mentions", false);
-        boolean notificationsTimeline = MyPreferences.getDefaultSharedPreferences().getBoolean("notifications_timeline", false);
-        String ringtone = MyPreferences.getDefaultSharedPreferences().getString(MyPreferences.KEY_RINGTONE_PREFERENCE, null);
-
         // Make sure that notifications haven't been turned off for the
         // message type
         switch (msgType) {
             case NOTIFY_MENTIONS:
-                if (!notificationsReplies) {
+                if (!preferences.notificationsMentions) {
                     return;
                 }
                 break;
             case NOTIFY_DIRECT_MESSAGE:
-                if (!notificationsMessages) {
+                if (!preferences.notificationsMessages) {
                     return;
                 }
                 break;
             case NOTIFY_HOME_TIMELINE:
-                if (!notificationsTimeline) {
+                if (!preferences.notificationsTimeline) {
                     return;
                 }
                 break;
@@ -193,7 +210,7 @@ class CommandExecutorLoadTimeline extends CommandExecutorStrategy {
                 execContext.getContext().getText(R.string.notification_title), System.currentTimeMillis());
 
         notification.vibrate = null;
-        if (mNotificationsVibrate) {
+        if (preferences.notificationsVibrate) {
             notification.vibrate = new long[] {
                     200, 300, 200, 300
             };
@@ -204,10 +221,10 @@ class CommandExecutorLoadTimeline extends CommandExecutorStrategy {
         notification.ledOnMS = 500;
         notification.ledARGB = Color.GREEN;
 
-        if ("".equals(ringtone) || ringtone == null) {
+        if (preferences.ringtone.length() == 0) {
             notification.sound = null;
         } else {
-            Uri ringtoneUri = Uri.parse(ringtone);
+            Uri ringtoneUri = Uri.parse(preferences.ringtone);
             notification.sound = ringtoneUri;
         }
 
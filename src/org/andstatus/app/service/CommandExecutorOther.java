@@ -26,7 +26,10 @@ import org.andstatus.app.IntentExtra;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.DataInserter;
 import org.andstatus.app.data.MyDatabase;
+import org.andstatus.app.data.MsgStatus;
 import org.andstatus.app.data.MyProvider;
+import org.andstatus.app.data.Outbox;
+import org.andstatus.app.data.TimelineChangeNotifier;
 import org.andstatus.app.data.TimelineTypeEnum;
 import org.andstatus.app.data.MyDatabase.OidEnum;
 import org.andstatus.app.net.ConnectionException;
@@ -57,7 +60,7 @@ class CommandExecutorOther extends CommandExecutorStrategy{
                 String status = execContext.getCommandData().bundle.getString(IntentExtra.EXTRA_STATUS.key).trim();
                 long replyToId = execContext.getCommandData().bundle.getLong(IntentExtra.EXTRA_INREPLYTOID.key);
                 long recipientId = execContext.getCommandData().bundle.getLong(IntentExtra.EXTRA_RECIPIENTID.key);
-                updateStatus(status, replyToId, recipientId);
+                updateStatus(status, replyToId, recipientId, execContext.getCommandData().itemId);
                 break;
             case DESTROY_STATUS:
                 destroyStatus(execContext.getCommandData().itemId);
@@ -68,6 +71,9 @@ class CommandExecutorOther extends CommandExecutorStrategy{
             case GET_STATUS:
                 getStatus();
                 break;
+            case GET_CONVERSATION:
+                getConversation();
+                break;
             case REBLOG:
                 reblog(execContext.getCommandData().itemId);
                 break;
@@ -91,7 +97,9 @@ class CommandExecutorOther extends CommandExecutorStrategy{
         String oid = MyProvider.idToOid(OidEnum.MSG_OID, msgId, 0);
         MbMessage message = null;
         boolean errorLogged = false;
-        if (oid.length() > 0) {
+        if (Outbox.isPending(oid)) {
+            MyLog.i(this, (create ? "create" : "destroy") + "Favorite; the message was not sent yet, msgId=" + msgId);
+        } else if (oid.length() > 0) {
             try {
                 if (create) {
                     message = execContext.getMyAccount().getConnection().createFavorite(oid);
@@ -195,7 +203,8 @@ class CommandExecutorOther extends CommandExecutorStrategy{
             }
             if (ok) {
                 new DataInserter(execContext).insertOrUpdateUser(user);
-                execContext.getContext().getContentResolver().notifyChange(MyProvider.TIMELINE_URI, null);
+                TimelineChangeNotifier.onTimelineChanged(execContext.getMyAccount().getUserId(),
+                        TimelineTypeEnum.FOLLOWING_USER);
             }
         }
         logOk(ok || !errorLogged);
@@ -213,6 +222,10 @@ class CommandExecutorOther extends CommandExecutorStrategy{
             if (TextUtils.isEmpty(oid)) {
                 ok = true;
                 MyLog.e(this, "OID is empty for MsgId=" + msgId);
+            } else if (Outbox.isPending(oid)) {
+                // The message was not delivered, so it's enough to delete it locally:
+                // its UPDATE_STATUS command won't send it, see Outbox.maySend()
+                ok = true;
             } else {
                 ok = execContext.getMyAccount().getConnection().destroyStatus(oid);
                 logOk(ok);
@@ -296,6 +309,15 @@ class CommandExecutorOther extends CommandExecutorStrategy{
         MyLog.d(this, "getStatus " + (ok ? "succeded" : "failed") + ", id=" + execContext.getCommandData().itemId);
     }
 
+    private void getConversation() {
+        AncestorsDownloader downloader = new AncestorsDownloader(execContext, this);
+        int loaded = downloader.download(execContext.getCommandData().itemId);
+        if (downloader.getError() != null) {
+            logConnectionException(downloader.getError(), "getConversation Exception");
+        }
+        MyLog.d(this, "getConversation; loaded " + loaded + " messages, id=" + execContext.getCommandData().itemId);
+    }
+
     private boolean addMessageToLocalStorage(MbMessage message) {
         boolean ok = false;
         try {
@@ -311,17 +333,27 @@ class CommandExecutorOther extends CommandExecutorStrategy{
      * @param status
      * @param replyToMsgId - Message Id
      * @param recipientUserId !=0 for Direct messages - User Id
+     * @param pendingMsgId Id of the message in the {@link Outbox}, 0 if none
      */
-    private void updateStatus(String status, long replyToMsgId, long recipientUserId) {
+    private void updateStatus(String status, long replyToMsgId, long recipientUserId, long pendingMsgId) {
         final String method = "updateStatus";
         boolean ok = false;
         MbMessage message = null;
+        if (!Outbox.maySend(pendingMsgId)) {
+            MyLog.d(this, method + "; the pending message was deleted, not sending it, id=" + pendingMsgId);
+            return;
+        }
+        Outbox.setStatus(pendingMsgId, MsgStatus.SENDING);
         try {
             if (MyLog.isLoggable(this, MyLog.VERBOSE)) {
                 MyLog.v(this, method + ", text:'" + MyLog.trimmedString(status, 40) + "'");
             }
             if (recipientUserId == 0) {
                 String replyToMsgOid = MyProvider.idToOid(OidEnum.MSG_OID, replyToMsgId, 0);
+                if (Outbox.isPending(replyToMsgOid)) {
+                    // Let's wait till the message, which we reply to, is sent
+                    throw new ConnectionException("The message to reply to was not sent yet, msgId=" + replyToMsgId);
+                }
                 message = execContext.getMyAccount().getConnection()
                         .updateStatus(status.trim(), replyToMsgOid);
             } else {
@@ -337,16 +369,23 @@ class CommandExecutorOther extends CommandExecutorStrategy{
         }
         if (ok) {
             // The message was sent successfully
+            Outbox.onSent(pendingMsgId, message.oid, execContext.getMyAccount().getOriginId());
             // New User's message should be put into the user's Home timeline.
             long msgId = new DataInserter(
                     execContext.setTimelineType((recipientUserId == 0) ? TimelineTypeEnum.HOME
                             : TimelineTypeEnum.DIRECT)).insertOrUpdateMsg(message);
             execContext.getResult().setItemId(msgId);
+        } else {
+            Outbox.setStatus(pendingMsgId, execContext.getResult().willBeRetried() ? MsgStatus.FAILED : MsgStatus.NOT_SENT);
         }
     }
 
     private void reblog(long rebloggedId) {
         String oid = MyProvider.idToOid(OidEnum.MSG_OID, rebloggedId, 0);
+        if (Outbox.isPending(oid)) {
+            MyLog.i(this, "Reblog; the message was not sent yet, msgId=" + rebloggedId);
+            return;
+        }
         boolean ok = false;
         MbMessage result = null;
         try {
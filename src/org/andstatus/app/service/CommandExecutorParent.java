@@ -5,4 +5,11 @@ package org.andstatus.app.service;
  */
 public interface CommandExecutorParent {
     boolean isStopping();
+
+    /**
+     * Called by a long running command at its "checkpoints" (e.g. between pages or accounts):
+     * queued commands, which may preempt it (see {@link CommandData#mayPreempt(CommandData)}),
+     * are executed now, and then the long command resumes
+     */
+    void preempt(CommandData longCommand);
 }
@@ -21,6 +21,7 @@ import org.andstatus.app.account.MyAccount.CredentialsVerificationStatus;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.TimelineTypeEnum;
 import org.andstatus.app.net.ConnectionException;
+import org.andstatus.app.net.HttpMetrics;
 import org.andstatus.app.util.MyLog;
 
 class CommandExecutorStrategy implements CommandExecutorParent {
@@ -32,8 +33,10 @@ class CommandExecutorStrategy implements CommandExecutorParent {
                 .setParent(parent);
         commandData.getResult().onLaunched();
         logLaunch(strategy);
+        HttpMetrics.Totals networkBefore = HttpMetrics.getThreadTotals();
         // This may cause recursive calls to executors...
         strategy.execute();
+        commandData.getResult().setNetworkTotals(HttpMetrics.getThreadTotals().minus(networkBefore));
         commandData.getResult().onExecuted();
         logEnd(strategy);
     }
@@ -143,6 +146,20 @@ class CommandExecutorStrategy implements CommandExecutorParent {
         }
     }
 
+    @Override
+    public void preempt(CommandData longCommand) {
+        if (parent != null) {
+            parent.preempt(longCommand);
+        }
+    }
+
+    /**
+     * Lets queued interactive commands run before the next step of this command
+     */
+    void preemptAtCheckpoint() {
+        preempt(execContext.getCommandData());
+    }
+
     void logConnectionException(ConnectionException e, String detailedMessage) {
         if (e.isHardError()) {
             execContext.getResult().incrementParseExceptions();
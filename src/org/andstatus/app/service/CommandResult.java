@@ -22,6 +22,7 @@ import android.os.Parcelable;
 
 import org.andstatus.app.IntentExtra;
 import org.andstatus.app.data.TimelineTypeEnum;
+import org.andstatus.app.net.HttpMetrics;
 import org.andstatus.app.util.MyLog;
 
 /**
@@ -50,6 +51,13 @@ public final class CommandResult implements Parcelable {
     private int directedAdded = 0;
     private int downloadedCount = 0;
 
+    // Network usage during the last execution
+    private int networkRequests = 0;
+    private long networkTimeMs = 0;
+    private long networkBytes = 0;
+    /** Bytes, which we didn't download, because we had the data already (e.g. "304 Not Modified") */
+    private long bytesSaved = 0;
+
     public CommandResult() {
     }
     
@@ -80,6 +88,13 @@ public final class CommandResult implements Parcelable {
         if (directedAdded > 0) {
             message.append("directedAdded:" + directedAdded + ",");
         }
+        if (networkRequests > 0) {
+            message.append(MyLog.formatKeyValue("network", "requests:" + networkRequests
+                    + ",time:" + networkTimeMs + "ms,bytes:" + networkBytes) + ",");
+        }
+        if (bytesSaved > 0) {
+            message.append("bytesSaved:" + bytesSaved + ",");
+        }
         
         return MyLog.formatKeyValue("CommandResult", message);
     }
@@ -93,6 +108,24 @@ public final class CommandResult implements Parcelable {
         numParseExceptions = parcel.readLong();
         hourlyLimit = parcel.readInt();
         remainingHits = parcel.readInt();
+        networkRequests = parcel.readInt();
+        networkTimeMs = parcel.readLong();
+        networkBytes = parcel.readLong();
+        bytesSaved = parcel.readLong();
+    }
+
+    /**
+     * @return The copy, as it would be received in a broadcast
+     */
+    CommandResult copy() {
+        Parcel parcel = Parcel.obtain();
+        try {
+            writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
     }
 
     public int getExecutionCount() {
@@ -140,6 +173,10 @@ public final class CommandResult implements Parcelable {
         dest.writeLong(numParseExceptions);
         dest.writeInt(hourlyLimit);
         dest.writeInt(remainingHits);
+        dest.writeInt(networkRequests);
+        dest.writeLong(networkTimeMs);
+        dest.writeLong(networkBytes);
+        dest.writeLong(bytesSaved);
     }
 
     public static final Creator<CommandResult> CREATOR = new Creator<CommandResult>() {
@@ -228,6 +265,28 @@ public final class CommandResult implements Parcelable {
     public int getDownloadedCount() {
         return downloadedCount;
     }
+
+    void setNetworkTotals(HttpMetrics.Totals totals) {
+        networkRequests = totals.requests;
+        networkTimeMs = totals.timeMs;
+        networkBytes = totals.bytes;
+    }
+
+    public int getNetworkRequests() {
+        return networkRequests;
+    }
+
+    public long getNetworkTimeMs() {
+        return networkTimeMs;
+    }
+
+    void addBytesSaved(long bytes) {
+        bytesSaved += bytes;
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved;
+    }
     
     protected int getMessagesAdded() {
         return messagesAdded;
@@ -273,6 +332,11 @@ public final class CommandResult implements Parcelable {
         messagesAdded = 0;
         mentionsAdded = 0;
         directedAdded = 0;
+
+        networkRequests = 0;
+        networkTimeMs = 0;
+        networkBytes = 0;
+        bytesSaved = 0;
     }
     
     /**
@@ -285,6 +349,14 @@ public final class CommandResult implements Parcelable {
         }
     }
     
+    /**
+     * @return true if the command, which is being executed, will be retried after its current errors,
+     *   see {@link #shouldWeRetry()}, which is checked after the execution
+     */
+    boolean willBeRetried() {
+        return hasError() && !hasHardError() && retriesLeft > 1;
+    }
+
     boolean shouldWeRetry() {
         boolean retry = false;
         if (hasError() && !hasHardError() && retriesLeft > 0) {
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.provider.BaseColumns;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MyDatabase.Msg;
+import org.andstatus.app.data.MyDatabase.MsgOfUser;
+import org.andstatus.app.util.MyLog;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Downloads messages, to which new messages of the Home and Mentions timelines reply,
+ * so their conversations open complete. Runs after the timelines were loaded,
+ * making at most {@link #REQUESTS_BUDGET} requests per sync. Earlier ancestors are
+ * followed as they appear, while the budget lasts, see {@link AncestorsDownloader}.
+ * Connection failures don't affect the result of the sync: the messages will be retrieved
+ * when the conversation is opened
+ * @author yvolk@yurivolkov.com
+ */
+class ConversationPrefetcher {
+    static final int REQUESTS_BUDGET = 20;
+
+    private final CommandExecutionContext execContext;
+    private final CommandExecutorParent parent;
+
+    ConversationPrefetcher(CommandExecutionContext execContext, CommandExecutorParent parent) {
+        this.execContext = execContext;
+        this.parent = parent;
+    }
+
+    /**
+     * @param insertedSince Messages, inserted since this time, are checked
+     */
+    void prefetch(long insertedSince) {
+        Set<Long> toLoad = getMissingAncestors(insertedSince);
+        if (toLoad.isEmpty()) {
+            return;
+        }
+        int loaded = new AncestorsDownloader(execContext, parent)
+                .setLimits(AncestorsDownloader.DEPTH_LIMIT_DEFAULT, AncestorsDownloader.TIME_LIMIT_MILLIS_DEFAULT,
+                        REQUESTS_BUDGET)
+                .download(toLoad);
+        MyLog.d(this, "Prefetched " + loaded + " messages; " + execContext.getMyAccount().getAccountName());
+    }
+
+    /**
+     * @return Ids of missing messages, to which the new messages reply, newest replies first
+     */
+    private Set<Long> getMissingAncestors(long insertedSince) {
+        Set<Long> ids = new LinkedHashSet<Long>();
+        long userId = execContext.getMyAccount().getUserId();
+        String sql = "SELECT parent." + BaseColumns._ID
+                + " FROM " + Msg.TABLE_NAME + " AS msg"
+                + " INNER JOIN " + MsgOfUser.TABLE_NAME + " AS mou ON mou." + MsgOfUser.MSG_ID + "=msg." + BaseColumns._ID
+                + " AND mou." + MsgOfUser.USER_ID + "=" + userId
+                + " AND (mou." + MsgOfUser.SUBSCRIBED + "=1 OR mou." + MsgOfUser.MENTIONED + "=1)"
+                + " INNER JOIN " + Msg.TABLE_NAME + " AS parent ON parent." + BaseColumns._ID
+                + "=msg." + Msg.IN_REPLY_TO_MSG_ID
+                + " WHERE msg." + Msg.INS_DATE + ">=" + insertedSince
+                + " AND IFNULL(parent." + Msg.CREATED_DATE + ", 0)=0"
+                + " ORDER BY msg." + Msg.INS_DATE + " DESC"
+                + " LIMIT " + REQUESTS_BUDGET;
+        Cursor cursor = null;
+        try {
+            SQLiteDatabase db = MyContextHolder.get().getDatabase().getReadableDatabase();
+            cursor = db.rawQuery(sql, null);
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        } catch (Exception e) {
+            MyLog.e(this, "getMissingAncestors; SQL='" + sql + "'", e);
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        return ids;
+    }
+}
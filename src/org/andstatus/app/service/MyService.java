@@ -24,6 +24,7 @@ import org.andstatus.app.IntentExtra;
 import org.andstatus.app.R;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.net.HttpMetrics;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 
@@ -332,7 +333,7 @@ public class MyService extends Service {
 
                 registerReceiver(intentReceiver, new IntentFilter(ACTION_GO));
 
-                mNotificationsEnabled = MyPreferences.getDefaultSharedPreferences().getBoolean("notifications_enabled", false);
+                mNotificationsEnabled = MyContextHolder.get().preferences().notificationsEnabled;
                 
                 mInitialized = true;
                 broadcastState(null);
@@ -458,6 +459,7 @@ public class MyService extends Service {
         MyLog.v(this, "onDestroy");
         stopDelayed(true);
         MyLog.d(this, "Service destroyed");
+        MyLog.flush();
     }
     
     /**
@@ -499,6 +501,9 @@ public class MyService extends Service {
                     count += CommandData.saveQueue(this, mainCommandQueue, COMMANDS_QUEUE_FILENAME);
                     count += CommandData.saveQueue(this, retryCommandQueue, RETRY_QUEUE_FILENAME);
                     MyLog.d(this, "State saved, " + (count>0 ? Integer.toString(count) : "no ") + " msg in the Queues");
+                    if (MyLog.isLoggable(this, MyLog.DEBUG) && HttpMetrics.dumpToLogDir()) {
+                        MyLog.d(this, "Network metrics saved to " + HttpMetrics.REPORT_FILE_NAME);
+                    }
     
                     relealeWakeLock();
                     stopSelfResult(lastProcessedStartId);
@@ -594,17 +599,14 @@ public class MyService extends Service {
      * Send broadcast informing of the current state of this service
      */
     public static void broadcastState(Context context, ServiceState state, CommandData commandData) {
-        Intent intent = new Intent(ACTION_SERVICE_STATE);
-        if (commandData != null) {
-            intent = commandData.toIntent(intent);
-        }
-        intent.putExtra(IntentExtra.EXTRA_SERVICE_STATE.key, state.save());
-        context.sendBroadcast(intent);
+        MyServiceEventBus.post(context, state, commandData);
         MyLog.v(TAG, "state: " + state);
     }
     
     private class QueueExecutor extends AsyncTask<Void, Void, Boolean> implements CommandExecutorParent {
-        
+        /** Avatar bytes, which didn't need to be downloaded during this run, see {@link AvatarDownloader} */
+        private long bytesSaved = 0;
+
         @Override
         protected Boolean doInBackground(Void... arg0) {
             MyLog.d(this, "CommandExecutor started, " + mainCommandQueue.size() + " commands to process");
@@ -616,25 +618,59 @@ public class MyService extends Service {
                 if (commandData == null) {
                     break;
                 }
-                CommandExecutorStrategy.executeCommand(commandData, this);
-                if (commandData.getResult().shouldWeRetry()) {
-                    synchronized(MyService.this) {
-                        // Put the command to the retry queue
-                        if (!retryCommandQueue.contains(commandData) 
-                                && !retryCommandQueue.offer(commandData)) {
-                            MyLog.e(this, "mRetryQueue is full?");
-                        }
-                    }        
-                }
-                broadcastState(commandData);
-                if (commandData.getResult().hasError() && !isOnline()) {
-                    // Don't bother with other commands if we're not Online :-)
+                if (!executeOne(commandData)) {
                     break;
                 }
             } while (true);
-            MyLog.d(this, "CommandExecutor ended, " + mainCommandQueue.size() + " commands left");
+            MyLog.d(this, "CommandExecutor ended, " + mainCommandQueue.size() + " commands left"
+                    + (bytesSaved > 0 ? ", avatar bytes saved: " + bytesSaved : ""));
             return true;
         }
+
+        /**
+         * @return false if other commands shouldn't be executed now
+         */
+        private boolean executeOne(CommandData commandData) {
+            CommandExecutorStrategy.executeCommand(commandData, this);
+            bytesSaved += commandData.getResult().getBytesSaved();
+            if (commandData.getResult().shouldWeRetry()) {
+                synchronized(MyService.this) {
+                    // Put the command to the retry queue
+                    if (!retryCommandQueue.contains(commandData) 
+                            && !retryCommandQueue.offer(commandData)) {
+                        MyLog.e(this, "mRetryQueue is full?");
+                    }
+                }        
+            }
+            broadcastState(commandData);
+            // Don't bother with other commands if we're not Online :-)
+            return !(commandData.getResult().hasError() && !isOnline());
+        }
+
+        /**
+         * The long command is suspended in this thread, while the preempting commands are executed,
+         * so it resumes from the same place afterwards
+         */
+        @Override
+        public void preempt(CommandData longCommand) {
+            CommandData head = mainCommandQueue.peek();
+            while (head != null && head.mayPreempt(longCommand) && !isStopping()) {
+                CommandData commandData = mainCommandQueue.poll();
+                if (commandData == null) {
+                    break;
+                }
+                if (!commandData.mayPreempt(longCommand)) {
+                    // A long command was added after the peek
+                    mainCommandQueue.offer(commandData);
+                    break;
+                }
+                MyLog.v(this, "Preempting " + longCommand.getCommand() + " by " + commandData);
+                if (!executeOne(commandData)) {
+                    break;
+                }
+                head = mainCommandQueue.peek();
+            }
+        }
         
         /**
          * This is in the UI thread, so we can mess with the UI
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+
+import org.andstatus.app.IntentExtra;
+import org.andstatus.app.service.MyService.ServiceState;
+import org.andstatus.app.util.MyLog;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Delivers states of {@link MyService} to {@link MyServiceListener}s of this process
+ * by a method call in the UI thread instead of a system-wide broadcast.
+ * Listeners receive snapshots of the commands, as from a broadcast.
+ * Events, which are not delivered yet, are coalesced: only the latest event of the same execution
+ * of a command (and the latest state-only event) is delivered.
+ * Listeners are weakly referenced, so a forgotten listener doesn't leak.
+ * The system broadcast is still sent, when the service state changes, for other processes.
+ * @author yvolk@yurivolkov.com
+ */
+public class MyServiceEventBus {
+    private static final List<WeakReference<MyServiceListener>> listeners = new CopyOnWriteArrayList<WeakReference<MyServiceListener>>();
+    /** Guarded by the class. Not delivered events in the order of posting */
+    private static final List<CommandData> pending = new ArrayList<CommandData>();
+    private static boolean deliveryScheduled = false;
+    private static ServiceState broadcastedState = ServiceState.UNKNOWN;
+    private static long posted = 0;
+    private static long coalesced = 0;
+
+    private static volatile Handler handler = null;
+    private static final Runnable deliverRunnable = new Runnable() {
+        @Override
+        public void run() {
+            deliverPending();
+        }
+    };
+
+    private MyServiceEventBus() {
+        // Empty
+    }
+
+    public static void register(MyServiceListener listener) {
+        if (listener == null || isRegistered(listener)) {
+            return;
+        }
+        listeners.add(new WeakReference<MyServiceListener>(listener));
+    }
+
+    public static void unregister(MyServiceListener listener) {
+        for (WeakReference<MyServiceListener> reference : listeners) {
+            MyServiceListener registered = reference.get();
+            if (registered == null || registered == listener) {
+                listeners.remove(reference);
+            }
+        }
+    }
+
+    static boolean isRegistered(MyServiceListener listener) {
+        for (WeakReference<MyServiceListener> reference : listeners) {
+            if (reference.get() == listener) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Informs listeners of the current state of the service and of the command, which was processed
+     * @param commandData null if only the state is reported
+     */
+    static void post(Context context, ServiceState state, CommandData commandData) {
+        MyServiceManager.onServiceStateChanged(state);
+        CommandData event = commandData == null ? CommandData.getEmpty() : commandData.copy();
+        boolean stateChanged;
+        boolean scheduleDelivery;
+        synchronized (MyServiceEventBus.class) {
+            posted++;
+            int index = indexOfPendingExecution(event);
+            if (index >= 0) {
+                pending.remove(index);
+                coalesced++;
+            }
+            pending.add(event);
+            scheduleDelivery = !deliveryScheduled;
+            deliveryScheduled = true;
+            stateChanged = state != broadcastedState;
+            broadcastedState = state;
+        }
+        if (scheduleDelivery) {
+            getHandler().post(deliverRunnable);
+        }
+        if (stateChanged && context != null) {
+            broadcastState(context, state);
+        }
+    }
+
+    /**
+     * @return Index of the not delivered event of the same execution of the command, -1 if none
+     */
+    private static int indexOfPendingExecution(CommandData event) {
+        for (int index = 0; index < pending.size(); index++) {
+            CommandData pendingEvent = pending.get(index);
+            if (pendingEvent.equals(event)
+                    && pendingEvent.getResult().getExecutionCount() == event.getResult().getExecutionCount()) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static void broadcastState(Context context, ServiceState state) {
+        Intent intent = new Intent(MyService.ACTION_SERVICE_STATE);
+        intent.putExtra(IntentExtra.EXTRA_SERVICE_STATE.key, state.save());
+        context.sendBroadcast(intent);
+    }
+
+    private static Handler getHandler() {
+        if (handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+        }
+        return handler;
+    }
+
+    /**
+     * Called in the UI thread
+     */
+    static void deliverPending() {
+        List<CommandData> events;
+        synchronized (MyServiceEventBus.class) {
+            deliveryScheduled = false;
+            events = new ArrayList<CommandData>(pending);
+            pending.clear();
+        }
+        for (CommandData commandData : events) {
+            for (WeakReference<MyServiceListener> reference : listeners) {
+                MyServiceListener listener = reference.get();
+                if (listener == null) {
+                    listeners.remove(reference);
+                } else {
+                    listener.onReceive(commandData);
+                }
+            }
+        }
+    }
+
+    public static synchronized String getStats() {
+        return MyLog.formatKeyValue("MyServiceEventBus", "listeners:" + listeners.size() + ", posted:" + posted
+                + ", coalesced:" + coalesced + ", pending:" + pending.size());
+    }
+
+    static synchronized long getCoalesced() {
+        return coalesced;
+    }
+}
@@ -66,12 +66,8 @@ public class MyServiceManager extends BroadcastReceiver {
         String action = intent.getAction();
         if (action.equals(MyService.ACTION_SERVICE_STATE)) {
             MyContextHolder.initialize(context, this);
-            synchronized (mServiceState) {
-                stateQueuedTime = System.nanoTime();
-                waitingForServiceState = false;
-                mServiceState = MyService.ServiceState.load(intent
-                        .getStringExtra(IntentExtra.EXTRA_SERVICE_STATE.key));
-            }
+            onServiceStateChanged(MyService.ServiceState.load(intent
+                        .getStringExtra(IntentExtra.EXTRA_SERVICE_STATE.key)));
             MyLog.d(TAG, "Notification received: Service state=" + mServiceState);
         } else {
             if (!MyServiceManager.isServiceAvailable()) {
@@ -89,6 +85,17 @@ public class MyServiceManager extends BroadcastReceiver {
         }
     }
 
+    /**
+     * The state is reported by {@link MyService} directly, if it runs in this process
+     */
+    static void onServiceStateChanged(ServiceState state) {
+        synchronized (mServiceState) {
+            stateQueuedTime = System.nanoTime();
+            waitingForServiceState = false;
+            mServiceState = state;
+        }
+    }
+
     /**
      * Starts MyService  asynchronously if it is not already started
      * and send command to it.
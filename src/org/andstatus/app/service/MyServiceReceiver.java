@@ -19,12 +19,13 @@ package org.andstatus.app.service;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 
 import org.andstatus.app.util.InstanceId;
 import org.andstatus.app.util.MyLog;
 
 /**
+ * Connects a {@link MyServiceListener} to the {@link MyServiceEventBus}.
+ * Broadcasts of the service state are still received, if the receiver is registered in the manifest
  * @author yvolk@yurivolkov.com
  */
 public final class MyServiceReceiver extends BroadcastReceiver {
@@ -41,16 +42,11 @@ public final class MyServiceReceiver extends BroadcastReceiver {
     }
     
     public void registerReceiver(Context context) {
-        context.registerReceiver(this, new IntentFilter(MyService.ACTION_SERVICE_STATE));
+        MyServiceEventBus.register(listener);
     }
 
     public void unregisterReceiver(Context context) {
-        try {
-            context.unregisterReceiver(this);
-        } catch (IllegalArgumentException e) {
-            // Thrown when the "Receiver not registered: org.andstatus.app.service.MyServiceReceiver@..."
-            MyLog.ignored(this, e);
-        }
+        MyServiceEventBus.unregister(listener);
     }
     
     @Override
@@ -30,8 +30,9 @@ abstract class TimelineDownloader {
     private static final String TAG = TimelineDownloader.class.getSimpleName();
 
     protected CommandExecutionContext execContext;
+    private CommandExecutorParent parent;
     
-    protected static TimelineDownloader getStrategy(CommandExecutionContext execContext) {
+    protected static TimelineDownloader getStrategy(CommandExecutionContext execContext, CommandExecutorParent parent) {
         TimelineDownloader td;
         switch (execContext.getTimelineType()) {
             case FOLLOWING_USER:
@@ -44,8 +45,19 @@ abstract class TimelineDownloader {
                 break;
         }
         td.execContext = execContext;
+        td.parent = parent;
         return td;
     }
+
+    /**
+     * Lets queued interactive commands run between pages, see {@link CommandExecutorParent#preempt(CommandData)}.
+     * The downloader resumes from its current position afterwards
+     */
+    protected void preemptAtCheckpoint() {
+        if (parent != null) {
+            parent.preempt(execContext.getCommandData());
+        }
+    }
     
     public abstract void download() throws ConnectionException;
 }
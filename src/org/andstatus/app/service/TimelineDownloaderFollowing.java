@@ -112,6 +112,7 @@ class TimelineDownloaderFollowing extends TimelineDownloader {
                 } catch (ConnectionException e) {
                     MyLog.i(this, "Failed to download the User object or his message for oid=" + followedUserOid, e);
                 }
+                preemptAtCheckpoint();
             }
             if (friendId != 0) {
                 FollowingUserValues fu = new FollowingUserValues(execContext.getTimelineUserId(), friendId);
@@ -84,6 +84,7 @@ class TimelineDownloaderOther extends TimelineDownloader {
                 } else {
                     lastPosition = latestTimelineItem.getPosition();
                 }
+                preemptAtCheckpoint();
             } catch (ConnectionException e) {
                 if (e.getStatusCode() != StatusCode.NOT_FOUND) {
                     throw e;
@@ -1,40 +0,0 @@
-/**
- * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-package org.andstatus.app.support.android.v11.widget;
-
-import android.content.Context;
-import android.database.Cursor;
-import android.widget.SimpleCursorAdapter;
-
-/**
- * TODO: Needed only to get rid of auto-requery. Starting from API 11 we may use another constructor,
- * which allows to disable requery in its "flags" parameters.
- * @author yvolk@yurivolkov.com
- */
-public class MySimpleCursorAdapter extends SimpleCursorAdapter {
-
-    public MySimpleCursorAdapter(Context context, int layout, Cursor c, String[] from, int[] to,
-            int flags) {
-        super(context, layout, c, from, to);
-    }
-
-    @Override
-    protected void onContentChanged() {
-        // Ignore at this level. Will be handled elsewhere...
-    }
-
-}
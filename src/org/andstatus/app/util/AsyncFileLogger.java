@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.util.Log;
+
+import org.andstatus.app.data.DbUtils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes log messages to files in a background thread, so logging doesn't slow down the caller.
+ * Messages are buffered in a bounded queue; when it is full, new messages are dropped and counted.
+ * The single writer thread keeps the current file open and rotates it, when it grows too big.
+ * @author yvolk@yurivolkov.com
+ */
+class AsyncFileLogger {
+    private static final String TAG = AsyncFileLogger.class.getSimpleName();
+    static final int CAPACITY = 2000;
+    static final long MAX_FILE_BYTES = 4 * 1024 * 1024;
+    static final String ROTATED_SUFFIX = ".1";
+    private static final long FLUSH_TIMEOUT_MILLIS = 2000;
+
+    private static final BlockingQueue<Entry> queue = new ArrayBlockingQueue<Entry>(CAPACITY);
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final Object lock = new Object();
+    /** Guarded by lock */
+    private static Thread writerThread = null;
+    /** Guarded by lock. The file, which was created by {@link #add(String, String)} last */
+    private static String createdFileName = "";
+    /** Guarded by lock */
+    private static boolean flushOnCrashSet = false;
+
+    /** Used by the writer thread only */
+    private static Writer writer = null;
+    private static String openedFileName = "";
+    private static long openedFileBytes = 0;
+    private static long droppedReported = 0;
+
+    private static class Entry {
+        final String fileName;
+        final String text;
+        final CountDownLatch flushed;
+
+        Entry(String fileName, String text, CountDownLatch flushed) {
+            this.fileName = fileName;
+            this.text = text;
+            this.flushed = flushed;
+        }
+    }
+
+    private AsyncFileLogger() {
+        // Empty
+    }
+
+    static void add(String fileName, String text) {
+        ensureStarted(fileName);
+        if (!queue.offer(new Entry(fileName, text, null))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Waits till all buffered messages are written and closes the file
+     * @return false if the messages were not written during the timeout
+     */
+    static boolean flush() {
+        synchronized (lock) {
+            if (writerThread == null) {
+                return true;
+            }
+        }
+        CountDownLatch flushed = new CountDownLatch(1);
+        try {
+            if (!queue.offer(new Entry("", "", flushed), FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            return flushed.await(FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @return Total number of messages, dropped because the buffer was full
+     */
+    static long getDropped() {
+        return dropped.get();
+    }
+
+    private static void ensureStarted(String fileName) {
+        synchronized (lock) {
+            if (!fileName.equals(createdFileName)) {
+                // The file appears at once, even though it is written later
+                createdFileName = fileName;
+                createFile(fileName);
+            }
+            if (writerThread != null) {
+                return;
+            }
+            writerThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        writeEntries();
+                    } finally {
+                        onWriterStopped();
+                    }
+                }
+            }, "AsyncFileLogger");
+            writerThread.setDaemon(true);
+            writerThread.setPriority(Thread.MIN_PRIORITY);
+            writerThread.start();
+            if (!flushOnCrashSet) {
+                flushOnCrashSet = true;
+                flushOnCrash();
+            }
+        }
+    }
+
+    /**
+     * So the next message starts a new writer thread instead of waiting in the queue forever
+     */
+    private static void onWriterStopped() {
+        synchronized (lock) {
+            if (writerThread == Thread.currentThread()) {
+                writerThread = null;
+            }
+        }
+        closeFile();
+    }
+
+    private static void createFile(String fileName) {
+        File file = MyLog.getLogFile(fileName, false);
+        try {
+            if (file != null && !file.exists() && !file.createNewFile()) {
+                Log.d(TAG, "Couldn't create " + file.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            Log.d(TAG, fileName, e);
+        }
+    }
+
+    private static void flushOnCrash() {
+        final UncaughtExceptionHandler defaultHandler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread thread, Throwable ex) {
+                flush();
+                if (defaultHandler != null) {
+                    defaultHandler.uncaughtException(thread, ex);
+                }
+            }
+        });
+    }
+
+    private static void writeEntries() {
+        while (true) {
+            Entry entry;
+            try {
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                closeFile();
+                return;
+            }
+            try {
+                if (entry.flushed != null) {
+                    closeFile();
+                    continue;
+                }
+                write(entry);
+                if (queue.isEmpty()) {
+                    flushFile();
+                }
+            } catch (RuntimeException e) {
+                // One bad message shouldn't stop logging of the next ones
+                Log.d(TAG, entry.fileName, e);
+                closeFile();
+            } finally {
+                if (entry.flushed != null) {
+                    entry.flushed.countDown();
+                }
+            }
+        }
+    }
+
+    private static void write(Entry entry) {
+        if (!entry.fileName.equals(openedFileName) || writer == null) {
+            openFile(entry.fileName);
+        }
+        if (writer == null) {
+            return;
+        }
+        try {
+            long droppedCount = dropped.get() - droppedReported;
+            if (droppedCount > 0) {
+                droppedReported += droppedCount;
+                String text = MyLog.currentDateTimeFormatted() + " W/" + MyLog.APPTAG + ": " + droppedCount
+                        + " messages dropped\n";
+                writer.write(text);
+                openedFileBytes += text.length();
+            }
+            writer.write(entry.text);
+            openedFileBytes += entry.text.length();
+        } catch (IOException e) {
+            Log.d(TAG, entry.fileName, e);
+            closeFile();
+        }
+        if (openedFileBytes > MAX_FILE_BYTES) {
+            rotate();
+        }
+    }
+
+    private static void openFile(String fileName) {
+        closeFile();
+        File file = MyLog.getLogFile(fileName, false);
+        if (file == null) {
+            return;
+        }
+        try {
+            openedFileBytes = file.length();
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+            openedFileName = fileName;
+        } catch (IOException e) {
+            Log.d(TAG, fileName, e);
+            writer = null;
+        }
+    }
+
+    /**
+     * The current file is renamed, its previous copy is deleted
+     */
+    private static void rotate() {
+        String fileName = openedFileName;
+        closeFile();
+        File file = MyLog.getLogFile(fileName, false);
+        if (file == null) {
+            return;
+        }
+        File rotated = new File(file.getAbsolutePath() + ROTATED_SUFFIX);
+        if (rotated.exists() && !rotated.delete()) {
+            Log.d(TAG, "Couldn't delete " + rotated.getAbsolutePath());
+        }
+        if (!file.renameTo(rotated)) {
+            Log.d(TAG, "Couldn't rename " + file.getAbsolutePath());
+        }
+    }
+
+    private static void flushFile() {
+        if (writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                Log.d(TAG, openedFileName, e);
+                closeFile();
+            }
+        }
+    }
+
+    private static void closeFile() {
+        DbUtils.closeSilently(writer, openedFileName);
+        writer = null;
+        openedFileName = "";
+        openedFileBytes = 0;
+    }
+}
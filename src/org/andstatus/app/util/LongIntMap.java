@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+/**
+ * Map of primitive long keys to int values without boxing (open addressing, linear probing).
+ * The capacity is fixed, so the expected number of keys should be known beforehand.
+ * Not thread safe: fill it in one thread and then publish it, e.g. via a volatile field
+ * @author yvolk@yurivolkov.com
+ */
+public class LongIntMap {
+    public static final int NOT_FOUND = -1;
+
+    private final long[] keys;
+    private final int[] values;
+    private final boolean[] used;
+    private final int mask;
+    private int size = 0;
+
+    /**
+     * @param expectedSize Maximum number of keys
+     */
+    public LongIntMap(int expectedSize) {
+        int capacity = 4;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @throws IllegalStateException if there is no room for a new key
+     */
+    public void put(long key, int value) {
+        int index = indexOf(key);
+        if (!used[index]) {
+            if (size >= keys.length - 1) {
+                throw new IllegalStateException("The map is full, size=" + size);
+            }
+            used[index] = true;
+            keys[index] = key;
+            size++;
+        }
+        values[index] = value;
+    }
+
+    /**
+     * @return {@link #NOT_FOUND} if the key is absent
+     */
+    public int get(long key) {
+        int index = indexOf(key);
+        return used[index] ? values[index] : NOT_FOUND;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Index of the key or of the free slot for it
+     */
+    private int indexOf(long key) {
+        int index = hash(key) & mask;
+        while (used[index] && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private static int hash(long key) {
+        int hash = (int) (key ^ (key >>> 32));
+        return hash ^ (hash >>> 16);
+    }
+}
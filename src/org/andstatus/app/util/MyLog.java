@@ -29,6 +29,8 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import android.content.SharedPreferences;
 import android.text.TextUtils;
@@ -82,6 +84,11 @@ public class MyLog {
      * Cached value of the persistent preference
      */
     private static volatile int minLogLevel = VERBOSE;
+    /**
+     * Cached lowest levels, allowed by {@link Log#isLoggable(String, int)} for tags,
+     * so the system properties are not read on each call
+     */
+    private static final Map<String, Integer> tagMinLogLevels = new ConcurrentHashMap<String, Integer>();
 
     private static volatile ThreadLocal<String> logFileName = new ThreadLocal<String>();
 
@@ -260,14 +267,28 @@ public class MyLog {
             if (TextUtils.isEmpty(tag)) {
                 tag = APPTAG;
             }
-            if (tag.length() > 23) {
-                tag = tag.substring(0, 22);
-            }
-            is = Log.isLoggable(tag, level);
+            is = level >= getTagMinLogLevel(tag);
         }
         
         return is;
     }
+
+    private static int getTagMinLogLevel(String tag) {
+        Integer level = tagMinLogLevels.get(tag);
+        if (level == null) {
+            String tagTrimmed = tag.length() > 23 ? tag.substring(0, 22) : tag;
+            int levelFound = Log.ASSERT + 1;
+            for (int levelToCheck = VERBOSE; levelToCheck <= Log.ASSERT; levelToCheck++) {
+                if (Log.isLoggable(tagTrimmed, levelToCheck)) {
+                    levelFound = levelToCheck;
+                    break;
+                }
+            }
+            level = levelFound;
+            tagMinLogLevels.put(tag, level);
+        }
+        return level;
+    }
     
     /**
      * Initialize using a double-check idiom 
@@ -324,6 +345,7 @@ public class MyLog {
      */
     public static void forget() {
         initialized = false;
+        tagMinLogLevels.clear();
     }
     
     /**
@@ -400,9 +422,25 @@ public class MyLog {
             String fileName = currentDateTimeFormatted() + "_log.txt";
             logFileName.set(fileName); 
         } else { 
+            if (logFileName.get() != null) {
+                flush();
+            }
             logFileName.remove();
         }
     }
+
+    /**
+     * Waits till messages, logged to files, are written
+     */
+    public static void flush() {
+        if (!AsyncFileLogger.flush()) {
+            Log.d(TAG, "Log file wasn't flushed in time");
+        }
+        long dropped = AsyncFileLogger.getDropped();
+        if (dropped > 0) {
+            Log.d(TAG, dropped + " messages were not logged to file");
+        }
+    }
     
     static boolean isLogToFileEnabled() {
         return logFileName.get() != null;
@@ -431,7 +469,7 @@ public class MyLog {
             builder.append(getStackTrace(tr));
         }
         builder.append("\n");
-        writeStringToFile(builder.toString(), fileName, true, false);
+        AsyncFileLogger.add(fileName, builder.toString());
     }
     
     public static String getLogFileName() {
@@ -18,6 +18,7 @@ package org.andstatus.app.util;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.Locale;
 
 import org.andstatus.app.R;
 
@@ -36,6 +37,33 @@ public class RelativeTime {
     private static final int DAY = 24 * HOUR;
     private static final int MONTH = 30 * DAY;
 
+    /** Units of the time buckets. Each bucket is a unit and a number of such units */
+    private static final int UNIT_SECONDS = 0;
+    private static final int UNIT_MINUTES = 1;
+    private static final int UNIT_HOURS = 2;
+    private static final int UNIT_DAYS = 3;
+    private static final int UNIT_MONTHS = 4;
+    private static final int UNIT_OTHER = 5;
+    private static final int UNITS_COUNT = 6;
+    private static final int MAX_NUMBER_IN_UNIT = 60;
+    /** Number of the "other" unit */
+    private static final int JUST_NOW = 0;
+    private static final int YEARS_AGO = 1;
+
+    /**
+     * Formatted strings of the buckets for one locale.
+     * Strings are immutable, so concurrent writes of the same value are harmless
+     */
+    private static final class BucketStrings {
+        final Locale locale;
+        final String[][] values = new String[UNITS_COUNT][MAX_NUMBER_IN_UNIT + 1];
+
+        BucketStrings(Locale locale) {
+            this.locale = locale;
+        }
+    }
+    private static volatile BucketStrings bucketStrings = new BucketStrings(null);
+
     private Calendar mCalendar;
     private Context mContext;
     
@@ -67,56 +95,102 @@ public class RelativeTime {
     }
 
     /**
-     * Difference to Now
+     * Difference to Now. The time is rounded to a bucket (e.g. "5 minutes"),
+     * strings of the buckets are formatted once for the current locale
      * @param from 
      * @return String
      */
     public static String getDifference(Context context, long from) {
-        String value;
+        if (from <= 0) {
+            return "";
+        }
         long to = System.currentTimeMillis();
         long delta = java.lang.Math.round( (double)(to - from) / 1000);
-        if (from <= 0) {
-            value = "";
-        } else if (delta < 1) {
-            value = context.getString(R.string.reltime_just_now);
+        int unit;
+        int number;
+        if (delta < 1) {
+            unit = UNIT_OTHER;
+            number = JUST_NOW;
         } else if (delta < 1 * MINUTE) {
-            int numSeconds = (int) delta;
-            value = I18n.formatQuantityMessage(context,
-                    0,
-                    numSeconds,
-                    R.array.reltime_seconds_ago_patterns,
-                    R.array.reltime_seconds_ago_formats);
+            unit = UNIT_SECONDS;
+            number = (int) delta;
         } else if (delta < 59 * MINUTE) {
-            int numMinutes = (int) java.lang.Math.round( (double) delta / MINUTE);
-            value = I18n.formatQuantityMessage(context,
-                    0,
-                    numMinutes,
-                    R.array.reltime_minutes_ago_patterns,
-                    R.array.reltime_minutes_ago_formats);
+            unit = UNIT_MINUTES;
+            number = (int) java.lang.Math.round( (double) delta / MINUTE);
         } else if (delta < 24 * HOUR) {
-            int numHours = (int) java.lang.Math.round( (double) delta / HOUR);
-            value = I18n.formatQuantityMessage(context,
-                    0,
-                    numHours,
-                    R.array.reltime_hours_ago_patterns,
-                    R.array.reltime_hours_ago_formats);
+            unit = UNIT_HOURS;
+            number = (int) java.lang.Math.round( (double) delta / HOUR);
         } else if (delta < 30 * DAY) {
-            int numDays = (int) java.lang.Math.round( (double) delta / DAY);
-            value = I18n.formatQuantityMessage(context,
-                    0,
-                    numDays,
-                    R.array.reltime_days_ago_patterns,
-                    R.array.reltime_days_ago_formats);
+            unit = UNIT_DAYS;
+            number = (int) java.lang.Math.round( (double) delta / DAY);
         } else if (delta < 12 * MONTH) {
-            int numMonths = (int) java.lang.Math.round( (double) delta / MONTH);
-            value = I18n.formatQuantityMessage(context,
-                    0,
-                    numMonths,
-                    R.array.reltime_months_ago_patterns,
-                    R.array.reltime_months_ago_formats);
+            unit = UNIT_MONTHS;
+            number = (int) java.lang.Math.round( (double) delta / MONTH);
         } else {
             // TODO: Years...
-            value = context.getString(R.string.reltime_years_ago);
+            unit = UNIT_OTHER;
+            number = YEARS_AGO;
+        }
+        return getBucketString(context, unit, number);
+    }
+
+    private static String getBucketString(Context context, int unit, int number) {
+        Locale locale = context.getResources().getConfiguration().locale;
+        BucketStrings strings = bucketStrings;
+        if (strings.locale == null || !strings.locale.equals(locale)) {
+            strings = new BucketStrings(locale);
+            bucketStrings = strings;
+        }
+        String value = strings.values[unit][number];
+        if (value == null) {
+            value = formatBucket(context, unit, number);
+            strings.values[unit][number] = value;
+        }
+        return value;
+    }
+
+    private static String formatBucket(Context context, int unit, int number) {
+        String value;
+        switch (unit) {
+            case UNIT_SECONDS:
+                value = I18n.formatQuantityMessage(context,
+                        0,
+                        number,
+                        R.array.reltime_seconds_ago_patterns,
+                        R.array.reltime_seconds_ago_formats);
+                break;
+            case UNIT_MINUTES:
+                value = I18n.formatQuantityMessage(context,
+                        0,
+                        number,
+                        R.array.reltime_minutes_ago_patterns,
+                        R.array.reltime_minutes_ago_formats);
+                break;
+            case UNIT_HOURS:
+                value = I18n.formatQuantityMessage(context,
+                        0,
+                        number,
+                        R.array.reltime_hours_ago_patterns,
+                        R.array.reltime_hours_ago_formats);
+                break;
+            case UNIT_DAYS:
+                value = I18n.formatQuantityMessage(context,
+                        0,
+                        number,
+                        R.array.reltime_days_ago_patterns,
+                        R.array.reltime_days_ago_formats);
+                break;
+            case UNIT_MONTHS:
+                value = I18n.formatQuantityMessage(context,
+                        0,
+                        number,
+                        R.array.reltime_months_ago_patterns,
+                        R.array.reltime_months_ago_formats);
+                break;
+            default:
+                value = context.getString(number == JUST_NOW ? R.string.reltime_just_now
+                        : R.string.reltime_years_ago);
+                break;
         }
         return value;
     }
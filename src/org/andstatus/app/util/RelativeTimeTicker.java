@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * One shared clock for all shown {@link RelativeTime} labels: at the start of each minute it asks its listeners
+ * to refresh the labels, which are visible. Ticks only while there are listeners.
+ * The tick is the number of the current minute, so labels, composed during the current minute,
+ * stay fresh, however often the listeners are called.
+ * Listeners are weakly referenced and are called in the UI thread.
+ * @author yvolk@yurivolkov.com
+ */
+public class RelativeTimeTicker {
+    static final long TICK_MILLIS = 60 * 1000;
+
+    public interface Listener {
+        void onRelativeTimeTick();
+    }
+
+    private static final List<WeakReference<Listener>> listeners = new CopyOnWriteArrayList<WeakReference<Listener>>();
+    private static volatile Handler handler = null;
+    private static final Runnable tickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            onTick();
+        }
+    };
+
+    private RelativeTimeTicker() {
+        // Empty
+    }
+
+    /**
+     * Starts ticking, if this is the first listener. Listeners are called at once,
+     * because the time passed, while the listener was not registered. This doesn't change the tick,
+     * so only labels, composed before the current minute, are refreshed
+     */
+    public static void register(Listener listener) {
+        if (listener == null) {
+            return;
+        }
+        unregister(listener);
+        listeners.add(new WeakReference<Listener>(listener));
+        getHandler().removeCallbacks(tickRunnable);
+        getHandler().post(tickRunnable);
+    }
+
+    public static void unregister(Listener listener) {
+        for (WeakReference<Listener> reference : listeners) {
+            Listener registered = reference.get();
+            if (registered == null || registered == listener) {
+                listeners.remove(reference);
+            }
+        }
+        if (listeners.isEmpty() && handler != null) {
+            handler.removeCallbacks(tickRunnable);
+        }
+    }
+
+    /**
+     * @return Number of the current tick. Labels, composed during an older tick, may be stale
+     */
+    public static long getTick() {
+        return System.currentTimeMillis() / TICK_MILLIS;
+    }
+
+    private static Handler getHandler() {
+        if (handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+        }
+        return handler;
+    }
+
+    /**
+     * Called in the UI thread
+     */
+    static void onTick() {
+        for (WeakReference<Listener> reference : listeners) {
+            Listener listener = reference.get();
+            if (listener == null) {
+                listeners.remove(reference);
+            } else {
+                listener.onRelativeTimeTick();
+            }
+        }
+        if (!listeners.isEmpty()) {
+            getHandler().postDelayed(tickRunnable, TICK_MILLIS - System.currentTimeMillis() % TICK_MILLIS);
+        }
+    }
+}
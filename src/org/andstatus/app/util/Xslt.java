@@ -18,11 +18,27 @@ package org.andstatus.app.util;
 
 import android.app.Activity;
 import android.content.Context;
+import android.content.pm.PackageManager.NameNotFoundException;
 import android.webkit.WebView;
 
+import org.andstatus.app.data.DbUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -32,11 +48,16 @@ import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
 /**
- * XSLT utils 
+ * XSLT utils.
+ * Compiled stylesheets are kept in memory, and results of the transformations are cached in files,
+ * which are valid for the current version of the application and the current locale only
  * @author yvolk@yurivolkov.com
  */
 public class Xslt {
     private static final String TAG = Xslt.class.getSimpleName();
+    private static final String CACHE_FILE_PREFIX = "xslt_";
+    /** Compiled stylesheets by their resource ids */
+    private static final Map<Integer, Templates> templatesCache = new ConcurrentHashMap<Integer, Templates>();
 
     private Xslt() {
     }
@@ -48,6 +69,19 @@ public class Xslt {
      * @return empty in case of error
      */
     public static String toHtmlString(Context context, int resXml, int resXsl) {
+        File cacheFile = getCacheFile(context, resXml, resXsl);
+        String output = readFile(cacheFile);
+        if (output.length() == 0) {
+            output = transform(context, resXml, resXsl);
+            if (output.length() > 0) {
+                deleteOldCacheFiles(cacheFile, resXml, resXsl);
+                writeFile(cacheFile, output);
+            }
+        }
+        return output;
+    }
+
+    private static String transform(Context context, int resXml, int resXsl) {
         String output = "";
         
         // Based on http://stackoverflow.com/questions/6215001/convert-xml-file-using-xslt-in-android
@@ -55,10 +89,7 @@ public class Xslt {
 
             // This file is localized! 
             Source xmlSource = new StreamSource(context.getResources().openRawResource(resXml));
-            Source xsltSource = new StreamSource(context.getResources().openRawResource(resXsl));
-
-            TransformerFactory transFact = TransformerFactory.newInstance();
-            Transformer trans = transFact.newTransformer(xsltSource);
+            Transformer trans = getTemplates(context, resXsl).newTransformer();
             StringWriter sr = new StringWriter();
             StreamResult result = new StreamResult(sr);            
             trans.transform(xmlSource, result);
@@ -73,6 +104,114 @@ public class Xslt {
         return output;
     }
 
+    private static Templates getTemplates(Context context, int resXsl) throws TransformerConfigurationException {
+        Templates templates = templatesCache.get(resXsl);
+        if (templates == null) {
+            Source xsltSource = new StreamSource(context.getResources().openRawResource(resXsl));
+            templates = TransformerFactory.newInstance().newTemplates(xsltSource);
+            templatesCache.put(resXsl, templates);
+        }
+        return templates;
+    }
+
+    /**
+     * @return null if there is no cache directory
+     */
+    static File getCacheFile(Context context, int resXml, int resXsl) {
+        File dir = context.getCacheDir();
+        if (dir == null) {
+            return null;
+        }
+        int versionCode = 0;
+        try {
+            versionCode = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).versionCode;
+        } catch (NameNotFoundException e) {
+            MyLog.e(TAG, e);
+        }
+        return new File(dir, CACHE_FILE_PREFIX + resXml + "_" + resXsl + "_" + versionCode + "_"
+                + context.getResources().getConfiguration().locale + ".html");
+    }
+
+    private static void deleteOldCacheFiles(File cacheFile, int resXml, int resXsl) {
+        if (cacheFile == null) {
+            return;
+        }
+        File[] files = cacheFile.getParentFile().listFiles();
+        if (files == null) {
+            return;
+        }
+        String prefix = CACHE_FILE_PREFIX + resXml + "_" + resXsl + "_";
+        for (File file : files) {
+            if (file.getName().startsWith(prefix) && !file.getName().equals(cacheFile.getName())
+                    && !file.delete()) {
+                MyLog.v(TAG, "Couldn't delete " + file.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * @return empty if the file doesn't exist or cannot be read
+     */
+    private static String readFile(File file) {
+        if (file == null || !file.exists()) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        Reader in = null;
+        try {
+            in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            char[] buffer = new char[4096];
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                builder.append(buffer, 0, count);
+            }
+        } catch (IOException e) {
+            MyLog.d(TAG, file.getAbsolutePath(), e);
+            return "";
+        } finally {
+            DbUtils.closeSilently(in, file.getName());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The string is written to a temporary file, which is renamed then,
+     * so a reader never sees a partially written file.
+     * Temporary files have the same prefix as the cache file, so leftovers are deleted with old cache files
+     */
+    private static void writeFile(File file, String string) {
+        if (file == null) {
+            return;
+        }
+        File tmpFile = null;
+        Writer out = null;
+        boolean written = false;
+        try {
+            tmpFile = File.createTempFile(file.getName() + "_", ".tmp", file.getParentFile());
+            out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), "UTF-8"));
+            out.write(string);
+            out.close();
+            out = null;
+            written = true;
+        } catch (IOException e) {
+            MyLog.d(TAG, file.getAbsolutePath(), e);
+        } finally {
+            DbUtils.closeSilently(out, file.getName());
+        }
+        if (tmpFile == null) {
+            return;
+        }
+        if (written && tmpFile.renameTo(file)) {
+            return;
+        }
+        if (written) {
+            MyLog.v(TAG, "Couldn't rename to " + file.getAbsolutePath());
+        }
+        if (!tmpFile.delete()) {
+            MyLog.v(TAG, "Couldn't delete " + tmpFile.getAbsolutePath());
+        }
+    }
+
     /**
      * Transform XML input files using supplied XSL stylesheet and show it in the WebView
      * @param activity Activity hosting the WebView
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.MyDatabase.Msg;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TimelineAdapterTest extends InstrumentationTestCase {
+    private static final String[] COLUMNS = {Msg._ID, Msg.BODY};
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testMergedCursorKeepsOldRows() {
+        MatrixCursor oldCursor = new MatrixCursor(COLUMNS);
+        oldCursor.addRow(new Object[] {2L, "Second message"});
+        oldCursor.addRow(new Object[] {1L, "First message"});
+        TimelineAdapter adapter = new TimelineAdapter(MyContextHolder.get().context(), null, false);
+        adapter.changeCursor(oldCursor, null);
+        assertEquals(2, adapter.getCount());
+
+        MatrixCursor newRows = new MatrixCursor(COLUMNS);
+        newRows.addRow(new Object[] {3L, "Third message"});
+        List<Cursor> sources = new ArrayList<Cursor>();
+        sources.add(oldCursor);
+        sources.add(newRows);
+        MergedTimelineCursor merged = new MergedTimelineCursor(sources,
+                new Cursor[] {newRows, oldCursor, oldCursor}, new int[] {0, 0, 1});
+        adapter.changeCursor(merged, null);
+        assertFalse("The old cursor is a source of the merged one", oldCursor.isClosed());
+
+        assertEquals(3, adapter.getCount());
+        assertEquals(3L, adapter.getItemId(0));
+        assertEquals(2L, adapter.getItemId(1));
+        assertEquals(1L, adapter.getItemId(2));
+        Cursor cursor = adapter.getCursor();
+        assertTrue(cursor.moveToPosition(2));
+        assertEquals("First message", cursor.getString(cursor.getColumnIndex(Msg.BODY)));
+
+        adapter.changeCursor(null, null);
+        assertFalse("Closed by its owner only", merged.isClosed());
+        merged.close();
+        assertTrue(oldCursor.isClosed());
+        assertTrue(newRows.isClosed());
+    }
+}
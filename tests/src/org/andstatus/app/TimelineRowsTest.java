@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app;
+
+import android.content.Context;
+import android.database.MatrixCursor;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.MsgChangeLog;
+import org.andstatus.app.data.MyDatabase.Msg;
+import org.andstatus.app.data.MyDatabase.MsgOfUser;
+import org.andstatus.app.data.MyDatabase.User;
+import org.andstatus.app.data.TimelineRow;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class TimelineRowsTest extends InstrumentationTestCase {
+    private static final String[] COLUMNS = {
+            Msg._ID, User.AUTHOR_NAME, Msg.BODY, Msg.IN_REPLY_TO_MSG_ID, User.IN_REPLY_TO_NAME,
+            User.RECIPIENT_NAME, MsgOfUser.FAVORITED, Msg.CREATED_DATE, User.LINKED_USER_ID
+    };
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testLoadAndMerge() {
+        Context context = MyContextHolder.get().context();
+        long now = System.currentTimeMillis();
+        MatrixCursor cursor = new MatrixCursor(COLUMNS);
+        cursor.addRow(new Object[] {2L, "author2", "<b>Second</b> message", 1L, "author1", "", 1, now, 5L});
+        cursor.addRow(new Object[] {1L, "author1", "First message", 0L, null, null, 0, now - 60000, 5L});
+
+        TimelineRows rows = TimelineRows.load(context, cursor, TimelineRows.EMPTY, null);
+        assertEquals(2, rows.size());
+        TimelineRow row = rows.get(2, 5);
+        assertEquals("author2", row.authorName);
+        assertEquals("Second message", row.body.toString());
+        assertTrue(row.favorited);
+        assertEquals(5L, row.linkedUserId);
+        assertTrue(row.detailsSuffix, row.detailsSuffix.contains("author1"));
+        String details = row.getDetails(context);
+        assertTrue(details, details.endsWith(row.detailsSuffix));
+        assertEquals("", rows.get(1, 5).detailsSuffix);
+        assertNull(rows.get(3, 5));
+        assertNull("Other linked User", rows.get(2, 6));
+        assertEquals(0, rows.getPosition(2));
+        assertEquals(1, rows.getPosition(1));
+        assertEquals(-1, rows.getPosition(3));
+
+        MatrixCursor changedRows = new MatrixCursor(COLUMNS);
+        changedRows.addRow(new Object[] {1L, "author1", "First message", 0L, null, null, 1, now - 60000, 5L});
+        Set<Long> changedIds = new HashSet<Long>();
+        changedIds.add(1L);
+        TimelineRows merged = TimelineRows.merge(context, rows, changedIds, new long[] {2, 1}, changedRows);
+        assertEquals(2, merged.size());
+        assertEquals(1, merged.getPosition(1));
+        assertSame("Parsed body is reused", row.body, merged.get(2, 5).body);
+        assertTrue("Changed row is rebuilt", merged.get(1, 5).favorited);
+        assertTrue(merged.toString(), merged.toString().contains("reused:1"));
+    }
+
+    public void testCombinedTimeline() {
+        Context context = MyContextHolder.get().context();
+        long now = System.currentTimeMillis();
+        MatrixCursor cursor = new MatrixCursor(COLUMNS);
+        cursor.addRow(new Object[] {3L, "author3", "Third message", 0L, null, null, 0, now, 5L});
+        cursor.addRow(new Object[] {2L, "author2", "Second message", 0L, null, null, 1, now - 1000, 5L});
+        cursor.addRow(new Object[] {2L, "author2", "Second message", 0L, null, null, 0, now - 1000, 6L});
+        cursor.addRow(new Object[] {1L, "author1", "First message", 0L, null, null, 0, now - 2000, 6L});
+
+        TimelineRows rows = TimelineRows.load(context, cursor, TimelineRows.EMPTY, null);
+        assertEquals("Rows of the same message for different Users", 4, rows.size());
+        assertTrue(rows.get(2, 5).favorited);
+        assertFalse(rows.get(2, 6).favorited);
+        assertEquals("The first row of the message", 1, rows.getPosition(2));
+        assertEquals(3, rows.getPosition(1));
+
+        TimelineRows merged = TimelineRows.merge(context, rows, new HashSet<Long>(), new long[] {3, 2, 2, 1});
+        assertEquals(4, merged.size());
+        assertTrue(merged.get(2, 5).favorited);
+        assertFalse(merged.get(2, 6).favorited);
+        assertEquals(1, merged.getPosition(2));
+    }
+
+    public void testChangedUser() {
+        MatrixCursor cursor = new MatrixCursor(new String[] {Msg._ID, User.AUTHOR_NAME, Msg.AUTHOR_ID});
+        cursor.addRow(new Object[] {3L, "author7", 7L});
+        cursor.addRow(new Object[] {2L, "author8", 8L});
+        cursor.addRow(new Object[] {1L, "author7", 7L});
+        TimelineRows rows = TimelineRows.load(MyContextHolder.get().context(), cursor, TimelineRows.EMPTY, null);
+        long version = MsgChangeLog.getVersion();
+        assertTrue(rows.getChangedSince(version).isEmpty());
+
+        MsgChangeLog.onUserChanged(7L);
+        Set<Long> changedIds = rows.getChangedSince(version);
+        assertEquals("Messages of the changed User", 2, changedIds.size());
+        assertTrue(changedIds.contains(3L));
+        assertTrue(changedIds.contains(1L));
+        assertTrue("Users are not messages", MsgChangeLog.getChangedSince(version).isEmpty());
+    }
+}
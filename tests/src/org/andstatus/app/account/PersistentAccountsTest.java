@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.account;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.origin.Origin;
+import org.andstatus.app.origin.PersistentOrigins;
+
+public class PersistentAccountsTest extends InstrumentationTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testIndexes() {
+        PersistentAccounts accounts = MyContextHolder.get().persistentAccounts();
+        MyAccount ma = accounts.fromAccountName(TestSuite.CONVERSATION_ACCOUNT_NAME);
+        assertNotNull(TestSuite.CONVERSATION_ACCOUNT_NAME, ma);
+        assertTrue(accounts.collection().contains(ma));
+        assertSame(ma, accounts.fromUserId(ma.getUserId()));
+        assertEquals(ma.getOriginId(), accounts.findFirstMyAccountByOriginId(ma.getOriginId()).getOriginId());
+        assertNull(accounts.fromUserId(-1));
+        assertNull(accounts.findFirstMyAccountByOriginId(-1));
+
+        String absentName = "absentUser/" + TestSuite.CONVERSATION_ORIGIN_NAME;
+        assertNull(accounts.fromAccountName(absentName));
+        assertNull("Not found again", accounts.fromAccountName(absentName));
+        assertEquals(ma, accounts.fromAccountName(TestSuite.CONVERSATION_ACCOUNT_NAME));
+    }
+
+    public void testOriginIndexes() {
+        PersistentOrigins origins = MyContextHolder.get().persistentOrigins();
+        Origin origin = origins.fromName(TestSuite.CONVERSATION_ORIGIN_NAME);
+        assertTrue(origin.isPersistent());
+        assertSame(origin, origins.fromId(origin.getId()));
+        assertEquals(origin.getOriginType(), origins.firstOfType(origin.getOriginType()).getOriginType());
+        assertFalse(origins.fromId(-1).isPersistent());
+        assertTrue(origins.collection().contains(origin));
+    }
+}
@@ -101,6 +101,11 @@ public class MyContextForTest implements MyContext {
         return myContext.preferencesChangeTime();
     }
 
+    @Override
+    public PreferencesSnapshot preferences() {
+        return myContext.preferences();
+    }
+
     @Override
     public MyDatabase getDatabase() {
         return myContext.getDatabase();
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.context;
+
+import android.content.SharedPreferences;
+import android.test.InstrumentationTestCase;
+
+public class PreferencesSnapshotTest extends InstrumentationTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testSwapOnChange() {
+        SharedPreferences sp = MyPreferences.getDefaultSharedPreferences();
+        String historySizeStored = sp.getString(MyPreferences.KEY_HISTORY_SIZE, null);
+        boolean showAvatarsStored = sp.getBoolean(MyPreferences.KEY_SHOW_AVATARS, true);
+        try {
+            PreferencesSnapshot snapshot1 = MyContextHolder.get().preferences();
+            assertSame(snapshot1, MyPreferences.getSnapshot());
+
+            sp.edit().putString(MyPreferences.KEY_HISTORY_SIZE, "123")
+                    .putBoolean(MyPreferences.KEY_SHOW_AVATARS, !showAvatarsStored).commit();
+            assertSame("Not changed till the event", snapshot1, MyContextHolder.get().preferences());
+
+            MyPreferences.onPreferencesChanged();
+            PreferencesSnapshot snapshot2 = MyContextHolder.get().preferences();
+            assertNotSame(snapshot1, snapshot2);
+            assertEquals(123, snapshot2.historySize);
+            assertEquals(!showAvatarsStored, snapshot2.showAvatars);
+            assertEquals(!showAvatarsStored, MyPreferences.showAvatars());
+            assertTrue(snapshot2.changeTime >= snapshot1.changeTime);
+
+            sp.edit().putString(MyPreferences.KEY_HISTORY_SIZE, "wrong").commit();
+            MyPreferences.onPreferencesChanged();
+            assertEquals("Default for the wrong value", PreferencesSnapshot.HISTORY_SIZE_DEFAULT,
+                    MyContextHolder.get().preferences().historySize);
+        } finally {
+            SharedPreferences.Editor editor = sp.edit();
+            if (historySizeStored == null) {
+                editor.remove(MyPreferences.KEY_HISTORY_SIZE);
+            } else {
+                editor.putString(MyPreferences.KEY_HISTORY_SIZE, historySizeStored);
+            }
+            editor.putBoolean(MyPreferences.KEY_SHOW_AVATARS, showAvatarsStored).commit();
+            MyPreferences.onPreferencesChanged();
+        }
+    }
+}
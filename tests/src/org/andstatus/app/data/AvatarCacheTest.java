@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.TestSuite;
+
+public class AvatarCacheTest extends InstrumentationTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testLeastRecentlyUsedAreEvicted() {
+        Bitmap bitmap1 = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        long size = bitmap1.getRowBytes() * bitmap1.getHeight();
+        AvatarCache cache = new AvatarCache(size * 2);
+        cache.put("1", bitmap1);
+        cache.put("2", Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888));
+        assertEquals(size * 2, cache.getBytes());
+        assertEquals(bitmap1, cache.get("1"));
+
+        cache.put("3", Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888));
+        assertEquals(size * 2, cache.getBytes());
+        assertNotNull("Recently used", cache.get("1"));
+        assertNull("Least recently used", cache.get("2"));
+        assertNotNull(cache.get("3"));
+
+        cache.remove("3");
+        assertEquals(size, cache.getBytes());
+
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        assertEquals(0, cache.getBytes());
+        assertNull(cache.get("1"));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.content.ContentValues;
+import android.content.SharedPreferences;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.MyDatabase.Avatar;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AvatarDiskCacheTest extends InstrumentationTestCase {
+    private static final int FILE_SIZE = 100 * 1024;
+    private static final long MEGABYTE = 1024 * 1024;
+    private static final String FILE_NAME_PREFIX = "disk_cache_test_";
+
+    private String cacheSizeStored;
+    private final List<File> files = new ArrayList<File>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+        cacheSizeStored = MyPreferences.getDefaultSharedPreferences().getString(
+                MyPreferences.KEY_AVATARS_CACHE_SIZE, null);
+    }
+
+    public void testTrimEvictsLeastRecentlyUsed() throws IOException {
+        File dir = MyPreferences.getDataFilesDir(MyPreferences.DIRECTORY_AVATARS, null);
+        assertTrue("Avatars directory", dir != null);
+        // Measures the directory
+        AvatarDiskCache.trim();
+        long sizeBefore = AvatarDiskCache.getBytes();
+        long filesBefore = AvatarDiskCache.getFiles();
+
+        // Existing files fit under the low watermark with a margin, so only our files are evicted
+        long maxMegabytes = sizeBefore * 100 / AvatarDiskCache.LOW_WATERMARK_PERCENT / MEGABYTE + 2;
+        setCacheSize(Long.toString(maxMegabytes));
+        int count = (int) ((maxMegabytes * MEGABYTE - sizeBefore) / FILE_SIZE) + 3;
+        assertTrue("Files to add: " + count, count < AvatarDiskCache.MAX_EVICTIONS_PER_PASS);
+        // Older than any avatar, which was shown
+        long lastModified = 1000000000000L;
+        for (int ind = 0; ind < count; ind++) {
+            files.add(addFile(dir, ind, lastModified + ind * 60000L));
+        }
+
+        int evicted = AvatarDiskCache.trim();
+        assertTrue("Evicted " + evicted, evicted > 0);
+        assertTrue("Kept some of " + count, evicted < count);
+        assertTrue("Trimmed to " + AvatarDiskCache.getBytes(), AvatarDiskCache.getBytes()
+                <= maxMegabytes * MEGABYTE * AvatarDiskCache.LOW_WATERMARK_PERCENT / 100);
+        assertEquals("Files left", filesBefore + count - evicted, AvatarDiskCache.getFiles());
+        assertEquals("Size of the files left", sizeBefore + (count - evicted) * FILE_SIZE, AvatarDiskCache.getBytes());
+        for (int ind = 0; ind < count; ind++) {
+            File file = files.get(ind);
+            boolean expectedEvicted = ind < evicted;
+            assertEquals(file.getName(), !expectedEvicted, file.exists());
+            assertEquals(file.getName(), expectedEvicted ? AvatarStatus.EXPIRED : AvatarStatus.LOADED,
+                    getStatus(file.getName()));
+        }
+    }
+
+    private File addFile(File dir, int ind, long lastModified) throws IOException {
+        File file = new File(dir, FILE_NAME_PREFIX + ind + ".png");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[FILE_SIZE]);
+        } finally {
+            out.close();
+        }
+        assertTrue(file.setLastModified(lastModified));
+
+        ContentValues values = new ContentValues();
+        values.put(Avatar.USER_ID, 0);
+        values.put(Avatar.VALID_FROM, lastModified);
+        values.put(Avatar.URL, "http://example.com/" + file.getName());
+        values.put(Avatar.FILE_NAME, file.getName());
+        values.put(Avatar.STATUS, AvatarStatus.LOADED.save());
+        getDatabase().insert(Avatar.TABLE_NAME, null, values);
+        return file;
+    }
+
+    private static AvatarStatus getStatus(String fileName) {
+        return AvatarStatus.load((int) DatabaseUtils.longForQuery(getDatabase(),
+                "SELECT " + Avatar.STATUS + " FROM " + Avatar.TABLE_NAME
+                + " WHERE " + Avatar.FILE_NAME + "=?", new String[] {fileName}));
+    }
+
+    private static SQLiteDatabase getDatabase() {
+        return MyContextHolder.get().getDatabase().getWritableDatabase();
+    }
+
+    private static void setCacheSize(String megabytes) {
+        SharedPreferences.Editor editor = MyPreferences.getDefaultSharedPreferences().edit();
+        if (megabytes == null) {
+            editor.remove(MyPreferences.KEY_AVATARS_CACHE_SIZE);
+        } else {
+            editor.putString(MyPreferences.KEY_AVATARS_CACHE_SIZE, megabytes);
+        }
+        editor.commit();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        setCacheSize(cacheSizeStored);
+        for (File file : files) {
+            if (file.exists() && !file.delete()) {
+                fail("Couldn't delete " + file.getAbsolutePath());
+            }
+        }
+        getDatabase().delete(Avatar.TABLE_NAME, Avatar.FILE_NAME + " LIKE '" + FILE_NAME_PREFIX + "%'", null);
+        super.tearDown();
+    }
+}
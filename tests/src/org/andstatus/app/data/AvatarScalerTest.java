@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.TestSuite;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class AvatarScalerTest extends InstrumentationTestCase {
+    private static final String FILE_NAME_PREFIX = "scaler_test_";
+
+    private int downscaledSizeStored;
+    private final List<File> files = new ArrayList<File>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+        downscaledSizeStored = MyPreferences.getDefaultSharedPreferences().getInt(
+                MyPreferences.KEY_AVATARS_DOWNSCALED_SIZE, 0);
+    }
+
+    public void testDecodeSampled() throws IOException {
+        File file = newPicture(MyContextHolder.get().context().getCacheDir(), "large.png", 400, 300);
+        Bitmap bitmap = AvatarScaler.decodeSampled(file, 100);
+        assertNotNull(bitmap);
+        assertEquals("Subsampled while decoding", 200, bitmap.getWidth());
+        assertEquals(150, bitmap.getHeight());
+        bitmap.recycle();
+
+        bitmap = AvatarScaler.decodeSampled(file, 300);
+        assertEquals("Not subsampled below the requested size", 400, bitmap.getWidth());
+        bitmap.recycle();
+    }
+
+    public void testDownscale() throws IOException {
+        File dir = MyContextHolder.get().context().getCacheDir();
+        File source = newPicture(dir, "large.png", 400, 300);
+        File target = new File(dir, FILE_NAME_PREFIX + "target.png");
+        files.add(target);
+        assertTrue(AvatarScaler.downscale(source, target, 100));
+        assertBounds(target, 100, 75);
+        assertEquals("Opaque picture", "image/jpeg", getMimeType(target));
+        assertTrue("Thumbnail is smaller: " + target.length(), target.length() < source.length());
+        assertTrue(target.delete());
+
+        File transparent = newPicture(dir, "transparent.png", 400, 300, 0x803366CC);
+        assertTrue(AvatarScaler.downscale(transparent, target, 100));
+        assertEquals("Transparency is kept", "image/png", getMimeType(target));
+
+        File small = newPicture(dir, "small.png", 50, 40);
+        assertTrue(target.delete());
+        assertFalse("Small picture is not downscaled", AvatarScaler.downscale(small, target, 100));
+        assertFalse(target.exists());
+    }
+
+    public void testShrinkExisting() throws IOException {
+        if (MyPreferences.keepOriginalAvatars()) {
+            return;
+        }
+        int sizePixels = AvatarScaler.getSizePixels();
+        File dir = MyPreferences.getDataFilesDir(MyPreferences.DIRECTORY_AVATARS, null);
+        File large = newPicture(dir, "large.png", sizePixels * 4, sizePixels * 2);
+        File small = newPicture(dir, "small.png", sizePixels / 2, sizePixels / 2);
+        long smallLength = small.length();
+        MyPreferences.getDefaultSharedPreferences().edit()
+                .putInt(MyPreferences.KEY_AVATARS_DOWNSCALED_SIZE, 0).commit();
+
+        assertTrue(AvatarScaler.shrinkExisting() > 0);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(large.getAbsolutePath(), options);
+        assertEquals("Shrunk to the thumbnail size", sizePixels, options.outWidth);
+        assertTrue("Proportions kept: " + options.outHeight, options.outHeight < sizePixels);
+        assertFalse("No temporary file left", new File(dir, "temp_" + large.getName()).exists());
+        assertEquals("Small file is not changed", smallLength, small.length());
+        assertEquals(sizePixels, MyPreferences.getDefaultSharedPreferences().getInt(
+                MyPreferences.KEY_AVATARS_DOWNSCALED_SIZE, 0));
+        assertEquals("Done once per size", 0, AvatarScaler.shrinkExisting());
+    }
+
+    private File newPicture(File dir, String name, int width, int height) throws IOException {
+        return newPicture(dir, name, width, height, 0xFF3366CC);
+    }
+
+    /**
+     * The picture is noisy, so it doesn't compress much, as a photo
+     */
+    private File newPicture(File dir, String name, int width, int height, int color) throws IOException {
+        File file = new File(dir, FILE_NAME_PREFIX + name);
+        files.add(file);
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Random random = new Random(width * height);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                bitmap.setPixel(x, y, color ^ (random.nextInt() & 0x003F3F3F));
+            }
+        }
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            assertTrue(bitmap.compress(Bitmap.CompressFormat.PNG, 100, out));
+        } finally {
+            out.close();
+            bitmap.recycle();
+        }
+        return file;
+    }
+
+    private static String getMimeType(File file) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        return options.outMimeType;
+    }
+
+    private static void assertBounds(File file, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        assertEquals(file.getName(), width, options.outWidth);
+        assertEquals(file.getName(), height, options.outHeight);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        MyPreferences.getDefaultSharedPreferences().edit()
+                .putInt(MyPreferences.KEY_AVATARS_DOWNSCALED_SIZE, downscaledSizeStored).commit();
+        for (File file : files) {
+            if (file.exists() && !file.delete()) {
+                fail("Couldn't delete " + file.getAbsolutePath());
+            }
+        }
+        super.tearDown();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.test.InstrumentationTestCase;
+
+import java.util.Set;
+
+public class MsgChangeLogTest extends InstrumentationTestCase {
+
+    public void testChangedSince() {
+        long version = MsgChangeLog.getVersion();
+        Set<Long> changed = MsgChangeLog.getChangedSince(version);
+        assertNotNull(changed);
+        assertTrue(changed.isEmpty());
+
+        MsgChangeLog.onChanged(11);
+        MsgChangeLog.onChanged(12);
+        MsgChangeLog.onChanged(11);
+        changed = MsgChangeLog.getChangedSince(version);
+        assertEquals(2, changed.size());
+        assertTrue(changed.contains(11L));
+        assertTrue(changed.contains(12L));
+
+        long version2 = MsgChangeLog.getVersion();
+        MsgChangeLog.onChangedUnknown();
+        assertNull("Unknown changes", MsgChangeLog.getChangedSince(version2));
+    }
+
+    public void testOverflow() {
+        long version = MsgChangeLog.getVersion();
+        for (int ind = 0; ind < MsgChangeLog.CAPACITY; ind++) {
+            MsgChangeLog.onChanged(ind + 1);
+        }
+        assertNull("Too many changes", MsgChangeLog.getChangedSince(version));
+        assertNotNull(MsgChangeLog.getChangedSince(version + 1));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.MyDatabase.Msg;
+import org.andstatus.app.data.MyDatabase.OidEnum;
+
+public class OutboxTest extends InstrumentationTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+    }
+
+    public void testPendingMessageLifecycle() {
+        MyAccount ma = MyContextHolder.get().persistentAccounts().fromAccountName(TestSuite.CONVERSATION_ACCOUNT_NAME);
+        assertTrue(TestSuite.CONVERSATION_ACCOUNT_NAME + " exists", ma != null);
+        String body = "Pending message " + System.currentTimeMillis();
+        long msgId = Outbox.addPending(ma, body, 0, 0);
+        assertTrue("Pending message stored", msgId != 0);
+        assertTrue(Outbox.isPending(MyProvider.msgIdToStringColumnValue(Msg.MSG_OID, msgId)));
+        assertTrue(Outbox.isPending(msgId));
+        assertEquals(body, MyProvider.msgIdToStringColumnValue(Msg.BODY, msgId));
+        assertEquals(ma.getUserId(), MyProvider.msgIdToLongColumnValue(Msg.SENDER_ID, msgId));
+        assertEquals(MsgStatus.SENDING, MsgStatus.load((int) MyProvider.msgIdToLongColumnValue(Msg.MSG_STATUS, msgId)));
+
+        Outbox.setStatus(msgId, MsgStatus.FAILED);
+        assertEquals(MsgStatus.FAILED, MsgStatus.load((int) MyProvider.msgIdToLongColumnValue(Msg.MSG_STATUS, msgId)));
+        Outbox.setStatus(msgId, MsgStatus.NOT_SENT);
+        assertEquals(MsgStatus.NOT_SENT, MsgStatus.load((int) MyProvider.msgIdToLongColumnValue(Msg.MSG_STATUS, msgId)));
+        assertTrue("May be resent", Outbox.maySend(msgId));
+
+        String oid = "http://example.com/outbox/" + System.nanoTime();
+        assertTrue(Outbox.onSent(msgId, oid, ma.getOriginId()));
+        assertEquals(msgId, MyProvider.oidToId(OidEnum.MSG_OID, ma.getOriginId(), oid));
+        assertEquals(MsgStatus.LOADED, MsgStatus.load((int) MyProvider.msgIdToLongColumnValue(Msg.MSG_STATUS, msgId)));
+        assertFalse("Delivered only once", Outbox.onSent(msgId, oid, ma.getOriginId()));
+        assertFalse(Outbox.isPending(msgId));
+
+        Outbox.setStatus(msgId, MsgStatus.FAILED);
+        assertEquals("Delivered message is not changed", MsgStatus.LOADED,
+                MsgStatus.load((int) MyProvider.msgIdToLongColumnValue(Msg.MSG_STATUS, msgId)));
+        MyContextHolder.get().context().getContentResolver()
+                .delete(MyProvider.MSG_CONTENT_URI, Msg.TABLE_NAME + "._id=" + msgId, null);
+    }
+}
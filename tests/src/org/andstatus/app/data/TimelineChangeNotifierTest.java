@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.TestSuite;
+
+public class TimelineChangeNotifierTest extends InstrumentationTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+        TimelineChangeNotifier.flush();
+    }
+
+    public void testNotificationsAreCoalesced() {
+        long suppressedBefore = TimelineChangeNotifier.getSuppressed();
+        TimelineChangeNotifier.onTimelineChanged(1, TimelineTypeEnum.MENTIONS);
+        int pendingCount = TimelineChangeNotifier.getPendingCount();
+        assertTrue(pendingCount > 0);
+        TimelineChangeNotifier.onTimelineChanged(1, TimelineTypeEnum.MENTIONS);
+        assertEquals("The same timelines", pendingCount, TimelineChangeNotifier.getPendingCount());
+        assertEquals(suppressedBefore + pendingCount, TimelineChangeNotifier.getSuppressed());
+
+        TimelineChangeNotifier.onAllChanged();
+        assertEquals(pendingCount + 1, TimelineChangeNotifier.getPendingCount());
+        TimelineChangeNotifier.flush();
+        assertEquals(0, TimelineChangeNotifier.getPendingCount());
+        assertEquals("All timelines notified at once", suppressedBefore + 2 * pendingCount,
+                TimelineChangeNotifier.getSuppressed());
+        assertTrue(TimelineChangeNotifier.getStats(), TimelineChangeNotifier.getStats().contains("pending:0"));
+    }
+}
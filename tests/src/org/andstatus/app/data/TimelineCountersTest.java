@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.MyDatabase.Msg;
+import org.andstatus.app.data.MyDatabase.MsgOfUser;
+
+public class TimelineCountersTest extends InstrumentationTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+    }
+
+    public void testCountersMatchTables() {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase().getReadableDatabase();
+        assertEquals(DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM " + Msg.TABLE_NAME, null),
+                TimelineCounters.getTotal());
+
+        MyAccount ma = MyContextHolder.get().persistentAccounts().fromAccountName(TestSuite.CONVERSATION_ACCOUNT_NAME);
+        assertTrue(TestSuite.CONVERSATION_ACCOUNT_NAME + " exists", ma != null);
+        long home = DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM " + MsgOfUser.TABLE_NAME
+                + " WHERE " + MsgOfUser.USER_ID + "=" + ma.getUserId()
+                + " AND " + MsgOfUser.SUBSCRIBED + "=1", null);
+        assertEquals(home, TimelineCounters.get(TimelineTypeEnum.HOME, ma.getUserId()));
+        assertEquals(0, TimelineCounters.get(TimelineTypeEnum.USER, ma.getUserId()));
+    }
+
+    public void testRecount() {
+        long total = TimelineCounters.getTotal();
+        TimelineCounters.recount(MyContextHolder.get().getDatabase().getWritableDatabase());
+        assertEquals(total, TimelineCounters.getTotal());
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net;
+
+import android.test.InstrumentationTestCase;
+
+import oauth.signpost.basic.UrlStringRequestAdapter;
+import oauth.signpost.http.HttpParameters;
+import oauth.signpost.http.HttpRequest;
+import oauth.signpost.signature.HmacSha1MessageSigner;
+import oauth.signpost.signature.OAuthMessageSigner;
+
+public class CachedHmacSha1MessageSignerTest extends InstrumentationTestCase {
+
+    public void testSameSignatureAsSignpost() throws Exception {
+        HttpRequest request = new UrlStringRequestAdapter("https://identi.ca/api/user/t131t/inbox?count=20");
+        HttpParameters params = new HttpParameters();
+        params.put("oauth_consumer_key", "someConsumerKey");
+        params.put("oauth_nonce", "12345");
+        params.put("oauth_timestamp", "1400000000");
+
+        OAuthMessageSigner expected = new HmacSha1MessageSigner();
+        OAuthMessageSigner cached = new CachedHmacSha1MessageSigner();
+        setSecrets(expected, "consumerSecret", "tokenSecret1");
+        setSecrets(cached, "consumerSecret", "tokenSecret1");
+        assertEquals(expected.getSignatureMethod(), cached.getSignatureMethod());
+        String signature1 = expected.sign(request, params);
+        assertEquals(signature1, cached.sign(request, params));
+        assertEquals("Reused key", signature1, cached.sign(request, params));
+
+        setSecrets(expected, "consumerSecret", "tokenSecret2");
+        setSecrets(cached, "consumerSecret", "tokenSecret2");
+        String signature2 = expected.sign(request, params);
+        assertFalse("Token secret changed", signature1.equals(signature2));
+        assertEquals(signature2, cached.sign(request, params));
+    }
+
+    private void setSecrets(OAuthMessageSigner signer, String consumerSecret, String tokenSecret) {
+        signer.setConsumerSecret(consumerSecret);
+        signer.setTokenSecret(tokenSecret);
+    }
+}
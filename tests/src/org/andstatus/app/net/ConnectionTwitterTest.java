@@ -27,6 +27,7 @@ import org.andstatus.app.origin.OriginConnectionData;
 import org.andstatus.app.util.TriState;
 import org.json.JSONObject;
 
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
@@ -119,6 +120,26 @@ public class ConnectionTwitterTest extends InstrumentationTestCase {
         startsWith = "And this is";
         assertEquals("Body of this message starts with", startsWith, mbMessage.getBody().substring(0, startsWith.length()));
     }
+
+    public void testGetMessages() throws ConnectionException {
+        if (!connection.isApiSupported(ApiRoutineEnum.GET_MESSAGES)) {
+            return;
+        }
+        JSONObject jso = RawResourceReader.getJSONObjectResource(this.getInstrumentation().getContext(), 
+                org.andstatus.app.tests.R.raw.home_timeline);
+        httpConnection.setResponse(jso);
+
+        List<MbMessage> messages = connection.getMessages(Arrays.asList("17176774678", "315088751183409153"));
+        assertTrue("statuses/lookup in " + httpConnection.getPathString(),
+                httpConnection.getPathString().contains("statuses/lookup"));
+        assertTrue("Both ids in " + httpConnection.getPathString(),
+                httpConnection.getPathString().contains("17176774678") 
+                && httpConnection.getPathString().contains("315088751183409153"));
+        assertEquals("Number of messages", 4, messages.size());
+        assertTrue("Is a reply", messages.get(1).inReplyToMessage != null);
+        assertEquals("Reply to the message id", "17176774678", messages.get(1).inReplyToMessage.oid);
+        assertTrue("Public", messages.get(1).isPublic());
+    }
     
     public void testParseDate() {
         String stringDate = "Wed Nov 27 09:27:01 -0300 2013";
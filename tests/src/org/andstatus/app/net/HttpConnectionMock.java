@@ -18,17 +18,23 @@ package org.andstatus.app.net;
 
 import android.text.TextUtils;
 
+import org.andstatus.app.net.Connection.ApiRoutineEnum;
 import org.andstatus.app.net.ConnectionException;
 import org.andstatus.app.util.MyLog;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class HttpConnectionMock extends HttpConnection {
     private JSONObject postedObject = null;
     private String pathString = "";
     private JSONObject responseObject = null;
+    private final List<JSONObject> responses = new ArrayList<JSONObject>();
     private ConnectionException exception = null;
+    private int requestsCounter = 0;
 
     private String password = "password";
     private String userToken = "token";
@@ -38,19 +44,37 @@ public class HttpConnectionMock extends HttpConnection {
         responseObject = jso;
     }
 
+    /**
+     * The queued responses are returned in order, one per request, before the one,
+     * set by {@link #setResponse(JSONObject)}
+     */
+    public void addResponse(JSONObject jso) {
+        responses.add(jso);
+    }
+
+    private JSONObject nextResponse() {
+        return responses.isEmpty() ? responseObject : responses.remove(0);
+    }
+
+    public int getRequestsCounter() {
+        return requestsCounter;
+    }
+
     public void setException(ConnectionException exception) {
         this.exception = exception;
     }
     
     @Override
-    protected JSONObject postRequest(String path, JSONObject jso) throws ConnectionException {
+    protected JSONObject postRequest(ApiRoutineEnum apiRoutine, String path, JSONObject jso)
+            throws ConnectionException {
         pathString = path;
         postedObject = jso;
         throwExceptionIfSet();
-        return responseObject;
+        return nextResponse();
     }
 
     private void throwExceptionIfSet() throws ConnectionException {
+        requestsCounter++;
         if (exception != null) {
             throw exception;
         }
@@ -73,23 +97,23 @@ public class HttpConnectionMock extends HttpConnection {
     }
 
     @Override
-    protected JSONObject postRequest(String path) throws ConnectionException {
+    protected JSONObject postRequest(ApiRoutineEnum apiRoutine, String path) throws ConnectionException {
         pathString = path;
         throwExceptionIfSet();
-        return responseObject;
+        return nextResponse();
     }
 
     @Override
-    protected JSONObject getRequest(String path) throws ConnectionException {
+    protected JSONObject getRequest(ApiRoutineEnum apiRoutine, String path) throws ConnectionException {
         pathString = path;
         throwExceptionIfSet();
-        return responseObject;
+        return nextResponse();
     }
 
     @Override
-    protected JSONArray getRequestAsArray(String path) throws ConnectionException {
+    protected JSONArray getRequestAsArray(ApiRoutineEnum apiRoutine, String path) throws ConnectionException {
         pathString = path;
-        JSONObject jso = getRequest(path);
+        JSONObject jso = getRequest(apiRoutine, path);
         JSONArray jsa = null;
         if (jso == null) {
             throw new ConnectionException("Response is null");
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.net.Connection.ApiRoutineEnum;
+import org.andstatus.app.origin.OriginType;
+import org.andstatus.app.util.TriState;
+
+public class HttpMetricsTest extends InstrumentationTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+        HttpMetrics.clear();
+    }
+
+    public void testHistogram() {
+        HttpMetrics.Histogram histogram = new HttpMetrics.Histogram();
+        assertEquals(-1, histogram.percentile(50));
+        histogram.add(-1);
+        assertEquals("Not measured values are ignored", 0, histogram.count());
+        for (int ind = 0; ind < 9; ind++) {
+            histogram.add(30);
+        }
+        histogram.add(20000);
+        assertEquals(10, histogram.count());
+        assertEquals(50, histogram.percentile(50));
+        assertEquals(50, histogram.percentile(90));
+        assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+    }
+
+    public void testReport() {
+        HttpConnectionData data = new HttpConnectionData();
+        data.originType = OriginType.TWITTER;
+        data.accountUsername = "testUser";
+        data.host = "api.twitter.com";
+
+        HttpMetrics.Totals totalsBefore = HttpMetrics.getThreadTotals();
+        HttpRequestMetrics metrics = HttpRequestMetrics.start(data, ApiRoutineEnum.STATUSES_HOME_TIMELINE);
+        assertEquals(ApiRoutineEnum.STATUSES_HOME_TIMELINE, metrics.apiRoutine);
+        metrics.onResponse(200);
+        metrics.addBytes(1000);
+        metrics.reused = TriState.TRUE;
+        metrics.finish();
+
+        metrics = HttpRequestMetrics.start(data, null);
+        assertEquals(null, metrics.apiRoutine);
+        metrics.onResponse(404);
+        metrics.finish();
+
+        HttpMetrics.Totals totals = HttpMetrics.getThreadTotals().minus(totalsBefore);
+        assertEquals(2, totals.requests);
+        assertEquals(1000, totals.bytes);
+
+        String report = HttpMetrics.getReport();
+        assertTrue(report, report.contains("testUser api.twitter.com STATUSES_HOME_TIMELINE:{requests:1,failed:0"));
+        assertTrue(report, report.contains("testUser api.twitter.com (other):{requests:1,failed:1"));
+        assertTrue("Reused of measured " + report, report.contains("STATUSES_HOME_TIMELINE:{requests:1,failed:0,reused:1/1,"));
+        assertTrue("Reuse is unknown " + report, report.contains("(other):{requests:1,failed:1,reused:0/0,"));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.origin.OriginType;
+
+public class RedirectCacheTest extends InstrumentationTestCase {
+
+    public void testDirectoryOf() {
+        assertEquals("https://example.com/api/user/t131t/",
+                RedirectCache.directoryOf("https://example.com/api/user/t131t/feed?count=20&since=a/b"));
+        assertEquals("https://example.com/", RedirectCache.directoryOf("https://example.com/feed"));
+        assertEquals("https://example.com", RedirectCache.directoryOf("https://example.com"));
+    }
+
+    public void testResolve() {
+        HttpConnectionData data = new HttpConnectionData();
+        data.originType = OriginType.PUMPIO;
+        data.accountUsername = "t131t@identi.ca";
+        data.hostForUserToken = "identi.ca";
+        String url1 = "https://example.com/api/user/someone/feed?count=20";
+        String resolved1 = "https://www.example.com/api/user/someone/feed?count=20";
+        RedirectCache.invalidate(data);
+        assertNull(RedirectCache.getResolved(data, url1));
+
+        RedirectCache.put(data, url1, resolved1);
+        assertEquals(resolved1, RedirectCache.getResolved(data, url1));
+        assertEquals("The same directory", "https://www.example.com/api/user/someone/profile",
+                RedirectCache.getResolved(data, "https://example.com/api/user/someone/profile"));
+        assertNull("Other directory", RedirectCache.getResolved(data, "https://example.com/api/user/other/feed"));
+
+        HttpConnectionData data2 = data.clone();
+        data2.accountUsername = "other@identi.ca";
+        assertNull("Other account", RedirectCache.getResolved(data2, url1));
+
+        String url2 = "https://example.com/api/user/someone/major";
+        String resolved2 = "https://example.com/login?next=major";
+        RedirectCache.put(data, url2, resolved2);
+        assertEquals(resolved2, RedirectCache.getResolved(data, url2));
+
+        RedirectCache.remove(data, url1);
+        assertNull(RedirectCache.getResolved(data, url1));
+        RedirectCache.invalidate(data);
+        assertNull(RedirectCache.getResolved(data, url2));
+    }
+}
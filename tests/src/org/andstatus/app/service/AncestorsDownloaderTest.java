@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DataInserter;
+import org.andstatus.app.data.MyDatabase.Msg;
+import org.andstatus.app.data.MyDatabase.OidEnum;
+import org.andstatus.app.data.MyProvider;
+import org.andstatus.app.data.TimelineTypeEnum;
+import org.andstatus.app.net.ConnectionException;
+import org.andstatus.app.net.ConnectionException.StatusCode;
+import org.andstatus.app.net.HttpConnectionMock;
+import org.andstatus.app.net.MbMessage;
+import org.andstatus.app.net.MbUser;
+import org.andstatus.app.net.RawResourceReader;
+import org.andstatus.app.util.TriState;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+public class AncestorsDownloaderTest extends InstrumentationTestCase {
+    private HttpConnectionMock httpConnection;
+    private MyAccount ma;
+    private String chainPrefix;
+    private long leafId;
+
+    /**
+     * Checks the ancestors at each checkpoint, may also take time
+     */
+    private class ParentStub implements CommandExecutorParent {
+        volatile int checkpoints = 0;
+        volatile int storedAtCheckpoints = 0;
+        volatile long sleepMillis = 0;
+
+        @Override
+        public boolean isStopping() {
+            return false;
+        }
+
+        @Override
+        public void preempt(CommandData longCommand) {
+            checkpoints++;
+            if (!isMissing(chainOid(0))) {
+                storedAtCheckpoints++;
+            }
+            if (sleepMillis > 0) {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+
+        httpConnection = new HttpConnectionMock();
+        TestSuite.setHttpConnection(httpConnection);
+        assertEquals("HttpConnection mocked", MyContextHolder.get().getHttpConnectionMock(), httpConnection);
+        // In order the mocked connection to have effect:
+        MyContextHolder.get().persistentAccounts().initialize();
+        ma = MyAccount.Builder.newOrExistingFromAccountName(
+                TestSuite.STATUSNET_TEST_ACCOUNT_NAME, TriState.UNKNOWN).getAccount();
+        assertTrue(ma.getUserId() != 0);
+
+        chainPrefix = "ancestor" + System.nanoTime() + "_";
+        MbMessage leaf = MbMessage.fromOriginAndOid(ma.getOriginId(), chainPrefix + "leaf");
+        leaf.setBody("The reply, which ancestors are missing");
+        leaf.sentDate = System.currentTimeMillis();
+        leaf.sender = MbUser.fromOriginAndUserOid(ma.getOriginId(), TestSuite.STATUSNET_TEST_ACCOUNT_USER_OID);
+        leaf.inReplyToMessage = MbMessage.fromOriginAndOid(ma.getOriginId(), chainOid(0));
+        leafId = new DataInserter(new CommandExecutionContext(CommandData.getEmpty(), ma)
+                .setTimelineType(TimelineTypeEnum.HOME)).insertOrUpdateMsg(leaf);
+        assertTrue(leafId != 0);
+        assertTrue("The parent is known by its oid only", isMissing(chainOid(0)));
+    }
+
+    public void testDepthLimit() throws JSONException {
+        addChainResponses(AncestorsDownloader.DEPTH_LIMIT_DEFAULT + 5);
+        ParentStub parent = new ParentStub();
+        AncestorsDownloader downloader = newDownloader(parent);
+
+        assertEquals(AncestorsDownloader.DEPTH_LIMIT_DEFAULT, downloader.download(leafId));
+        assertEquals(AncestorsDownloader.DEPTH_LIMIT_DEFAULT, httpConnection.getRequestsCounter());
+        assertNull(downloader.getError());
+        assertFalse(isMissing(chainOid(AncestorsDownloader.DEPTH_LIMIT_DEFAULT - 1)));
+        assertTrue("Beyond the depth limit", isMissing(chainOid(AncestorsDownloader.DEPTH_LIMIT_DEFAULT)));
+    }
+
+    public void testRequestsLimit() throws JSONException {
+        addChainResponses(10);
+        AncestorsDownloader downloader = newDownloader(new ParentStub())
+                .setLimits(AncestorsDownloader.DEPTH_LIMIT_DEFAULT, AncestorsDownloader.TIME_LIMIT_MILLIS_DEFAULT, 3);
+
+        assertEquals(3, downloader.download(leafId));
+        assertEquals(3, httpConnection.getRequestsCounter());
+        assertFalse(isMissing(chainOid(2)));
+        assertTrue("Beyond the requests limit", isMissing(chainOid(3)));
+    }
+
+    public void testTimeLimit() throws JSONException {
+        addChainResponses(10);
+        ParentStub parent = new ParentStub();
+        parent.sleepMillis = 300;
+        AncestorsDownloader downloader = newDownloader(parent)
+                .setLimits(AncestorsDownloader.DEPTH_LIMIT_DEFAULT, 500, Integer.MAX_VALUE);
+
+        assertEquals("Two levels in time", 2, downloader.download(leafId));
+        assertEquals(2, httpConnection.getRequestsCounter());
+        assertTrue("Beyond the time limit", isMissing(chainOid(2)));
+    }
+
+    public void testStoredInOneTransactionAtTheEnd() throws JSONException {
+        addChainResponses(5);
+        ParentStub parent = new ParentStub();
+
+        assertEquals(5, newDownloader(parent).download(leafId));
+        assertEquals("Checkpoint after each level", 5, parent.checkpoints);
+        assertEquals("Nothing is stored before the end", 0, parent.storedAtCheckpoints);
+        for (int level = 0; level < 5; level++) {
+            assertFalse("Level " + level, isMissing(chainOid(level)));
+        }
+        long parentId = MyProvider.oidToId(OidEnum.MSG_OID, ma.getOriginId(), chainOid(0));
+        assertEquals("Linked to the leaf", parentId,
+                MyProvider.msgIdToLongColumnValue(Msg.IN_REPLY_TO_MSG_ID, leafId));
+    }
+
+    public void testConnectionError() throws JSONException {
+        addChainResponses(1);
+        httpConnection.setException(new ConnectionException(StatusCode.UNKNOWN, "Request was bad"));
+        AncestorsDownloader downloader = newDownloader(new ParentStub());
+
+        assertEquals(0, downloader.download(leafId));
+        assertNotNull(downloader.getError());
+        assertEquals(1, httpConnection.getRequestsCounter());
+        assertTrue(isMissing(chainOid(0)));
+        httpConnection.setException(null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TestSuite.setHttpConnection(null);
+        MyContextHolder.get().persistentAccounts().initialize();
+        super.tearDown();
+    }
+
+    private AncestorsDownloader newDownloader(CommandExecutorParent parent) {
+        CommandData commandData = new CommandData(CommandEnum.GET_CONVERSATION, ma.getAccountName(), leafId);
+        return new AncestorsDownloader(new CommandExecutionContext(commandData, ma), parent);
+    }
+
+    /**
+     * Each ancestor of the chain, except the last one, replies to the next one
+     */
+    private void addChainResponses(int count) throws JSONException {
+        JSONObject template = RawResourceReader.getJSONObjectResource(getInstrumentation().getContext(),
+                org.andstatus.app.tests.R.raw.update_status_response_status_net);
+        for (int level = 0; level < count; level++) {
+            JSONObject jso = new JSONObject(template.toString());
+            jso.put("id", chainOid(level));
+            jso.put("text", "Ancestor " + level);
+            jso.put("statusnet_html", "Ancestor " + level);
+            if (level < count - 1) {
+                jso.put("in_reply_to_status_id", chainOid(level + 1));
+                jso.put("in_reply_to_user_id", jso.getJSONObject("user").getString("id"));
+            }
+            httpConnection.addResponse(jso);
+        }
+    }
+
+    private String chainOid(int level) {
+        return chainPrefix + level;
+    }
+
+    private boolean isMissing(String oid) {
+        long msgId = MyProvider.oidToId(OidEnum.MSG_OID, ma.getOriginId(), oid);
+        return MyProvider.msgIdToLongColumnValue(Msg.CREATED_DATE, msgId) == 0;
+    }
+}
@@ -1,6 +1,7 @@
 package org.andstatus.app.service;
 
 import android.content.ContentValues;
+import android.database.DatabaseUtils;
 import android.test.InstrumentationTestCase;
 
 import org.andstatus.app.account.MyAccount;
@@ -9,6 +10,7 @@ import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.context.TestSuite;
 import org.andstatus.app.data.AvatarDrawable;
 import org.andstatus.app.data.AvatarStatus;
+import org.andstatus.app.data.MyDatabase.Avatar;
 import org.andstatus.app.data.MyDatabase.User;
 import org.andstatus.app.data.MyProvider;
 import org.andstatus.app.service.AvatarDownloader;
@@ -18,6 +20,8 @@ import org.andstatus.app.util.MyLog;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
 
 public class AvatarDownloaderTest extends InstrumentationTestCase {
     private MyAccount ma;
@@ -61,6 +65,15 @@ public class AvatarDownloaderTest extends InstrumentationTestCase {
         assertEquals("Updated the same row ", rowIdError, rowIdRecovered);
     }
 
+    public void testFileNameForUrl() throws MalformedURLException {
+        String fileName = AvatarDownloader.fileNameForUrl(new URL(TestSuite.CONVERSATION_ACCOUNT_AVATAR_URL));
+        assertTrue(fileName, fileName.startsWith("url_"));
+        assertEquals("The same URL - the same file", fileName,
+                AvatarDownloader.fileNameForUrl(new URL(TestSuite.CONVERSATION_ACCOUNT_AVATAR_URL)));
+        assertFalse("Other URL", fileName.equals(
+                AvatarDownloader.fileNameForUrl(new URL("http://andstatus.org/nonexistent_avatar.png"))));
+    }
+
     public void testDeletedFile() throws IOException {
         changeMaAvatarUrl(TestSuite.CONVERSATION_ACCOUNT_AVATAR_URL);
         String urlString = MyProvider.userIdToStringColumnValue(User.AVATAR_URL, ma.getUserId());
@@ -82,6 +95,26 @@ public class AvatarDownloaderTest extends InstrumentationTestCase {
         assertTrue(avatarDrawable.exists());
     }
     
+    public void testRevalidation() throws IOException {
+        changeMaAvatarUrl(TestSuite.CONVERSATION_ACCOUNT_AVATAR_URL);
+        long rowId = loadAndAssertStatusForUrl(TestSuite.CONVERSATION_ACCOUNT_AVATAR_URL, AvatarStatus.LOADED, false);
+        long downloadSize = DatabaseUtils.longForQuery(MyContextHolder.get().getDatabase().getReadableDatabase(),
+                "SELECT " + Avatar.DOWNLOAD_SIZE + " FROM " + Avatar.TABLE_NAME + " WHERE " + Avatar._ID + "=" + rowId,
+                null);
+
+        ContentValues values = new ContentValues();
+        values.put(Avatar.LOADED_DATE, System.currentTimeMillis() - AvatarDrawable.REVALIDATE_AFTER_MILLIS - 1000);
+        MyContextHolder.get().getDatabase().getWritableDatabase()
+                .update(Avatar.TABLE_NAME, values, Avatar._ID + "=" + rowId, null);
+        AvatarDownloader loader = new AvatarDownloader(ma.getUserId());
+        CommandData commandData = new CommandData(CommandEnum.FETCH_AVATAR, null);
+        loader.load(commandData);
+        assertFalse("Revalidated", commandData.getResult().hasError());
+        long bytesSaved = commandData.getResult().getBytesSaved();
+        assertTrue("Saved " + bytesSaved + " of " + downloadSize + " downloaded bytes",
+                bytesSaved == 0 || downloadSize > 0 && bytesSaved == downloadSize);
+    }
+
     private void changeMaAvatarUrl(String urlString) {
         ContentValues values = new ContentValues();
         values.put(User.AVATAR_URL, urlString);
@@ -43,6 +43,23 @@ public class CommandDataTest extends InstrumentationTestCase {
         assertEquals(commandData.getResult().getRetriesLeft(), commandData2.getResult().getRetriesLeft());
     }
 
+    public void testPriority() {
+        Queue<CommandData> queue = new PriorityBlockingQueue<CommandData>(100);
+        CommandData automaticUpdate = new CommandData(CommandEnum.AUTOMATIC_UPDATE, "");
+        CommandData fetchTimeline = new CommandData(CommandEnum.FETCH_TIMELINE, TestSuite.CONVERSATION_ACCOUNT_NAME);
+        CommandData updateStatus = CommandData.updateStatus(TestSuite.CONVERSATION_ACCOUNT_NAME, "Priority test", 0, 0);
+        queue.add(automaticUpdate);
+        queue.add(fetchTimeline);
+        queue.add(updateStatus);
+        assertEquals(updateStatus, queue.poll());
+        assertEquals(fetchTimeline, queue.poll());
+        assertEquals(automaticUpdate, queue.poll());
+
+        assertTrue(updateStatus.mayPreempt(automaticUpdate));
+        assertFalse("Long commands don't preempt", fetchTimeline.mayPreempt(automaticUpdate));
+        assertFalse(automaticUpdate.mayPreempt(updateStatus));
+    }
+
     @Override
     protected void tearDown() throws Exception {
         SharedPreferencesUtil.delete(MyContextHolder.get().context(), TEST_QUEUE_FILE_NAME);
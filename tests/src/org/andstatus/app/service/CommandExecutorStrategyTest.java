@@ -5,6 +5,9 @@ import android.test.InstrumentationTestCase;
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.MyDatabase.Msg;
+import org.andstatus.app.data.MyProvider;
+import org.andstatus.app.data.Outbox;
 import org.andstatus.app.net.ConnectionException;
 import org.andstatus.app.net.RawResourceReader;
 import org.andstatus.app.net.ConnectionException.StatusCode;
@@ -100,6 +103,29 @@ public class CommandExecutorStrategyTest extends InstrumentationTestCase {
         
         httpConnection.setException(null);
     }
+
+    public void testDestroyPendingStatusBeforeSending() {
+        String body = "Deleted before sending " + System.currentTimeMillis() + "ms";
+        httpConnection.setResponse(RawResourceReader.getJSONObjectResource(this.getInstrumentation().getContext(), 
+                org.andstatus.app.tests.R.raw.update_status_response_status_net));
+        long pendingMsgId = Outbox.addPending(ma, body, 0, 0);
+        assertTrue(pendingMsgId != 0);
+        CommandData updateCommand = CommandData.updateStatus(TestSuite.STATUSNET_TEST_ACCOUNT_NAME,
+                body, 0, 0, pendingMsgId);
+        String pathBefore = httpConnection.getPathString();
+
+        CommandData commandData = new CommandData(CommandEnum.DESTROY_STATUS, TestSuite.STATUSNET_TEST_ACCOUNT_NAME, pendingMsgId);
+        CommandExecutorStrategy.executeCommand(commandData, null);
+        assertFalse(commandData.getResult().hasError());
+        assertEquals("Nothing was requested", pathBefore, httpConnection.getPathString());
+        assertEquals("Deleted locally", "", MyProvider.msgIdToStringColumnValue(Msg.MSG_OID, pendingMsgId));
+
+        CommandExecutorStrategy.executeCommand(updateCommand, null);
+        assertFalse(updateCommand.getResult().hasError());
+        assertFalse(updateCommand.getResult().shouldWeRetry());
+        assertEquals("The deleted message was not sent", pathBefore, httpConnection.getPathString());
+        assertEquals(0, updateCommand.getResult().getItemId());
+    }
     
     @Override
     protected void tearDown() throws Exception {
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import android.content.SharedPreferences;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DataInserter;
+import org.andstatus.app.data.MyDatabase.Msg;
+import org.andstatus.app.data.MyDatabase.OidEnum;
+import org.andstatus.app.data.MyProvider;
+import org.andstatus.app.data.TimelineTypeEnum;
+import org.andstatus.app.net.HttpConnectionMock;
+import org.andstatus.app.net.MbMessage;
+import org.andstatus.app.net.MbUser;
+import org.andstatus.app.net.RawResourceReader;
+import org.andstatus.app.util.TriState;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConversationPrefetcherTest extends InstrumentationTestCase {
+    private HttpConnectionMock httpConnection;
+    private MyAccount ma;
+    private String oidPrefix;
+
+    /**
+     * Records the number of requests, made before each checkpoint
+     */
+    private class ParentStub implements CommandExecutorParent {
+        final List<Integer> requestsAtCheckpoints = new ArrayList<Integer>();
+
+        @Override
+        public boolean isStopping() {
+            return false;
+        }
+
+        @Override
+        public void preempt(CommandData longCommand) {
+            requestsAtCheckpoints.add(httpConnection.getRequestsCounter());
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+
+        httpConnection = new HttpConnectionMock();
+        TestSuite.setHttpConnection(httpConnection);
+        assertEquals("HttpConnection mocked", MyContextHolder.get().getHttpConnectionMock(), httpConnection);
+        // In order the mocked connection to have effect:
+        MyContextHolder.get().persistentAccounts().initialize();
+        ma = MyAccount.Builder.newOrExistingFromAccountName(
+                TestSuite.STATUSNET_TEST_ACCOUNT_NAME, TriState.UNKNOWN).getAccount();
+        assertTrue(ma.getUserId() != 0);
+        oidPrefix = "prefetch" + System.nanoTime() + "_";
+    }
+
+    public void testMissingParentsOfNewMessages() throws JSONException {
+        addReply("oldReply", "parentOfOld");
+        addReply("loadedParent", "");
+        long startedAt = System.currentTimeMillis();
+        addReply("newReply", "missingParent");
+        addReply("replyToLoaded", "loadedParent");
+        httpConnection.addResponse(messageJson("missingParent", ""));
+
+        new ConversationPrefetcher(newExecContext(), new ParentStub()).prefetch(startedAt);
+        assertEquals("Only the missing parent of a new message", 1, httpConnection.getRequestsCounter());
+        assertTrue(httpConnection.getPathString(), httpConnection.getPathString().contains(oid("missingParent")));
+        assertFalse(isMissing("missingParent"));
+        assertTrue("Parent of the message, inserted before the sync", isMissing("parentOfOld"));
+    }
+
+    public void testRequestsBudget() {
+        long startedAt = System.currentTimeMillis();
+        for (int ind = 0; ind < ConversationPrefetcher.REQUESTS_BUDGET + 5; ind++) {
+            addReply("reply" + ind, "parent" + ind);
+        }
+
+        new ConversationPrefetcher(newExecContext(), new ParentStub()).prefetch(startedAt);
+        assertEquals(ConversationPrefetcher.REQUESTS_BUDGET, httpConnection.getRequestsCounter());
+    }
+
+    public void testPreemptionBetweenLevels() throws JSONException {
+        long startedAt = System.currentTimeMillis();
+        addReply("replyA", "parentA");
+        addReply("replyB", "parentB");
+        httpConnection.addResponse(messageJson("parentB", "grandParentB"));
+        httpConnection.addResponse(messageJson("parentA", ""));
+        httpConnection.addResponse(messageJson("grandParentB", ""));
+        ParentStub parent = new ParentStub();
+
+        new ConversationPrefetcher(newExecContext(), parent).prefetch(startedAt);
+        assertEquals(3, httpConnection.getRequestsCounter());
+        assertEquals("Requests before each checkpoint " + parent.requestsAtCheckpoints,
+                "[2, 3]", parent.requestsAtCheckpoints.toString());
+        assertFalse(isMissing("parentA"));
+        assertFalse(isMissing("grandParentB"));
+    }
+
+    public void testPreferenceSwitch() throws JSONException {
+        SharedPreferences sp = MyPreferences.getDefaultSharedPreferences();
+        boolean prefetchStored = sp.getBoolean(MyPreferences.KEY_PREFETCH_CONVERSATIONS, true);
+        try {
+            setPrefetch(sp, false);
+            fetchHomeTimeline("replyWhenOff", "parentWhenOff", false);
+            assertTrue("Not prefetched", isMissing("parentWhenOff"));
+
+            setPrefetch(sp, true);
+            fetchHomeTimeline("replyWhenOn", "parentWhenOn", true);
+            assertFalse("Prefetched", isMissing("parentWhenOn"));
+        } finally {
+            setPrefetch(sp, prefetchStored);
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TestSuite.setHttpConnection(null);
+        MyContextHolder.get().persistentAccounts().initialize();
+        super.tearDown();
+    }
+
+    private void setPrefetch(SharedPreferences sp, boolean prefetch) {
+        sp.edit().putBoolean(MyPreferences.KEY_PREFETCH_CONVERSATIONS, prefetch).commit();
+        MyPreferences.onPreferencesChanged();
+        assertEquals(prefetch, MyContextHolder.get().preferences().prefetchConversations);
+    }
+
+    /**
+     * The first page of the timeline has the reply, the next one is empty,
+     * then the parent is returned, if it is expected to be requested
+     */
+    private void fetchHomeTimeline(String replyName, String parentName, boolean parentRequested)
+            throws JSONException {
+        JSONObject emptyPage = new JSONObject();
+        emptyPage.put("items", new JSONArray());
+        httpConnection.setResponse(emptyPage);
+        JSONObject firstPage = new JSONObject();
+        firstPage.put("items", new JSONArray().put(messageJson(replyName, parentName)));
+        httpConnection.addResponse(firstPage);
+        httpConnection.addResponse(emptyPage);
+        if (parentRequested) {
+            httpConnection.addResponse(messageJson(parentName, ""));
+        }
+
+        CommandData commandData = new CommandData(CommandEnum.FETCH_TIMELINE, ma.getAccountName(),
+                TimelineTypeEnum.HOME, 0);
+        CommandExecutorStrategy.executeCommand(commandData, null);
+        assertFalse(commandData.getResult().toString(), commandData.getResult().hasError());
+        assertFalse("Reply is loaded", isMissing(replyName));
+    }
+
+    private CommandExecutionContext newExecContext() {
+        CommandData commandData = new CommandData(CommandEnum.FETCH_TIMELINE, ma.getAccountName(),
+                TimelineTypeEnum.HOME, 0);
+        return new CommandExecutionContext(commandData, ma).setTimelineType(TimelineTypeEnum.HOME);
+    }
+
+    /**
+     * Adds the message to the Home timeline of the account
+     * @param parentName Empty if the message is not a reply
+     */
+    private void addReply(String name, String parentName) {
+        MbMessage message = MbMessage.fromOriginAndOid(ma.getOriginId(), oid(name));
+        message.setBody("Message " + name);
+        message.sentDate = System.currentTimeMillis();
+        message.sender = MbUser.fromOriginAndUserOid(ma.getOriginId(), TestSuite.STATUSNET_TEST_ACCOUNT_USER_OID);
+        if (parentName.length() > 0) {
+            message.inReplyToMessage = MbMessage.fromOriginAndOid(ma.getOriginId(), oid(parentName));
+        }
+        long msgId = new DataInserter(new CommandExecutionContext(CommandData.getEmpty(), ma)
+                .setTimelineType(TimelineTypeEnum.HOME)).insertOrUpdateMsg(message);
+        assertTrue("Message added " + name, msgId != 0);
+        // Distinct insertion times
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    /**
+     * @param parentName Empty if the message is not a reply
+     */
+    private JSONObject messageJson(String name, String parentName) throws JSONException {
+        JSONObject jso = new JSONObject(RawResourceReader.getJSONObjectResource(getInstrumentation().getContext(),
+                org.andstatus.app.tests.R.raw.update_status_response_status_net).toString());
+        jso.put("id", oid(name));
+        jso.put("text", "Message " + name);
+        jso.put("statusnet_html", "Message " + name);
+        if (parentName.length() > 0) {
+            jso.put("in_reply_to_status_id", oid(parentName));
+            jso.put("in_reply_to_user_id", jso.getJSONObject("user").getString("id"));
+        }
+        return jso;
+    }
+
+    private String oid(String name) {
+        return oidPrefix + name;
+    }
+
+    private boolean isMissing(String name) {
+        long msgId = MyProvider.oidToId(OidEnum.MSG_OID, ma.getOriginId(), oid(name));
+        return MyProvider.msgIdToLongColumnValue(Msg.CREATED_DATE, msgId) == 0;
+    }
+}
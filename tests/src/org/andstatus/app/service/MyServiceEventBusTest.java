@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.service.MyService.ServiceState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MyServiceEventBusTest extends InstrumentationTestCase {
+
+    private static class Listener implements MyServiceListener {
+        final List<CommandData> received = new ArrayList<CommandData>();
+
+        @Override
+        public void onReceive(CommandData commandData) {
+            received.add(commandData);
+        }
+    }
+
+    private ServiceState serviceStateStored;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+        MyServiceEventBus.deliverPending();
+        serviceStateStored = MyServiceManager.getServiceState();
+    }
+
+    public void testEventsAreCoalesced() {
+        Listener listener = new Listener();
+        MyServiceEventBus.register(listener);
+        MyServiceEventBus.register(listener);
+        long coalescedBefore = MyServiceEventBus.getCoalesced();
+
+        CommandData command1 = new CommandData(CommandEnum.FETCH_TIMELINE, "");
+        CommandData command2 = new CommandData(CommandEnum.RATE_LIMIT_STATUS, "");
+        MyServiceEventBus.post(null, ServiceState.RUNNING, null);
+        MyServiceEventBus.post(null, ServiceState.RUNNING, command1);
+        MyServiceEventBus.post(null, ServiceState.RUNNING, command2);
+        MyServiceEventBus.post(null, ServiceState.RUNNING, command1);
+        MyServiceEventBus.post(null, ServiceState.RUNNING, null);
+        assertEquals(coalescedBefore + 2, MyServiceEventBus.getCoalesced());
+        assertEquals(ServiceState.RUNNING, MyServiceManager.getServiceState());
+
+        MyServiceEventBus.deliverPending();
+        assertEquals("Registered once", 3, listener.received.size());
+        assertEquals(command2, listener.received.get(0));
+        assertEquals(command1, listener.received.get(1));
+        assertEquals(CommandEnum.EMPTY, listener.received.get(2).getCommand());
+
+        MyServiceEventBus.unregister(listener);
+        assertFalse(MyServiceEventBus.isRegistered(listener));
+        MyServiceEventBus.post(null, ServiceState.STOPPED, command1);
+        MyServiceEventBus.deliverPending();
+        assertEquals(3, listener.received.size());
+    }
+
+    public void testSnapshotsOfExecutionsAreDelivered() {
+        Listener listener = new Listener();
+        MyServiceEventBus.register(listener);
+        CommandData command = new CommandData(CommandEnum.GET_STATUS, "");
+        MyServiceEventBus.post(null, ServiceState.RUNNING, command);
+        command.getResult().onLaunched();
+        command.getResult().incrementNumIoExceptions();
+        command.getResult().onExecuted();
+        MyServiceEventBus.post(null, ServiceState.RUNNING, command);
+        command.getResult().onLaunched();
+
+        MyServiceEventBus.deliverPending();
+        MyServiceEventBus.unregister(listener);
+        assertEquals("Events of different executions", 2, listener.received.size());
+        CommandData before = listener.received.get(0);
+        CommandData after = listener.received.get(1);
+        assertEquals(command, before);
+        assertNotSame(command, before);
+        assertEquals(0, before.getResult().getExecutionCount());
+        assertFalse(before.getResult().hasError());
+        assertEquals(1, after.getResult().getExecutionCount());
+        assertTrue("Not changed by the next launch", after.getResult().hasError());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        MyServiceEventBus.deliverPending();
+        MyServiceManager.onServiceStateChanged(serviceStateStored);
+        super.tearDown();
+    }
+}
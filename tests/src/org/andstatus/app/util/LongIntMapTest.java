@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.test.InstrumentationTestCase;
+
+public class LongIntMapTest extends InstrumentationTestCase {
+
+    public void testPutGet() {
+        int size = 1000;
+        LongIntMap map = new LongIntMap(size);
+        assertEquals(LongIntMap.NOT_FOUND, map.get(1));
+        for (int position = 0; position < size; position++) {
+            // Ids with equal low bits and negative ones collide in the hash
+            map.put(position * 4096L - 2000, position);
+        }
+        assertEquals(size, map.size());
+        for (int position = 0; position < size; position++) {
+            assertEquals(position, map.get(position * 4096L - 2000));
+        }
+        assertEquals(LongIntMap.NOT_FOUND, map.get(3));
+        map.put(-2000, 7);
+        assertEquals("Value replaced", 7, map.get(-2000));
+        assertEquals(size, map.size());
+
+        LongIntMap empty = new LongIntMap(0);
+        assertEquals(LongIntMap.NOT_FOUND, empty.get(0));
+    }
+}
@@ -20,8 +20,15 @@ import android.test.InstrumentationTestCase;
 import android.text.TextUtils;
 
 import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DbUtils;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
 
 public class MyLogTest  extends InstrumentationTestCase {
 
@@ -56,4 +63,39 @@ public class MyLogTest  extends InstrumentationTestCase {
         MyLog.v(this, method);
         assertFalse(file.exists());
     }
+
+    public void testAsyncFileLogger() throws IOException {
+        final String method = "testAsyncFileLogger";
+        MyLog.setLogToFile(true);
+        File file = MyLog.getLogFile(MyLog.getLogFileName(), true);
+        for (int ind = 0; ind < 10; ind++) {
+            MyLog.v(this, method + " " + ind);
+        }
+        MyLog.setLogToFile(false);
+        assertTrue(file.exists());
+        List<String> lines = readLinesContaining(file, method);
+        file.delete();
+        assertEquals("All messages were written " + lines, 10, lines.size());
+        for (int ind = 0; ind < 10; ind++) {
+            assertTrue("Line " + ind + ": '" + lines.get(ind) + "'",
+                    lines.get(ind).endsWith(" V/MyLogTest: " + method + " " + ind));
+        }
+    }
+
+    private static List<String> readLinesContaining(File file, String text) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.contains(text)) {
+                    lines.add(line);
+                }
+            }
+        } finally {
+            DbUtils.closeSilently(reader);
+        }
+        return lines;
+    }
 }
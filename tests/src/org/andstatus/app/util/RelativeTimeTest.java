@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.content.Context;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.R;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+
+public class RelativeTimeTest extends InstrumentationTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testBuckets() {
+        Context context = MyContextHolder.get().context();
+        long now = System.currentTimeMillis();
+        assertEquals("", RelativeTime.getDifference(context, 0));
+        assertEquals(context.getString(R.string.reltime_just_now), RelativeTime.getDifference(context, now + 1000));
+        assertEquals(context.getString(R.string.reltime_years_ago),
+                RelativeTime.getDifference(context, now - 400L * 24 * 60 * 60 * 1000));
+
+        String fiveMinutes = RelativeTime.getDifference(context, now - 5 * 60 * 1000);
+        assertTrue(fiveMinutes, fiveMinutes.contains("5"));
+        assertSame("The same bucket is formatted once", fiveMinutes,
+                RelativeTime.getDifference(context, now - 5 * 60 * 1000 - 10 * 1000));
+        assertFalse(fiveMinutes.equals(RelativeTime.getDifference(context, now - 6 * 60 * 1000)));
+    }
+
+    public void testTicker() {
+        final long tick = RelativeTimeTicker.getTick();
+        long minute = System.currentTimeMillis() / RelativeTimeTicker.TICK_MILLIS;
+        assertTrue("Tick is the current minute " + minute + ", tick:" + tick, minute == tick || minute == tick + 1);
+
+        final int[] calls = new int[1];
+        final long[] ticks = new long[1];
+        final RelativeTimeTicker.Listener listener = new RelativeTimeTicker.Listener() {
+            @Override
+            public void onRelativeTimeTick() {
+                calls[0]++;
+                ticks[0] = RelativeTimeTicker.getTick();
+            }
+        };
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                RelativeTimeTicker.register(listener);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+        assertEquals("Listener is called on registration", 1, calls[0]);
+        assertTrue("Registration doesn't advance the tick", ticks[0] - tick <= 1);
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                RelativeTimeTicker.onTick();
+                RelativeTimeTicker.unregister(listener);
+            }
+        });
+        assertEquals(2, calls[0]);
+        assertTrue("A call within a minute doesn't advance the tick", ticks[0] - tick <= 1);
+    }
+}
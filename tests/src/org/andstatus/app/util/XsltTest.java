@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2014 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.content.Context;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.R;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+
+import java.io.File;
+
+public class XsltTest extends InstrumentationTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testHtmlIsCached() {
+        Context context = MyContextHolder.get().context();
+        File cacheFile = Xslt.getCacheFile(context, R.raw.changes, R.raw.changesxsl);
+        assertNotNull(cacheFile);
+        if (cacheFile.exists()) {
+            assertTrue(cacheFile.delete());
+        }
+        String html = Xslt.toHtmlString(context, R.raw.changes, R.raw.changesxsl);
+        assertTrue(html.length() > 0);
+        assertTrue("Cached " + cacheFile.getAbsolutePath(), cacheFile.exists());
+        for (File file : cacheFile.getParentFile().listFiles()) {
+            assertFalse("Temporary file is left " + file.getName(),
+                    file.getName().startsWith(cacheFile.getName() + "_"));
+        }
+        assertEquals(html, Xslt.toHtmlString(context, R.raw.changes, R.raw.changesxsl));
+    }
+}